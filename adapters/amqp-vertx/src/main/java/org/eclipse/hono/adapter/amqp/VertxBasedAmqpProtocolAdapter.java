@@ -13,6 +13,11 @@
 package org.eclipse.hono.adapter.amqp;
 
 import java.net.HttpURLConnection;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -30,14 +35,12 @@ import org.eclipse.hono.util.EndpointType;
 import org.eclipse.hono.util.HonoProtonHelper;
 import org.eclipse.hono.util.MessageHelper;
 import org.eclipse.hono.util.ResourceIdentifier;
-import org.eclipse.hono.util.TenantObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
-import io.vertx.core.json.JsonObject;
 import io.vertx.proton.ProtonConnection;
 import io.vertx.proton.ProtonDelivery;
 import io.vertx.proton.ProtonHelper;
@@ -68,6 +71,12 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
      */
     private static final int DEFAULT_SECURE_PORT = 4041;
 
+    /**
+     * The interval (milliseconds) at which device links waiting for downstream credit
+     * are checked for senders that have been closed in the meantime.
+     */
+    private static final long CLOSED_SENDER_CHECK_INTERVAL_MILLIS = 1000L;
+
     /**
      * The AMQP server instance that maps to a secure port.
      */
@@ -85,6 +94,15 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
      */
     private ProtonSaslAuthenticatorFactory authenticatorFactory;
 
+    /**
+     * The device links waiting for downstream senders to be replenished with credit.
+     */
+    private final Map<MessageSender, Deque<ProtonReceiver>> linksAwaitingCredit = new HashMap<>();
+    /**
+     * The timer checking for closed senders while there are device links waiting for credit.
+     */
+    private Long closedSenderCheckTimerId;
+
     // -----------------------------------------< AbstractProtocolAdapterBase >---
     /**
      * {@inheritDoc}
@@ -116,6 +134,7 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
 
     @Override
     protected void doStop(final Future<Void> stopFuture) {
+        cancelClosedSenderCheck();
         CompositeFuture.all(stopSecureServer(), stopInsecureServer())
         .compose(ok -> stopFuture.complete(), stopFuture);
     }
@@ -334,23 +353,147 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
                 // in this case, the adapter will apply the required disposition
                 receiver.setAutoAccept(false);
             }
+            final boolean flowControlEnabled = getConfig().getDeviceLinkCredit() > 0;
+            if (flowControlEnabled) {
+                // credit is issued explicitly based on downstream credit
+                receiver.setPrefetch(0);
+            }
             receiver.handler((delivery, message) -> {
 
                 validateEndpoint(message.getAddress(), delivery)
                         .compose(address -> validateAddress(address, authenticatedDevice))
                         .compose(validAddress -> {
                             message.setAddress(validAddress.toString());
-                            uploadMessage(new AmqpContext(delivery, message, authenticatedDevice));
+                            final AmqpContext context = new AmqpContext(delivery, message, authenticatedDevice);
+                            final Future<Void> uploadTracker = uploadMessage(context);
+                            if (flowControlEnabled) {
+                                uploadTracker.setHandler(processed -> replenishCredit(receiver, context));
+                            }
                             return Future.succeededFuture();
                         })
                         .recover(t -> {
                             // invalid message address / endpoint
                             MessageHelper.rejected(delivery, AmqpContext.getErrorCondition(t));
+                            if (flowControlEnabled) {
+                                receiver.flow(1);
+                            }
                             return Future.failedFuture(t);
                         });
             });
             HonoProtonHelper.setCloseHandler(receiver, remoteDetach -> onLinkDetach(receiver));
             receiver.open();
+            if (flowControlEnabled) {
+                receiver.flow(getConfig().getDeviceLinkCredit());
+            }
+        }
+    }
+
+    /**
+     * Issues credit for another message to a device link.
+     * <p>
+     * The credit is issued once the downstream sender that the context's message
+     * has been forwarded on has credit available.
+     *
+     * @param receiver The link to issue credit to.
+     * @param context The context of the message that has been processed.
+     */
+    private void replenishCredit(final ProtonReceiver receiver, final AmqpContext context) {
+
+        releaseLinksOfClosedSenders();
+        getDownstreamSender(context).setHandler(lookup -> {
+            if (lookup.succeeded() && lookup.result().sendQueueFull()) {
+                awaitDownstreamCredit(lookup.result(), receiver);
+            } else {
+                flowIfOpen(receiver, 1);
+            }
+        });
+    }
+
+    private void awaitDownstreamCredit(final MessageSender sender, final ProtonReceiver receiver) {
+
+        final Deque<ProtonReceiver> waitingLinks = linksAwaitingCredit.get(sender);
+        if (waitingLinks == null) {
+            final Deque<ProtonReceiver> newWaitingLinks = new ArrayDeque<>();
+            newWaitingLinks.add(receiver);
+            linksAwaitingCredit.put(sender, newWaitingLinks);
+            sender.sendQueueDrainHandler(replenished -> onDownstreamCreditReplenished(sender));
+            scheduleClosedSenderCheck();
+        } else {
+            waitingLinks.add(receiver);
+        }
+    }
+
+    private void onDownstreamCreditReplenished(final MessageSender sender) {
+
+        final Deque<ProtonReceiver> waitingLinks = linksAwaitingCredit.get(sender);
+        if (waitingLinks == null) {
+            return;
+        }
+        LOG.trace("downstream sender has been replenished [credit: {}, waiting device links: {}]",
+                sender.getCredit(), waitingLinks.size());
+        // do not issue more credit to devices than the downstream sender has available
+        int availableCredit = Math.max(0, sender.getCredit());
+        while (availableCredit > 0 && !waitingLinks.isEmpty()) {
+            flowIfOpen(waitingLinks.poll(), 1);
+            availableCredit--;
+        }
+        if (waitingLinks.isEmpty()) {
+            linksAwaitingCredit.remove(sender);
+        } else {
+            sender.sendQueueDrainHandler(replenished -> onDownstreamCreditReplenished(sender));
+        }
+    }
+
+    /**
+     * Starts a periodic check for closed senders unless it is already running.
+     * <p>
+     * A device link that has used up all of its credit while waiting for a sender
+     * that gets closed can not send another message that would trigger
+     * {@link #replenishCredit(ProtonReceiver, AmqpContext)}. The check makes sure
+     * that such links get released nevertheless.
+     */
+    private void scheduleClosedSenderCheck() {
+
+        if (closedSenderCheckTimerId == null) {
+            closedSenderCheckTimerId = vertx.setPeriodic(CLOSED_SENDER_CHECK_INTERVAL_MILLIS, tid -> {
+                releaseLinksOfClosedSenders();
+                if (linksAwaitingCredit.isEmpty()) {
+                    cancelClosedSenderCheck();
+                }
+            });
+        }
+    }
+
+    private void cancelClosedSenderCheck() {
+
+        if (closedSenderCheckTimerId != null) {
+            vertx.cancelTimer(closedSenderCheckTimerId);
+            closedSenderCheckTimerId = null;
+        }
+    }
+
+    /**
+     * Issues credit to device links that are waiting for downstream senders
+     * which have been closed in the meantime.
+     * <p>
+     * Such senders will never be replenished with credit again and subsequent
+     * messages will be forwarded using newly created senders.
+     */
+    private void releaseLinksOfClosedSenders() {
+
+        final Iterator<Map.Entry<MessageSender, Deque<ProtonReceiver>>> entries = linksAwaitingCredit.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<MessageSender, Deque<ProtonReceiver>> entry = entries.next();
+            if (!entry.getKey().isOpen()) {
+                entries.remove();
+                entry.getValue().forEach(receiver -> flowIfOpen(receiver, 1));
+            }
+        }
+    }
+
+    private static void flowIfOpen(final ProtonReceiver receiver, final int credit) {
+        if (receiver.isOpen()) {
+            receiver.flow(credit);
         }
     }
 
@@ -358,8 +501,11 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
      * Forwards a message received from a device to downstream consumers.
      *
      * @param context The context that the message has been received in.
+     * @return A future indicating the outcome of processing the message.
+     *         The future will be completed once the message has been forwarded
+     *         downstream or it will be failed if the message could not be processed.
      */
-    protected void uploadMessage(final AmqpContext context) {
+    protected Future<Void> uploadMessage(final AmqpContext context) {
         final Future<Void> contentTypeCheck = Future.future();
         final String contentType = context.getMessageContentType();
 
@@ -370,19 +516,9 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
             contentTypeCheck.complete();
         }
 
-        contentTypeCheck.compose(ok -> {
-            switch (EndpointType.fromString(context.getEndpoint())) {
-            case TELEMETRY:
-                LOG.trace("Received request to upload telemetry data to endpoint [with name: {}]",
-                        context.getEndpoint());
-                return doUploadMessage(context, getTelemetrySender(context.getTenantId()));
-            case EVENT:
-                LOG.trace("Received request to upload events to endpoint [with name: {}]", context.getEndpoint());
-                return doUploadMessage(context, getEventSender(context.getTenantId()));
-            default:
-                return Future
-                        .failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST, "unknown endpoint"));
-            }
+        return contentTypeCheck.compose(ok -> {
+            LOG.trace("Received request to upload message to endpoint [with name: {}]", context.getEndpoint());
+            return doUploadMessage(context);
         }).recover(t -> {
             if (!context.isRemotelySettled()) {
                 // client wants to be informed that the message cannot be processed.
@@ -393,36 +529,36 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
 
     }
 
-    @SuppressWarnings("deprecation")
-    private Future<Void> doUploadMessage(final AmqpContext context, final Future<MessageSender> senderFuture) {
+    private Future<MessageSender> getDownstreamSender(final AmqpContext context) {
+
+        switch (EndpointType.fromString(context.getEndpoint())) {
+        case TELEMETRY:
+            return getTelemetrySender(context.getTenantId());
+        case EVENT:
+            return getEventSender(context.getTenantId());
+        default:
+            return Future
+                    .failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST, "unknown endpoint"));
+        }
+    }
 
-        final Future<JsonObject> tokenFuture = getRegistrationAssertion(context.getTenantId(), context.getDeviceId(),
-                context.getAuthenticatedDevice());
-        final Future<TenantObject> tenantConfigFuture = getTenantConfiguration(context.getTenantId());
+    private Future<Void> doUploadMessage(final AmqpContext context) {
 
-        return CompositeFuture.all(tenantConfigFuture, tokenFuture, senderFuture).compose(ok -> {
-            final TenantObject tenantObject = tenantConfigFuture.result();
-            if (tenantObject.isAdapterEnabled(getTypeName())) {
+        return getUploadContext(context.getEndpoint(), context.getTenantId(), context.getDeviceId(),
+                context.getAuthenticatedDevice(), null).compose(uploadContext -> {
 
-                final MessageSender sender = senderFuture.result();
-                final Message downstreamMessage = newMessage(context.getResourceIdentifier(),
-                        sender.isRegistrationAssertionRequired(),
-                        context.getEndpoint(), context.getMessageContentType(), context.getMessagePayload(),
-                        tokenFuture.result(), null);
+            final MessageSender sender = uploadContext.getSender();
+            final Message downstreamMessage = newMessage(context.getResourceIdentifier(),
+                    sender.isRegistrationAssertionRequired(),
+                    context.getEndpoint(), context.getMessageContentType(), context.getMessagePayload(),
+                    uploadContext.getRegistrationAssertion(), null);
 
-                if (context.isRemotelySettled()) {
-                    // client uses AT_MOST_ONCE delivery semantics -> fire and forget
-                    return sender.send(downstreamMessage);
-                } else {
-                    // client uses AT_LEAST_ONCE delivery semantics
-                    return sender.sendAndWaitForOutcome(downstreamMessage);
-                }
+            if (context.isRemotelySettled()) {
+                // client uses AT_MOST_ONCE delivery semantics -> fire and forget
+                return sender.send(downstreamMessage);
             } else {
-                // this adapter is not enabled for tenant
-                return Future.failedFuture(
-                        new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
-                                String.format("This adapter is not enabled for tenant [tenantId: %s].",
-                                        context.getTenantId())));
+                // client uses AT_LEAST_ONCE delivery semantics
+                return sender.sendAndWaitForOutcome(downstreamMessage);
             }
         }).compose(downstreamDelivery -> {
             LOG.trace("Successfully process message for Device [deviceId: {}] with Tenant [tenantId: {}]",
@@ -13,12 +13,14 @@
 package org.eclipse.hono.adapter.amqp;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -47,16 +49,21 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 
+import io.opentracing.SpanContext;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import io.vertx.proton.ProtonConnection;
 import io.vertx.proton.ProtonDelivery;
+import io.vertx.proton.ProtonMessageHandler;
 import io.vertx.proton.ProtonQoS;
 import io.vertx.proton.ProtonReceiver;
 import io.vertx.proton.ProtonServer;
@@ -90,6 +97,7 @@ public class VertxBasedAmqpProtocolAdapterTest {
     private TenantClient tenantClient;
 
     private ProtocolAdapterProperties config;
+    private Vertx vertx;
 
     /**
      * Setups the protocol adapter.
@@ -116,7 +124,7 @@ public class VertxBasedAmqpProtocolAdapterTest {
 
         registrationClient = mock(RegistrationClient.class);
         final JsonObject regAssertion = new JsonObject().put(RegistrationConstants.FIELD_ASSERTION, "assert-token");
-        when(registrationClient.assertRegistration(anyString(), any()))
+        when(registrationClient.assertRegistration(anyString(), any(), (SpanContext) any()))
                 .thenReturn(Future.succeededFuture(regAssertion));
 
         registrationServiceClient = mock(HonoClient.class);
@@ -128,6 +136,8 @@ public class VertxBasedAmqpProtocolAdapterTest {
         commandConnection = mock(CommandConnection.class);
         when(commandConnection.connect(any(Handler.class))).thenReturn(Future.succeededFuture(commandConnection));
 
+        vertx = mock(Vertx.class);
+
         config = new ProtocolAdapterProperties();
         config.setAuthenticationRequired(false);
         config.setInsecurePort(4040);
@@ -264,6 +274,95 @@ public class VertxBasedAmqpProtocolAdapterTest {
         verify(delivery).disposition(isA(Rejected.class), eq(true));
     }
 
+    /**
+     * Verifies that the adapter issues credit to a device link only if the downstream
+     * sender that messages are forwarded on has credit available.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDeviceLinkCreditIsReplenishedWhenDownstreamSenderHasCredit() {
+
+        // GIVEN an adapter that issues credit to devices based on downstream credit
+        config.setDeviceLinkCredit(10);
+        final VertxBasedAmqpProtocolAdapter adapter = givenAnAmqpAdapter();
+        final MessageSender telemetrySender = givenATelemetrySenderForAnyTenant();
+        when(telemetrySender.send(any(Message.class))).thenReturn(Future.succeededFuture(mock(ProtonDelivery.class)));
+        when(telemetrySender.isOpen()).thenReturn(Boolean.TRUE);
+        givenAConfiguredTenant(TEST_TENANT_ID, true);
+
+        // WHEN a device opens a link
+        final ProtonReceiver link = getReceiver(ProtonQoS.AT_MOST_ONCE, null);
+        when(link.isOpen()).thenReturn(Boolean.TRUE);
+        adapter.handleRemoteReceiverOpen(link, getConnection(null));
+
+        // THEN the adapter issues the configured number of credits
+        verify(link).setPrefetch(0);
+        verify(link).flow(10);
+
+        // WHEN the device sends a message which exhausts the downstream sender's credit
+        when(telemetrySender.sendQueueFull()).thenReturn(Boolean.TRUE);
+        final ArgumentCaptor<ProtonMessageHandler> messageHandler = ArgumentCaptor.forClass(ProtonMessageHandler.class);
+        verify(link).handler(messageHandler.capture());
+        final ProtonDelivery delivery = mock(ProtonDelivery.class);
+        when(delivery.remotelySettled()).thenReturn(true);
+        final String to = ResourceIdentifier.from(TelemetryConstants.TELEMETRY_ENDPOINT, TEST_TENANT_ID, TEST_DEVICE).toString();
+        messageHandler.getValue().handle(delivery, getFakeMessage(to));
+
+        // THEN the message is forwarded downstream
+        verify(telemetrySender).send(any(Message.class));
+        // but the device is not issued credit for another message
+        verify(link, never()).flow(1);
+
+        // until the downstream sender gets replenished
+        final ArgumentCaptor<Handler<Void>> drainHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(telemetrySender).sendQueueDrainHandler(drainHandler.capture());
+        when(telemetrySender.getCredit()).thenReturn(5);
+        drainHandler.getValue().handle(null);
+        verify(link, times(1)).flow(1);
+    }
+
+    /**
+     * Verifies that the adapter issues credit to a device link that has been waiting
+     * for a downstream sender which gets closed, even if the device does not send
+     * any further messages.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDeviceLinkCreditIsReplenishedWhenDownstreamSenderIsClosed() {
+
+        // GIVEN an adapter that issues credit to devices based on downstream credit
+        config.setDeviceLinkCredit(2);
+        final ArgumentCaptor<Handler<Long>> checkHandler = ArgumentCaptor.forClass(Handler.class);
+        when(vertx.setPeriodic(anyLong(), checkHandler.capture())).thenReturn(1L);
+        final VertxBasedAmqpProtocolAdapter adapter = givenAnAmqpAdapter();
+        final MessageSender telemetrySender = givenATelemetrySenderForAnyTenant();
+        when(telemetrySender.send(any(Message.class))).thenReturn(Future.succeededFuture(mock(ProtonDelivery.class)));
+        when(telemetrySender.isOpen()).thenReturn(Boolean.TRUE);
+        givenAConfiguredTenant(TEST_TENANT_ID, true);
+        final ProtonReceiver link = getReceiver(ProtonQoS.AT_MOST_ONCE, null);
+        when(link.isOpen()).thenReturn(Boolean.TRUE);
+        adapter.handleRemoteReceiverOpen(link, getConnection(null));
+
+        // WHEN the device sends a message which exhausts the downstream sender's credit
+        when(telemetrySender.sendQueueFull()).thenReturn(Boolean.TRUE);
+        final ArgumentCaptor<ProtonMessageHandler> messageHandler = ArgumentCaptor.forClass(ProtonMessageHandler.class);
+        verify(link).handler(messageHandler.capture());
+        final ProtonDelivery delivery = mock(ProtonDelivery.class);
+        when(delivery.remotelySettled()).thenReturn(true);
+        final String to = ResourceIdentifier.from(TelemetryConstants.TELEMETRY_ENDPOINT, TEST_TENANT_ID, TEST_DEVICE).toString();
+        messageHandler.getValue().handle(delivery, getFakeMessage(to));
+        verify(link, never()).flow(1);
+
+        // and the downstream sender gets closed afterwards
+        when(telemetrySender.isOpen()).thenReturn(Boolean.FALSE);
+        checkHandler.getValue().handle(1L);
+
+        // THEN the device link is issued credit for another message
+        verify(link, times(1)).flow(1);
+        // and the check is stopped because no more links are waiting
+        verify(vertx).cancelTimer(1L);
+    }
+
     private Target getTarget(final ResourceIdentifier resource) {
         final Target target = new Target();
         target.setAddress(resource.toString());
@@ -289,7 +388,7 @@ public class VertxBasedAmqpProtocolAdapterTest {
         final TenantObject tenantConfig = TenantObject.from(tenantId, Boolean.TRUE);
         tenantConfig
                 .addAdapterConfiguration(TenantObject.newAdapterConfig(Constants.PROTOCOL_ADAPTER_TYPE_AMQP, enabled));
-        when(tenantClient.get(tenantId)).thenReturn(Future.succeededFuture(tenantConfig));
+        when(tenantClient.get(eq(tenantId), (SpanContext) any())).thenReturn(Future.succeededFuture(tenantConfig));
     }
 
     private Message getFakeMessage(final String to) {
@@ -325,6 +424,7 @@ public class VertxBasedAmqpProtocolAdapterTest {
     private VertxBasedAmqpProtocolAdapter getAdapter(final ProtonServer server) {
         final VertxBasedAmqpProtocolAdapter adapter = new VertxBasedAmqpProtocolAdapter();
 
+        adapter.init(vertx, mock(Context.class));
         adapter.setConfig(config);
         adapter.setInsecureAmqpServer(server);
         adapter.setTenantServiceClient(tenantServiceClient);
@@ -26,11 +26,14 @@ import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.MessageConsumer;
 import org.eclipse.hono.client.MessageSender;
 import org.eclipse.hono.client.ServerErrorException;
+import org.eclipse.hono.client.ServiceInvocationException;
 import org.eclipse.hono.service.AbstractProtocolAdapterBase;
+import org.eclipse.hono.service.UploadContext;
 import org.eclipse.hono.service.auth.device.Device;
 import org.eclipse.hono.service.command.Command;
 import org.eclipse.hono.service.command.CommandResponse;
 import org.eclipse.hono.service.command.CommandResponseSender;
+import org.eclipse.hono.service.metric.UploadTimers.Stage;
 import org.eclipse.hono.service.http.DefaultFailureHandler;
 import org.eclipse.hono.service.http.HttpUtils;
 import org.eclipse.hono.tracing.TracingHelper;
@@ -39,7 +42,6 @@ import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.MessageHelper;
 import org.eclipse.hono.util.ResourceIdentifier;
 import org.eclipse.hono.util.TelemetryConstants;
-import org.eclipse.hono.util.TenantObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,10 +56,14 @@ import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
+import io.vertx.proton.ProtonDelivery;
 
 /**
  * Base class for a Vert.x based Hono protocol adapter that uses the HTTP protocol.
@@ -78,6 +84,8 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
     private static final int HEADER_QOS_INVALID = -1;
 
     private static final String KEY_TIMER_ID = "timerId";
+    private static final String FIELD_BATCH_STATUS = "status";
+    private static final String FIELD_BATCH_ERROR = "error";
 
     private HttpServer         server;
     private HttpServer         insecureServer;
@@ -493,7 +501,6 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
                 Objects.requireNonNull(deviceId),
                 payload,
                 contentType,
-                getTelemetrySender(tenant),
                 TelemetryConstants.TELEMETRY_ENDPOINT);
     }
 
@@ -542,12 +549,179 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
                 Objects.requireNonNull(deviceId),
                 payload,
                 contentType,
-                getEventSender(tenant),
                 EventConstants.EVENT_ENDPOINT);
     }
 
+    /**
+     * Uploads the records contained in the body of an HTTP request as telemetry messages to Hono.
+     * <p>
+     * The request body is expected to contain a JSON array. Each element of the array is
+     * forwarded downstream as a separate message having content type {@value HttpUtils#CONTENT_TYPE_JSON}.
+     * The device's registration status is asserted only once for all records.
+     * <p>
+     * This method always sends a response to the device. If the records have been processed,
+     * the response has status code 200 and contains a JSON array with the outcome of forwarding
+     * each of the records, in the same order as in the request.
+     *
+     * @param ctx The context to retrieve the records from.
+     * @param tenant The tenant of the device that has produced the data.
+     * @param deviceId The id of the device that has produced the data.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    public final void uploadTelemetryBatch(final RoutingContext ctx, final String tenant, final String deviceId) {
+
+        doUploadBatch(
+                Objects.requireNonNull(ctx),
+                Objects.requireNonNull(tenant),
+                Objects.requireNonNull(deviceId),
+                TelemetryConstants.TELEMETRY_ENDPOINT);
+    }
+
+    /**
+     * Uploads the records contained in the body of an HTTP request as event messages to Hono.
+     * <p>
+     * The request body is expected to contain a JSON array. Each element of the array is
+     * forwarded downstream as a separate message having content type {@value HttpUtils#CONTENT_TYPE_JSON}.
+     * The device's registration status is asserted only once for all records.
+     * <p>
+     * This method always sends a response to the device. If the records have been processed,
+     * the response has status code 200 and contains a JSON array with the outcome of forwarding
+     * each of the records, in the same order as in the request.
+     *
+     * @param ctx The context to retrieve the records from.
+     * @param tenant The tenant of the device that has produced the data.
+     * @param deviceId The id of the device that has produced the data.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    public final void uploadEventBatch(final RoutingContext ctx, final String tenant, final String deviceId) {
+
+        doUploadBatch(
+                Objects.requireNonNull(ctx),
+                Objects.requireNonNull(tenant),
+                Objects.requireNonNull(deviceId),
+                EventConstants.EVENT_ENDPOINT);
+    }
+
+    private void doUploadBatch(final RoutingContext ctx, final String tenant, final String deviceId,
+            final String endpointName) {
+
+        if (!HttpUtils.CONTENT_TYPE_JSON.equals(HttpUtils.getContentType(ctx))) {
+            HttpUtils.badRequest(ctx, String.format("content type must be %s", HttpUtils.CONTENT_TYPE_JSON));
+            return;
+        }
+
+        final JsonArray records;
+        try {
+            records = ctx.getBodyAsJsonArray();
+        } catch (final DecodeException e) {
+            HttpUtils.badRequest(ctx, "request body must contain a JSON array");
+            return;
+        }
+
+        final String qosHeaderValue = ctx.request().getHeader(Constants.HEADER_QOS_LEVEL);
+        final Integer qos = getQoSLevel(qosHeaderValue);
+
+        if (records == null || records.isEmpty()) {
+            HttpUtils.badRequest(ctx, "request body must contain at least one record");
+        } else if (records.size() > getConfig().getMaxBatchSize()) {
+            ctx.fail(new ClientErrorException(HttpURLConnection.HTTP_ENTITY_TOO_LARGE,
+                    String.format("batch must not contain more than %d records", getConfig().getMaxBatchSize())));
+        } else if (qos != null && qos == HEADER_QOS_INVALID) {
+            HttpUtils.badRequest(ctx, "unsupported QoS-Level header value");
+        } else {
+
+            final Device authenticatedDevice = getAuthenticatedDevice(ctx);
+            final Span currentSpan = tracer.buildSpan("upload " + endpointName + " batch")
+                    .asChildOf(TracingHandler.serverSpanContext(ctx))
+                    .ignoreActiveSpan()
+                    .withTag(Tags.COMPONENT.getKey(), getTypeName())
+                    .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT)
+                    .withTag(MessageHelper.APP_PROPERTY_TENANT_ID, tenant)
+                    .withTag(MessageHelper.APP_PROPERTY_DEVICE_ID, deviceId)
+                    .withTag(TracingHelper.TAG_AUTHENTICATED.getKey(), authenticatedDevice != null)
+                    .start();
+
+            getUploadContext(endpointName, tenant, deviceId, authenticatedDevice, currentSpan.context())
+                    .compose(uploadContext -> {
+
+                final MessageSender sender = uploadContext.getSender();
+                final ResourceIdentifier target = ResourceIdentifier.from(endpointName, tenant, deviceId);
+                if (qos != null) {
+                    currentSpan.setTag(Constants.HEADER_QOS_LEVEL, qosHeaderValue);
+                }
+                @SuppressWarnings("rawtypes")
+                final List<Future> outcomes = new ArrayList<>(records.size());
+                for (final Object record : records) {
+                    final Message downstreamMessage = newMessage(
+                            target,
+                            sender.isRegistrationAssertionRequired(),
+                            ctx.request().uri(),
+                            HttpUtils.CONTENT_TYPE_JSON,
+                            Json.encodeToBuffer(record),
+                            uploadContext.getRegistrationAssertion(),
+                            null);
+                    customizeDownstreamMessage(downstreamMessage, ctx);
+                    final Future<ProtonDelivery> delivery = qos == null
+                            ? sender.send(downstreamMessage, currentSpan.context())
+                            : sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context());
+                    outcomes.add(delivery
+                            .map(accepted -> {
+                                metrics.incrementProcessedHttpMessages(endpointName, tenant);
+                                return new JsonObject().put(FIELD_BATCH_STATUS, HttpURLConnection.HTTP_ACCEPTED);
+                            })
+                            .otherwise(t -> {
+                                metrics.incrementUndeliverableHttpMessages(endpointName, tenant);
+                                return getBatchRecordFailure(t);
+                            }));
+                }
+                // the outcome futures never fail
+                return CompositeFuture.all(outcomes);
+
+            }).map(outcomes -> {
+
+                final JsonArray result = new JsonArray(outcomes.list());
+                if (!ctx.response().closed()) {
+                    ctx.response().setStatusCode(HttpURLConnection.HTTP_OK);
+                    HttpUtils.setResponseBody(ctx.response(), result.toBuffer(), HttpUtils.CONTENT_TYPE_JSON_UTF8);
+                    ctx.response().end();
+                }
+                LOG.trace("processed batch of {} [{}] messages from device [tenantId: {}, deviceId: {}]",
+                        records.size(), endpointName, tenant, deviceId);
+                currentSpan.finish();
+                return (Void) null;
+
+            }).otherwise(t -> {
+
+                LOG.debug("cannot process batch of [{}] messages from device [tenantId: {}, deviceId: {}]",
+                        endpointName, tenant, deviceId, t);
+                if (ClientErrorException.class.isInstance(t)) {
+                    ctx.fail(t);
+                } else {
+                    HttpUtils.serviceUnavailable(ctx, 2, "temporarily unavailable");
+                }
+                TracingHelper.logError(currentSpan, t);
+                currentSpan.finish();
+                return null;
+            });
+        }
+    }
+
+    private static JsonObject getBatchRecordFailure(final Throwable t) {
+
+        final JsonObject result = new JsonObject();
+        if (t instanceof ServiceInvocationException) {
+            result.put(FIELD_BATCH_STATUS, ((ServiceInvocationException) t).getErrorCode());
+        } else {
+            result.put(FIELD_BATCH_STATUS, HttpURLConnection.HTTP_UNAVAILABLE);
+        }
+        if (t.getMessage() != null) {
+            result.put(FIELD_BATCH_ERROR, t.getMessage());
+        }
+        return result;
+    }
+
     private void doUploadMessage(final RoutingContext ctx, final String tenant, final String deviceId,
-            final Buffer payload, final String contentType, final Future<MessageSender> senderTracker, final String endpointName) {
+            final Buffer payload, final String contentType, final String endpointName) {
 
         if (!isPayloadOfIndicatedType(payload, contentType)) {
             HttpUtils.badRequest(ctx, String.format("content type [%s] does not match payload", contentType));
@@ -558,6 +732,8 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
                 HttpUtils.badRequest(ctx, "unsupported QoS-Level header value");
             } else {
 
+                final long startTime = System.nanoTime();
+                final int qosLevel = qos == null ? 0 : qos;
                 final Device authenticatedDevice = getAuthenticatedDevice(ctx);
                 final Span currentSpan = tracer.buildSpan("upload " + endpointName)
                         .asChildOf(TracingHandler.serverSpanContext(ctx))
@@ -570,15 +746,16 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
                         .start();
 
                 final Future<Void> responseReady = Future.future();
-                final Future<JsonObject> tokenTracker = getRegistrationAssertion(
+                final Future<UploadContext> uploadContextTracker = getUploadContext(
+                        endpointName,
                         tenant,
                         deviceId,
                         authenticatedDevice,
                         currentSpan.context());
-                final Future<TenantObject> tenantConfigTracker = getTenantConfiguration(tenant, currentSpan.context());
-                final Future<Integer> ttdTracker = tenantConfigTracker.compose(tenantObj -> {
+                final Future<Integer> ttdTracker = uploadContextTracker.compose(uploadContext -> {
+                    metrics.updateUploadTimer(endpointName, tenant, qosLevel, Stage.LOOKUP, System.nanoTime() - startTime);
                     final Integer ttdParam = HttpUtils.getTimeTilDisconnect(ctx);
-                    return getTimeUntilDisconnect(tenantObj, ttdParam).map(effectiveTtd -> {
+                    return getTimeUntilDisconnect(uploadContext.getTenant(), ttdParam).map(effectiveTtd -> {
                         if (effectiveTtd != null) {
                             currentSpan.setTag(MessageHelper.APP_PROPERTY_DEVICE_TTD, effectiveTtd);
                         }
@@ -588,33 +765,36 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
                 final Future<MessageConsumer> commandConsumerTracker = ttdTracker
                         .compose(ttd -> createCommandConsumer(ttd, tenant, deviceId, ctx, responseReady, currentSpan));
 
-                CompositeFuture.all(tokenTracker, senderTracker, commandConsumerTracker).compose(ok -> {
-
-                    if (tenantConfigTracker.result().isAdapterEnabled(getTypeName())) {
-                        final MessageSender sender = senderTracker.result();
-                        final Message downstreamMessage = newMessage(
-                                ResourceIdentifier.from(endpointName, tenant, deviceId),
-                                sender.isRegistrationAssertionRequired(),
-                                ctx.request().uri(),
-                                contentType,
-                                payload,
-                                tokenTracker.result(),
-                                ttdTracker.result());
-                        customizeDownstreamMessage(downstreamMessage, ctx);
-
-                        addConnectionCloseHandler(ctx, commandConsumerTracker.result(), tenant, deviceId);
-
-                        if (qos == null) {
-                            return CompositeFuture.all(sender.send(downstreamMessage, currentSpan.context()), responseReady);
-                        } else {
-                            currentSpan.setTag(Constants.HEADER_QOS_LEVEL, qosHeaderValue);
-                            return CompositeFuture.all(sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context()), responseReady);
-                        }
+                commandConsumerTracker.compose(commandConsumer -> {
+
+                    final UploadContext uploadContext = uploadContextTracker.result();
+                    final MessageSender sender = uploadContext.getSender();
+                    final Message downstreamMessage = newMessage(
+                            ResourceIdentifier.from(endpointName, tenant, deviceId),
+                            sender.isRegistrationAssertionRequired(),
+                            ctx.request().uri(),
+                            contentType,
+                            payload,
+                            uploadContext.getRegistrationAssertion(),
+                            ttdTracker.result());
+                    customizeDownstreamMessage(downstreamMessage, ctx);
+
+                    addConnectionCloseHandler(ctx, commandConsumer, tenant, deviceId);
+
+                    final long forwardStartTime = System.nanoTime();
+                    final Future<ProtonDelivery> deliveryTracker;
+                    if (qos == null) {
+                        deliveryTracker = sender.send(downstreamMessage, currentSpan.context());
                     } else {
-                        // this adapter is not enabled for the tenant
-                        return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
-                                "adapter is not enabled for tenant"));
+                        currentSpan.setTag(Constants.HEADER_QOS_LEVEL, qosHeaderValue);
+                        deliveryTracker = sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context());
                     }
+                    return CompositeFuture.all(deliveryTracker.map(delivery -> {
+                        final long now = System.nanoTime();
+                        metrics.updateUploadTimer(endpointName, tenant, qosLevel, Stage.FORWARD, now - forwardStartTime);
+                        metrics.updateUploadTimer(endpointName, tenant, qosLevel, Stage.TOTAL, now - startTime);
+                        return delivery;
+                    }), responseReady);
                 }).compose(delivery -> {
                     if (!ctx.response().closed()) {
                         final Command command = Command.get(ctx);
@@ -13,7 +13,11 @@
 
 package org.eclipse.hono.adapter.http;
 
+import org.eclipse.hono.service.metric.CounterHandle;
+import org.eclipse.hono.service.metric.MetricHandles;
 import org.eclipse.hono.service.metric.Metrics;
+import org.eclipse.hono.service.metric.UploadTimers;
+import org.eclipse.hono.service.metric.UploadTimers.Stage;
 import org.springframework.stereotype.Component;
 
 /**
@@ -24,17 +28,29 @@ public class HttpAdapterMetrics extends Metrics {
 
     private static final String SERVICE_PREFIX = "hono.http";
 
+    private final MetricHandles<CounterHandle> processedMessages = newCounterHandles(
+            (resourceId, tenantId) -> METER_PREFIX + getPrefix() + MESSAGES + mergeAsMetric(resourceId, tenantId) + PROCESSED);
+    private final MetricHandles<CounterHandle> undeliverableMessages = newCounterHandles(
+            (resourceId, tenantId) -> getPrefix() + MESSAGES + mergeAsMetric(resourceId, tenantId) + UNDELIVERABLE);
+    private final MetricHandles<UploadTimers> uploadTimers = newUploadTimers(
+            (resourceId, tenantId) -> TIMER_PREFIX + getPrefix() + MESSAGES + mergeAsMetric(resourceId, tenantId));
+
     @Override
     protected String getPrefix() {
         return SERVICE_PREFIX;
     }
 
     void incrementProcessedHttpMessages(final String resourceId, final String tenantId) {
-        counterService.increment(METER_PREFIX + getPrefix() + MESSAGES + mergeAsMetric(resourceId, tenantId) + PROCESSED);
+        processedMessages.get(resourceId, tenantId).increment();
     }
 
     void incrementUndeliverableHttpMessages(final String resourceId, final String tenantId) {
-        counterService.increment(getPrefix() + MESSAGES + mergeAsMetric(resourceId, tenantId) + UNDELIVERABLE);
+        undeliverableMessages.get(resourceId, tenantId).increment();
+    }
+
+    void updateUploadTimer(final String resourceId, final String tenantId, final int qos, final Stage stage,
+            final long durationNanos) {
+        uploadTimers.get(resourceId, tenantId).get(stage, qos).update(durationNanos);
     }
 
 }
@@ -28,8 +28,27 @@ public class HttpProtocolAdapterProperties extends ProtocolAdapterProperties {
      * The default name of the realm that devices need to authenticate to.
      */
     public static final String DEFAULT_REALM = "Hono";
+    /**
+     * The default maximum number of devices authenticated by means of username/password
+     * credentials that are kept in the cache.
+     */
+    public static final long DEFAULT_AUTH_CACHE_MAX_SIZE = 10000L;
+    /**
+     * The default number of seconds after which a device authenticated by means of
+     * username/password credentials needs to be authenticated again.
+     */
+    public static final long DEFAULT_AUTH_CACHE_TIMEOUT = 60L;
+    /**
+     * The default maximum number of records that a device may upload in a single
+     * batch request.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 0;
+
     private String realm = DEFAULT_REALM;
     private String corsAllowedOrigin = "*";
+    private long authCacheMaxSize = DEFAULT_AUTH_CACHE_MAX_SIZE;
+    private long authCacheTimeout = DEFAULT_AUTH_CACHE_TIMEOUT;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
 
     /**
      * Gets the name of the realm that unauthenticated devices are prompted to provide credentials for.
@@ -90,4 +109,98 @@ public class HttpProtocolAdapterProperties extends ProtocolAdapterProperties {
         this.corsAllowedOrigin = Objects.requireNonNull(corsAllowedOrigin);
     }
 
+    /**
+     * Gets the maximum number of devices authenticated by means of username/password
+     * credentials that are kept in the cache.
+     * <p>
+     * Devices contained in the cache are authenticated without retrieving their
+     * credentials from the Credentials service again, as long as they present
+     * the same username and password.
+     * <p>
+     * The default value is {@link #DEFAULT_AUTH_CACHE_MAX_SIZE}.
+     *
+     * @return The maximum number of cached devices. A value of 0 indicates that
+     *         authenticated devices are not cached at all.
+     */
+    public final long getAuthCacheMaxSize() {
+        return authCacheMaxSize;
+    }
+
+    /**
+     * Sets the maximum number of devices authenticated by means of username/password
+     * credentials that are kept in the cache.
+     * <p>
+     * The default value is {@link #DEFAULT_AUTH_CACHE_MAX_SIZE}.
+     *
+     * @param maxSize The maximum number of cached devices. Setting this property
+     *                to 0 disables caching of authenticated devices.
+     * @throws IllegalArgumentException if max size is &lt; 0.
+     */
+    public final void setAuthCacheMaxSize(final long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("max size must be >= 0");
+        }
+        this.authCacheMaxSize = maxSize;
+    }
+
+    /**
+     * Gets the number of seconds after which a device authenticated by means of
+     * username/password credentials needs to be authenticated again.
+     * <p>
+     * The default value is {@link #DEFAULT_AUTH_CACHE_TIMEOUT}.
+     *
+     * @return The number of seconds.
+     */
+    public final long getAuthCacheTimeout() {
+        return authCacheTimeout;
+    }
+
+    /**
+     * Sets the number of seconds after which a device authenticated by means of
+     * username/password credentials needs to be authenticated again.
+     * <p>
+     * The default value is {@link #DEFAULT_AUTH_CACHE_TIMEOUT}.
+     *
+     * @param timeout The number of seconds.
+     * @throws IllegalArgumentException if timeout is &lt;= 0.
+     */
+    public final void setAuthCacheTimeout(final long timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be > 0");
+        }
+        this.authCacheTimeout = timeout;
+    }
+
+    /**
+     * Gets the maximum number of records that a device may upload in a single
+     * batch request.
+     * <p>
+     * Note that the size of a batch request's body is also limited by the
+     * <em>maxPayloadSize</em>.
+     * <p>
+     * The default value is {@link #DEFAULT_MAX_BATCH_SIZE}.
+     *
+     * @return The maximum number of records. A value of 0 indicates that
+     *         the batch upload endpoints are disabled.
+     */
+    public final int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of records that a device may upload in a single
+     * batch request.
+     * <p>
+     * The default value is {@link #DEFAULT_MAX_BATCH_SIZE}.
+     *
+     * @param maxBatchSize The maximum number of records. Setting this property
+     *                     to 0 disables the batch upload endpoints.
+     * @throws IllegalArgumentException if max batch size is &lt; 0.
+     */
+    public final void setMaxBatchSize(final int maxBatchSize) {
+        if (maxBatchSize < 0) {
+            throw new IllegalArgumentException("max batch size must be >= 0");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
 }
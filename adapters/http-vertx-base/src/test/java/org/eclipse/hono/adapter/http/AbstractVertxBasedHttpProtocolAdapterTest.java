@@ -26,10 +26,12 @@ import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.HonoClient;
 import org.eclipse.hono.client.MessageSender;
 import org.eclipse.hono.client.RegistrationClient;
+import org.eclipse.hono.client.ServerErrorException;
 import org.eclipse.hono.client.TenantClient;
 import org.eclipse.hono.service.command.Command;
 import org.eclipse.hono.service.command.CommandConnection;
 import org.eclipse.hono.service.command.CommandConsumer;
+import org.eclipse.hono.service.http.HttpUtils;
 import org.eclipse.hono.util.Constants;
 import org.eclipse.hono.util.MessageHelper;
 import org.eclipse.hono.util.RegistrationConstants;
@@ -55,10 +57,13 @@ import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.MIMEHeader;
+import io.vertx.ext.web.ParsedHeaderValues;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.proton.ProtonDelivery;
@@ -370,6 +375,88 @@ public class AbstractVertxBasedHttpProtocolAdapterTest {
         assertThat(MessageHelper.getTimeUntilDisconnect(messageCaptor.getValue()), is(20));
     }
 
+    /**
+     * Verifies that the adapter forwards each record of a batch as a separate message
+     * and responds with the outcome of forwarding each record.
+     */
+    @Test
+    public void testUploadTelemetryBatchReturnsOutcomePerRecord() {
+
+        // GIVEN an adapter with a downstream telemetry consumer attached
+        // which has credit for a single message only
+        config.setMaxBatchSize(10);
+        final MessageSender sender = mock(MessageSender.class);
+        when(sender.send(any(Message.class), (SpanContext) any())).thenReturn(
+                Future.succeededFuture(mock(ProtonDelivery.class)),
+                Future.failedFuture(new ServerErrorException(HttpURLConnection.HTTP_UNAVAILABLE, "no credit available")));
+        when(messagingClient.getOrCreateTelemetrySender(anyString())).thenReturn(Future.succeededFuture(sender));
+
+        final HttpServer server = getHttpServer(false);
+        final AbstractVertxBasedHttpProtocolAdapter<HttpProtocolAdapterProperties> adapter = getAdapter(server, null);
+
+        // WHEN a device uploads a batch containing two records
+        final JsonArray records = new JsonArray()
+                .add(new JsonObject().put("temp", 5))
+                .add(new JsonObject().put("temp", 6));
+        final HttpServerResponse response = mock(HttpServerResponse.class);
+        final RoutingContext ctx = newBatchRoutingContext(records, response);
+
+        adapter.uploadTelemetryBatch(ctx, "tenant", "device");
+
+        // THEN the device's registration status is asserted only once
+        verify(regClient).assertRegistration(eq("device"), any(), (SpanContext) any());
+        // and each record is forwarded as a separate message
+        verify(sender, times(2)).send(any(Message.class), (SpanContext) any());
+        // and the device receives the outcome for each record
+        verify(response).setStatusCode(HttpURLConnection.HTTP_OK);
+        final ArgumentCaptor<Buffer> body = ArgumentCaptor.forClass(Buffer.class);
+        verify(response).write(body.capture());
+        final JsonArray outcomes = body.getValue().toJsonArray();
+        assertThat(outcomes.getJsonObject(0).getInteger("status"), is(HttpURLConnection.HTTP_ACCEPTED));
+        assertThat(outcomes.getJsonObject(1).getInteger("status"), is(HttpURLConnection.HTTP_UNAVAILABLE));
+        verify(response).end();
+    }
+
+    /**
+     * Verifies that the adapter rejects a batch containing more than the
+     * configured maximum number of records.
+     */
+    @Test
+    public void testUploadTelemetryBatchFailsForTooManyRecords() {
+
+        // GIVEN an adapter that accepts batches of a single record only
+        config.setMaxBatchSize(1);
+        final MessageSender sender = givenATelemetrySenderForOutcome(Future.succeededFuture(mock(ProtonDelivery.class)));
+
+        final HttpServer server = getHttpServer(false);
+        final AbstractVertxBasedHttpProtocolAdapter<HttpProtocolAdapterProperties> adapter = getAdapter(server, null);
+
+        // WHEN a device uploads a batch containing two records
+        final JsonArray records = new JsonArray()
+                .add(new JsonObject().put("temp", 5))
+                .add(new JsonObject().put("temp", 6));
+        final RoutingContext ctx = newBatchRoutingContext(records, mock(HttpServerResponse.class));
+
+        adapter.uploadTelemetryBatch(ctx, "tenant", "device");
+
+        // THEN the device gets a 413
+        assertContextFailedWithClientError(ctx, HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
+        // and no records are forwarded
+        verify(sender, never()).send(any(Message.class), (SpanContext) any());
+    }
+
+    private RoutingContext newBatchRoutingContext(final JsonArray records, final HttpServerResponse response) {
+
+        final RoutingContext ctx = newRoutingContext(records.toBuffer(), response);
+        when(ctx.getBodyAsJsonArray()).thenReturn(records);
+        final MIMEHeader contentType = mock(MIMEHeader.class);
+        when(contentType.value()).thenReturn(HttpUtils.CONTENT_TYPE_JSON);
+        final ParsedHeaderValues headers = mock(ParsedHeaderValues.class);
+        when(headers.contentType()).thenReturn(contentType);
+        when(ctx.parsedHeaders()).thenReturn(headers);
+        return ctx;
+    }
+
     private RoutingContext newRoutingContext(final Buffer payload) {
         return newRoutingContext(payload, mock(HttpServerResponse.class));
     }
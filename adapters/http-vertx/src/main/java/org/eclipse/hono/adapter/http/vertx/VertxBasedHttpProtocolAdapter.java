@@ -14,6 +14,7 @@
 package org.eclipse.hono.adapter.http.vertx;
 
 import java.net.HttpURLConnection;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -24,6 +25,7 @@ import org.eclipse.hono.adapter.http.X509AuthHandler;
 import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.config.AbstractConfig;
 import org.eclipse.hono.service.auth.ValidityBasedTrustOptions;
+import org.eclipse.hono.service.auth.device.CachingUsernamePasswordAuthProvider;
 import org.eclipse.hono.service.auth.device.Device;
 import org.eclipse.hono.service.auth.device.HonoChainAuthHandler;
 import org.eclipse.hono.service.auth.device.HonoClientBasedAuthProvider;
@@ -31,6 +33,8 @@ import org.eclipse.hono.service.auth.device.X509AuthProvider;
 import org.eclipse.hono.service.auth.device.UsernamePasswordAuthProvider;
 import org.eclipse.hono.service.http.HttpUtils;
 import org.eclipse.hono.util.Constants;
+import org.eclipse.hono.util.EventConstants;
+import org.eclipse.hono.util.TelemetryConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,7 +66,8 @@ public final class VertxBasedHttpProtocolAdapter extends AbstractVertxBasedHttpP
      * a username and password.
      * <p>
      * If not set explicitly using this method, a {@code UsernamePasswordAuthProvider}
-     * will be created during startup.
+     * will be created during startup. Unless disabled by configuration, that provider
+     * is wrapped in a {@code CachingUsernamePasswordAuthProvider}.
      * 
      * @param provider The provider to use.
      * @throws NullPointerException if provider is {@code null}.
@@ -130,11 +135,11 @@ public final class VertxBasedHttpProtocolAdapter extends AbstractVertxBasedHttpP
                     getTenantServiceClient(),
                     tracer));
             authHandler.append(new HonoBasicAuthHandler(
-                    Optional.ofNullable(usernamePasswordAuthProvider).orElse(
-                            new UsernamePasswordAuthProvider(getCredentialsServiceClient(), getConfig())),
+                    Optional.ofNullable(usernamePasswordAuthProvider).orElseGet(this::newUsernamePasswordAuthProvider),
                     getConfig().getRealm()));
             addTelemetryApiRoutes(router, authHandler);
             addEventApiRoutes(router, authHandler);
+            addBatchRoutes(router, authHandler);
             addCommandResponseRoutes(router, authHandler);
         } else {
 
@@ -142,10 +147,26 @@ public final class VertxBasedHttpProtocolAdapter extends AbstractVertxBasedHttpP
             LOG.warn("any device may publish data on behalf of all other devices");
             addTelemetryApiRoutes(router, null);
             addEventApiRoutes(router, null);
+            addBatchRoutes(router, null);
             addCommandResponseRoutes(router, null);
         }
     }
 
+    private HonoClientBasedAuthProvider newUsernamePasswordAuthProvider() {
+
+        final UsernamePasswordAuthProvider provider = new UsernamePasswordAuthProvider(getCredentialsServiceClient(), getConfig());
+        if (getConfig().getAuthCacheMaxSize() > 0) {
+            LOG.info("caching authenticated devices [max size: {}, timeout: {}s]",
+                    getConfig().getAuthCacheMaxSize(), getConfig().getAuthCacheTimeout());
+            return new CachingUsernamePasswordAuthProvider(
+                    provider,
+                    Duration.ofSeconds(getConfig().getAuthCacheTimeout()),
+                    getConfig().getAuthCacheMaxSize());
+        } else {
+            return provider;
+        }
+    }
+
     private void addTelemetryApiRoutes(final Router router, final Handler<RoutingContext> authHandler) {
 
         // support CORS headers for PUTing telemetry
@@ -216,6 +237,53 @@ public final class VertxBasedHttpProtocolAdapter extends AbstractVertxBasedHttpP
                 .handler(ctx -> uploadEventMessage(ctx, getTenantParam(ctx), getDeviceIdParam(ctx)));
     }
 
+    private void addBatchRoutes(final Router router, final Handler<RoutingContext> authHandler) {
+
+        if (getConfig().getMaxBatchSize() <= 0) {
+            return;
+        }
+        LOG.info("accepting batches of up to {} messages", getConfig().getMaxBatchSize());
+
+        for (final String endpoint : new String[] { TelemetryConstants.TELEMETRY_ENDPOINT, EventConstants.EVENT_ENDPOINT }) {
+
+            final String batchPath = String.format("/%s/batch", endpoint);
+            final String batchPathWithParams = String.format("%s/:%s/:%s", batchPath, PARAM_TENANT, PARAM_DEVICE_ID);
+
+            if (getConfig().isAuthenticationRequired()) {
+
+                // support CORS headers for POSTing batches
+                router.route(batchPath).handler(CorsHandler.create(getConfig().getCorsAllowedOrigin())
+                        .allowedMethod(HttpMethod.POST)
+                        .allowedHeader(HttpHeaders.AUTHORIZATION.toString())
+                        .allowedHeader(HttpHeaders.CONTENT_TYPE.toString()));
+
+                // require auth for POSTing batches
+                router.route(HttpMethod.POST, batchPath).handler(authHandler);
+
+                // route for posting batches using tenant and device ID determined as part of
+                // device authentication
+                router.route(HttpMethod.POST, batchPath).handler(ctx -> handlePostBatch(ctx, endpoint));
+
+                // authentication for PUTing batches is required by the telemetry/event routes already
+                // assert that authenticated device's tenant matches tenant from path variables
+                router.route(HttpMethod.PUT, batchPathWithParams).handler(this::assertTenant);
+            }
+
+            // route for uploading batches
+            router.route(HttpMethod.PUT, batchPathWithParams)
+                    .handler(ctx -> uploadBatch(ctx, endpoint, getTenantParam(ctx), getDeviceIdParam(ctx)));
+        }
+    }
+
+    private void uploadBatch(final RoutingContext ctx, final String endpoint, final String tenant, final String deviceId) {
+
+        if (TelemetryConstants.TELEMETRY_ENDPOINT.equals(endpoint)) {
+            uploadTelemetryBatch(ctx, tenant, deviceId);
+        } else {
+            uploadEventBatch(ctx, tenant, deviceId);
+        }
+    }
+
     private void addCommandResponseRoutes(final Router router, final Handler<RoutingContext> authHandler) {
 
         // support CORS headers for PUTing command response messages
@@ -299,6 +367,16 @@ public final class VertxBasedHttpProtocolAdapter extends AbstractVertxBasedHttpP
         }
     }
 
+    void handlePostBatch(final RoutingContext ctx, final String endpoint) {
+
+        if (Device.class.isInstance(ctx.user())) {
+            final Device device = (Device) ctx.user();
+            uploadBatch(ctx, endpoint, device.getTenantId(), device.getDeviceId());
+        } else {
+            handle401(ctx);
+        }
+    }
+
     void handlePostCommandResponse(final RoutingContext ctx) {
 
         if (Device.class.isInstance(ctx.user())) {
@@ -28,6 +28,7 @@ import org.eclipse.hono.service.auth.device.DeviceCredentials;
 import org.eclipse.hono.service.auth.device.HonoClientBasedAuthProvider;
 import org.eclipse.hono.service.auth.device.UsernamePasswordAuthProvider;
 import org.eclipse.hono.service.auth.device.UsernamePasswordCredentials;
+import org.eclipse.hono.service.metric.UploadTimers.Stage;
 import org.eclipse.hono.tracing.TracingHelper;
 import org.eclipse.hono.util.Constants;
 import org.eclipse.hono.util.EndpointType;
@@ -36,7 +37,6 @@ import org.eclipse.hono.util.ExecutionContext;
 import org.eclipse.hono.util.MessageHelper;
 import org.eclipse.hono.util.ResourceIdentifier;
 import org.eclipse.hono.util.TelemetryConstants;
-import org.eclipse.hono.util.TenantObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -49,12 +49,12 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.core.json.JsonObject;
 import io.vertx.mqtt.MqttAuth;
 import io.vertx.mqtt.MqttConnectionException;
 import io.vertx.mqtt.MqttEndpoint;
 import io.vertx.mqtt.MqttServer;
 import io.vertx.mqtt.MqttServerOptions;
+import io.vertx.proton.ProtonDelivery;
 
 /**
  * A base class for implementing Vert.x based Hono protocol adapters for publishing events &amp; telemetry data using
@@ -83,6 +83,15 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
     private MqttServer server;
     private MqttServer insecureServer;
     private HonoClientBasedAuthProvider usernamePasswordAuthProvider;
+    private CreditWaitQueue creditWaitQueue;
+
+    private Future<Void> awaitCredit(final MessageSender sender) {
+        if (creditWaitQueue == null) {
+            return Future.succeededFuture();
+        } else {
+            return creditWaitQueue.awaitCredit(sender);
+        }
+    }
 
     /**
      * Sets the provider to use for authenticating devices based on a username and password.
@@ -231,6 +240,12 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                     // which simply discards all reported metrics
                     metrics = new MqttAdapterMetrics();
                 }
+                if (getConfig().getMaxMessagesAwaitingCredit() > 0) {
+                    LOG.info("holding back up to {} messages per downstream link while waiting up to {}ms for credit",
+                            getConfig().getMaxMessagesAwaitingCredit(), getConfig().getCreditWaitTimeout());
+                    creditWaitQueue = new CreditWaitQueue(vertx, getConfig().getMaxMessagesAwaitingCredit(),
+                            getConfig().getCreditWaitTimeout());
+                }
                 return CompositeFuture.all(bindSecureMqttServer(), bindInsecureMqttServer());
             }).compose(t -> {
                 if (usernamePasswordAuthProvider == null) {
@@ -575,7 +590,6 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                 Objects.requireNonNull(tenant),
                 Objects.requireNonNull(deviceId),
                 Objects.requireNonNull(payload),
-                getTelemetrySender(tenant),
                 TelemetryConstants.TELEMETRY_ENDPOINT);
     }
 
@@ -604,18 +618,19 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                 Objects.requireNonNull(tenant),
                 Objects.requireNonNull(deviceId),
                 Objects.requireNonNull(payload),
-                getEventSender(tenant),
                 EventConstants.EVENT_ENDPOINT);
     }
 
     private Future<Void> uploadMessage(final MqttContext ctx, final String tenant, final String deviceId,
-            final Buffer payload, final Future<MessageSender> senderTracker, final String endpointName) {
+            final Buffer payload, final String endpointName) {
 
         if (!isPayloadOfIndicatedType(payload, ctx.contentType())) {
             return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST,
                     String.format("Content-Type %s does not match payload", ctx.contentType())));
         } else {
 
+            final long startTime = System.nanoTime();
+            final int qos = ctx.message().qosLevel() == MqttQoS.AT_LEAST_ONCE ? MqttQoS.AT_LEAST_ONCE.value() : MqttQoS.AT_MOST_ONCE.value();
             final Span currentSpan = tracer.buildSpan("upload " + endpointName)
                     .asChildOf(getCurrentSpan(ctx))
                     .ignoreActiveSpan()
@@ -626,35 +641,36 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                     .withTag(TracingHelper.TAG_AUTHENTICATED.getKey(), ctx.authenticatedDevice() != null)
                     .start();
 
-            final Future<JsonObject> tokenTracker = getRegistrationAssertion(tenant, deviceId,
-                    ctx.authenticatedDevice(), currentSpan.context());
-            final Future<TenantObject> tenantConfigTracker = getTenantConfiguration(tenant, currentSpan.context());
-
-            return CompositeFuture.all(tokenTracker, tenantConfigTracker, senderTracker).compose(ok -> {
-
-                if (tenantConfigTracker.result().isAdapterEnabled(getTypeName())) {
-
-                    final MessageSender sender = senderTracker.result();
-                    final Message downstreamMessage = newMessage(
-                            ResourceIdentifier.from(endpointName, tenant, deviceId),
-                            sender.isRegistrationAssertionRequired(),
-                            ctx.message().topicName(),
-                            ctx.contentType(),
-                            payload,
-                            tokenTracker.result(),
-                            null);
-                    customizeDownstreamMessage(downstreamMessage, ctx);
-
+            return getUploadContext(endpointName, tenant, deviceId, ctx.authenticatedDevice(), currentSpan.context())
+                    .compose(uploadContext -> {
+
+                metrics.updateUploadTimer(endpointName, tenant, qos, Stage.LOOKUP, System.nanoTime() - startTime);
+                final MessageSender sender = uploadContext.getSender();
+                final Message downstreamMessage = newMessage(
+                        ResourceIdentifier.from(endpointName, tenant, deviceId),
+                        sender.isRegistrationAssertionRequired(),
+                        ctx.message().topicName(),
+                        ctx.contentType(),
+                        payload,
+                        uploadContext.getRegistrationAssertion(),
+                        null);
+                customizeDownstreamMessage(downstreamMessage, ctx);
+
+                return awaitCredit(sender).compose(creditAvailable -> {
+                    final long forwardStartTime = System.nanoTime();
+                    final Future<ProtonDelivery> deliveryTracker;
                     if (ctx.message().qosLevel() == MqttQoS.AT_LEAST_ONCE) {
-                        return sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context());
+                        deliveryTracker = sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context());
                     } else {
-                        return sender.send(downstreamMessage, currentSpan.context());
+                        deliveryTracker = sender.send(downstreamMessage, currentSpan.context());
                     }
-                } else {
-                    // this adapter is not enabled for the tenant
-                    return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
-                            "adapter is not enabled for tenant"));
-                }
+                    return deliveryTracker.map(delivery -> {
+                        final long now = System.nanoTime();
+                        metrics.updateUploadTimer(endpointName, tenant, qos, Stage.FORWARD, now - forwardStartTime);
+                        metrics.updateUploadTimer(endpointName, tenant, qos, Stage.TOTAL, now - startTime);
+                        return delivery;
+                    });
+                });
 
             }).compose(delivery -> {
 
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.mqtt;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.hono.client.MessageSender;
+import org.eclipse.hono.client.ServerErrorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+
+/**
+ * A bounded queue of messages waiting for downstream senders to be replenished with credit.
+ * <p>
+ * Instead of failing a message right away if the downstream sender has no credit left,
+ * the adapter can wait for the sender's <em>send queue drain handler</em> being invoked
+ * before forwarding the message. The number of messages waiting per sender is limited,
+ * and each message waits for a limited amount of time only.
+ * <p>
+ * All methods of this class are expected to be invoked on the adapter's vert.x
+ * event loop thread.
+ */
+final class CreditWaitQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CreditWaitQueue.class);
+
+    private final Map<MessageSender, Deque<Future<Void>>> waitingMessages = new HashMap<>();
+    private final Vertx vertx;
+    private final int maxMessagesPerSender;
+    private final long timeoutMillis;
+
+    /**
+     * Creates a new queue.
+     *
+     * @param vertx The vert.x instance to use for timing out waiting messages.
+     * @param maxMessagesPerSender The maximum number of messages that may wait for
+     *                             credit for a single sender.
+     * @param timeoutMillis The number of milliseconds after which a waiting message
+     *                      is failed.
+     * @throws NullPointerException if vertx is {@code null}.
+     * @throws IllegalArgumentException if max messages or timeout is &lt;= 0.
+     */
+    CreditWaitQueue(final Vertx vertx, final int maxMessagesPerSender, final long timeoutMillis) {
+
+        this.vertx = Objects.requireNonNull(vertx);
+        if (maxMessagesPerSender <= 0) {
+            throw new IllegalArgumentException("max messages must be > 0");
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeout must be > 0");
+        }
+        this.maxMessagesPerSender = maxMessagesPerSender;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Waits for a sender to have credit available for sending a message.
+     * <p>
+     * Messages are granted credit in the order in which this method has been
+     * invoked for them.
+     *
+     * @param sender The sender to send the message with.
+     * @return A future indicating the outcome. The future will be completed
+     *         once the sender has credit for sending the message. The future
+     *         will be failed with a {@link ServerErrorException} if the maximum
+     *         number of messages are already waiting for the sender or if the
+     *         sender has not been replenished with credit in time.
+     * @throws NullPointerException if sender is {@code null}.
+     */
+    Future<Void> awaitCredit(final MessageSender sender) {
+
+        Objects.requireNonNull(sender);
+
+        final Deque<Future<Void>> queue = waitingMessages.get(sender);
+        if (queue == null && !sender.sendQueueFull()) {
+            return Future.succeededFuture();
+        } else if (queue != null && queue.size() >= maxMessagesPerSender) {
+            return Future.failedFuture(new ServerErrorException(HttpURLConnection.HTTP_UNAVAILABLE,
+                    "no credit available"));
+        } else {
+            final Future<Void> result = Future.future();
+            if (queue == null) {
+                final Deque<Future<Void>> newQueue = new ArrayDeque<>();
+                newQueue.add(result);
+                waitingMessages.put(sender, newQueue);
+                LOG.debug("downstream sender has no credit, holding back messages");
+                sender.sendQueueDrainHandler(replenished -> drain(sender));
+            } else {
+                queue.add(result);
+            }
+            vertx.setTimer(timeoutMillis, tid -> {
+                final Deque<Future<Void>> currentQueue = waitingMessages.get(sender);
+                if (currentQueue != null && currentQueue.remove(result)) {
+                    if (currentQueue.isEmpty() && !sender.isOpen()) {
+                        // the drain handler will never be invoked
+                        waitingMessages.remove(sender);
+                    }
+                    result.tryFail(new ServerErrorException(HttpURLConnection.HTTP_UNAVAILABLE,
+                            "no credit available"));
+                }
+            });
+            return result;
+        }
+    }
+
+    private void drain(final MessageSender sender) {
+
+        final Deque<Future<Void>> queue = waitingMessages.get(sender);
+        if (queue == null) {
+            return;
+        }
+        LOG.debug("downstream sender has been replenished with credit [credit: {}, waiting messages: {}]",
+                sender.getCredit(), queue.size());
+        while (!queue.isEmpty() && !sender.sendQueueFull()) {
+            // completing the future sends the message
+            queue.poll().tryComplete();
+        }
+        if (queue.isEmpty()) {
+            waitingMessages.remove(sender);
+        } else {
+            sender.sendQueueDrainHandler(replenished -> drain(sender));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.mqtt;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.net.HttpURLConnection;
+
+import org.eclipse.hono.client.MessageSender;
+import org.eclipse.hono.client.ServerErrorException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+
+/**
+ * Tests verifying behavior of {@link CreditWaitQueue}.
+ *
+ */
+public class CreditWaitQueueTest {
+
+    private Vertx vertx;
+    private MessageSender sender;
+    private CreditWaitQueue queue;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+
+        vertx = mock(Vertx.class);
+        sender = mock(MessageSender.class);
+        when(sender.isOpen()).thenReturn(Boolean.TRUE);
+        queue = new CreditWaitQueue(vertx, 2, 1000);
+    }
+
+    /**
+     * Verifies that a message is not held back if the sender has credit.
+     */
+    @Test
+    public void testAwaitCreditSucceedsIfSenderHasCredit() {
+
+        when(sender.sendQueueFull()).thenReturn(Boolean.FALSE);
+
+        assertTrue(queue.awaitCredit(sender).succeeded());
+        verify(sender, never()).sendQueueDrainHandler(any(Handler.class));
+    }
+
+    /**
+     * Verifies that messages are held back until the sender is replenished
+     * with credit.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAwaitCreditCompletesWhenSenderIsReplenished() {
+
+        // GIVEN a sender without credit
+        when(sender.sendQueueFull()).thenReturn(Boolean.TRUE);
+
+        // WHEN two messages are waiting for credit
+        final Future<Void> first = queue.awaitCredit(sender);
+        final Future<Void> second = queue.awaitCredit(sender);
+        assertFalse(first.isComplete());
+        assertFalse(second.isComplete());
+        final ArgumentCaptor<Handler<Void>> drainHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(sender).sendQueueDrainHandler(drainHandler.capture());
+
+        // and the sender is replenished with credit for one message only
+        when(sender.sendQueueFull()).thenReturn(Boolean.FALSE, Boolean.TRUE);
+        drainHandler.getValue().handle(null);
+
+        // THEN the first message is forwarded
+        assertTrue(first.succeeded());
+        // and the second message waits for the next replenishment
+        assertFalse(second.isComplete());
+        verify(sender, times(2)).sendQueueDrainHandler(drainHandler.capture());
+
+        when(sender.sendQueueFull()).thenReturn(Boolean.FALSE);
+        drainHandler.getValue().handle(null);
+        assertTrue(second.succeeded());
+    }
+
+    /**
+     * Verifies that messages exceeding the maximum number of waiting
+     * messages are rejected.
+     */
+    @Test
+    public void testAwaitCreditFailsIfTooManyMessagesAreWaiting() {
+
+        // GIVEN a sender without credit
+        when(sender.sendQueueFull()).thenReturn(Boolean.TRUE);
+        // for which the maximum number of messages are waiting already
+        queue.awaitCredit(sender);
+        queue.awaitCredit(sender);
+
+        // WHEN another message is published
+        final Future<Void> result = queue.awaitCredit(sender);
+
+        // THEN the message is rejected
+        assertTrue(result.failed());
+        assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, ((ServerErrorException) result.cause()).getErrorCode());
+    }
+
+    /**
+     * Verifies that a waiting message is rejected if the sender is not
+     * replenished with credit in time.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAwaitCreditFailsOnTimeout() {
+
+        // GIVEN a message waiting for credit
+        when(sender.sendQueueFull()).thenReturn(Boolean.TRUE);
+        final Future<Void> result = queue.awaitCredit(sender);
+        final ArgumentCaptor<Handler<Long>> timeoutHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(vertx).setTimer(anyLong(), timeoutHandler.capture());
+
+        // WHEN the sender does not get replenished in time
+        timeoutHandler.getValue().handle(1L);
+
+        // THEN the message is rejected
+        assertTrue(result.failed());
+        assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, ((ServerErrorException) result.cause()).getErrorCode());
+    }
+}
@@ -68,4 +68,21 @@ public interface CredentialsClient extends RequestResponseClient {
      * @see RequestResponseClient#setRequestTimeout(long)
      */
     Future<CredentialsObject> get(String type, String authId, JsonObject clientContext);
+
+    /**
+     * Removes credentials from the client's response cache.
+     * <p>
+     * Clients should invoke this method when they have been signaled that the
+     * credentials on record for a device have been updated, e.g. because credentials
+     * provided by a device do not match the (cached) credentials on record anymore.
+     * The next invocation of {@link #get(String, String)} for the same type and
+     * authentication identifier will then retrieve the credentials from the service again.
+     * <p>
+     * This method does nothing if the client does not cache responses at all.
+     *
+     * @param type The type of credentials to remove.
+     * @param authId The authentication identifier used in the credentials to remove.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    void removeFromCache(String type, String authId);
 }
@@ -19,6 +19,7 @@ import java.util.function.Consumer;
 import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.message.Message;
 import org.eclipse.hono.client.impl.HonoClientImpl;
+import org.eclipse.hono.client.impl.PooledHonoClient;
 import org.eclipse.hono.config.ClientConfigProperties;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
@@ -427,6 +428,9 @@ public interface HonoClient {
     /**
      * Create a new {@link HonoClient} using the default implementation.
      * <p>
+     * A client maintaining a pool of connections is created if the
+     * {@link ClientConfigProperties#getConnectionPoolSize()} property is greater than 1.
+     * <p>
      * <strong>Note:</strong> Instances of {@link ClientConfigProperties} are not thread safe and not immutable. They
      * must not be modified after calling this method.
      *
@@ -435,6 +439,10 @@ public interface HonoClient {
      * @return A new instance of a <em>Hono Client</em>.
      */
     static HonoClient newClient(final Vertx vertx, final ClientConfigProperties clientConfigProperties) {
-        return new HonoClientImpl(vertx, clientConfigProperties);
+        if (clientConfigProperties.getConnectionPoolSize() > 1) {
+            return new PooledHonoClient(vertx, clientConfigProperties);
+        } else {
+            return new HonoClientImpl(vertx, clientConfigProperties);
+        }
     }
 }
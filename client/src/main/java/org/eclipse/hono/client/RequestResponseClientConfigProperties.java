@@ -33,10 +33,16 @@ public class RequestResponseClientConfigProperties extends ClientConfigPropertie
      * The default timeout for cached responses in seconds until they are considered invalid.
      */
     public static final long DEFAULT_RESPONSE_CACHE_TIMEOUT = 600L;
+    /**
+     * The default period of time in seconds that expired responses may still be served
+     * from the cache while being refreshed.
+     */
+    public static final long DEFAULT_RESPONSE_CACHE_STALE_GRACE_PERIOD = 0L;
 
     private int responseCacheMinSize = DEFAULT_RESPONSE_CACHE_MIN_SIZE;
     private long responseCacheMaxSize = DEFAULT_RESPONSE_CACHE_MAX_SIZE;
     private long responseCacheDefaultTimeout = DEFAULT_RESPONSE_CACHE_TIMEOUT;
+    private long responseCacheStaleGracePeriod = DEFAULT_RESPONSE_CACHE_STALE_GRACE_PERIOD;
 
     /**
      * Gets the minimum size of the response cache.
@@ -129,4 +135,37 @@ public class RequestResponseClientConfigProperties extends ClientConfigPropertie
         }
         this.responseCacheDefaultTimeout = timeout;
     }
+
+    /**
+     * Gets the period of time that cached responses may still be used after they have expired.
+     * <p>
+     * If this property is &gt; 0, a request for an expired response is answered with the
+     * <em>stale</em> response from the cache while a fresh response is requested from the
+     * service in the background (<em>stale-while-revalidate</em>). Stale responses are served
+     * until either a fresh response has been received or the grace period has elapsed.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_RESPONSE_CACHE_STALE_GRACE_PERIOD}.
+     *
+     * @return The grace period in seconds. A value of 0 indicates that expired responses
+     *         are never served from the cache.
+     */
+    public final long getResponseCacheStaleGracePeriod() {
+        return responseCacheStaleGracePeriod;
+    }
+
+    /**
+     * Sets the period of time that cached responses may still be used after they have expired.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_RESPONSE_CACHE_STALE_GRACE_PERIOD}.
+     *
+     * @param gracePeriod The grace period in seconds. Setting this property to 0 disables
+     *                    serving of stale responses.
+     * @throws IllegalArgumentException if grace period is &lt; 0.
+     */
+    public final void setResponseCacheStaleGracePeriod(final long gracePeriod) {
+        if (gracePeriod < 0) {
+            throw new IllegalArgumentException("stale grace period must not be negative");
+        }
+        this.responseCacheStaleGracePeriod = gracePeriod;
+    }
 }
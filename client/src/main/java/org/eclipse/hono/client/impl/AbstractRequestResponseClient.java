@@ -14,8 +14,11 @@ package org.eclipse.hono.client.impl;
 
 import java.net.HttpURLConnection;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -26,6 +29,7 @@ import org.apache.qpid.proton.amqp.messaging.AmqpValue;
 import org.apache.qpid.proton.amqp.messaging.Rejected;
 import org.apache.qpid.proton.amqp.transport.DeliveryState;
 import org.apache.qpid.proton.message.Message;
+import org.eclipse.hono.cache.ExpiringValue;
 import org.eclipse.hono.cache.ExpiringValueCache;
 import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.RequestResponseClient;
@@ -82,6 +86,11 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
     };
 
     private final Map<Object, TriTuple<Handler<AsyncResult<R>>, Object, Span>> replyMap = new HashMap<>();
+    /**
+     * The handlers waiting for the outcome of requests that are currently in flight,
+     * indexed by the key used for caching the response.
+     */
+    private final Map<Object, List<Handler<AsyncResult<R>>>> outstandingRequests = new HashMap<>();
     private final String replyToAddress;
     private final String targetAddress;
     private final String tenantId;
@@ -238,6 +247,27 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
         }
     }
 
+    /**
+     * Gets the period of time that cached responses may still be served after they
+     * have exceeded their maximum age.
+     * <p>
+     * The value is derived from the configuration properties as follows:
+     * <ol>
+     * <li>if the properties are of type {@link RequestResponseClientConfigProperties}
+     * then the value of its <em>responseCacheStaleGracePeriod</em> property is used</li>
+     * <li>otherwise serving of stale responses is disabled</li>
+     * </ol>
+     *
+     * @return The grace period in seconds or 0 if stale responses are not served.
+     */
+    protected final long getResponseCacheStaleGracePeriod() {
+        if (config instanceof RequestResponseClientConfigProperties) {
+            return ((RequestResponseClientConfigProperties) config).getResponseCacheStaleGracePeriod();
+        } else {
+            return 0;
+        }
+    }
+
     /**
      * Sets the period of time after which any requests are considered to have timed out.
      * <p>
@@ -316,10 +346,10 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
 
         Objects.requireNonNull(con);
 
-        return createReceiver(con, replyToAddress, receiverCloseHook)
+        return createReceiver(con, replyToAddress, failPendingRequestsOnClose(receiverCloseHook))
                 .compose(recv -> {
                     this.receiver = recv;
-                    return createSender(con, targetAddress, senderCloseHook);
+                    return createSender(con, targetAddress, failPendingRequestsOnClose(senderCloseHook));
                 }).compose(sender -> {
                     LOG.debug("request-response client for peer [{}] created", con.getRemoteContainer());
                     this.sender = sender;
@@ -327,6 +357,32 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
                 });
     }
 
+    private Handler<String> failPendingRequestsOnClose(final Handler<String> closeHook) {
+
+        return address -> {
+            failPendingRequests(new ServerErrorException(HttpURLConnection.HTTP_UNAVAILABLE,
+                    "link to service has been closed"));
+            if (closeHook != null) {
+                closeHook.handle(address);
+            }
+        };
+    }
+
+    /**
+     * Fails all requests which are waiting for a response.
+     * <p>
+     * This also notifies all handlers that are waiting for the outcome of
+     * these requests because they have been issued for the same cache key.
+     *
+     * @param cause The cause to fail the requests with.
+     */
+    private void failPendingRequests(final Throwable cause) {
+
+        for (final Object correlationId : new ArrayList<>(replyMap.keySet())) {
+            cancelRequest(correlationId, Future.failedFuture(cause));
+        }
+    }
+
     private Future<ProtonSender> createSender(final ProtonConnection con, final String targetAddress, final Handler<String> closeHook) {
 
         return AbstractHonoClient.createSender(context, config, con, targetAddress, ProtonQoS.AT_LEAST_ONCE, closeHook);
@@ -374,6 +430,8 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
                         replyToAddress, message.getCorrelationId());
                 TracingHelper.logError(span, "response from peer released (no status code)");
                 ProtonHelper.released(delivery, true);
+                handler.one().handle(Future.failedFuture(new ServerErrorException(
+                        HttpURLConnection.HTTP_UNAVAILABLE, "malformed response from service (no status code)")));
             } else {
                 LOG.debug("received response [reply-to: {}, subject: {}, correlation ID: {}, status: {}]",
                         replyToAddress, message.getSubject(), message.getCorrelationId(), response.getStatus());
@@ -656,9 +714,17 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
     /**
      * Sends a request message via this client's sender link to the peer.
      * <p>
-     * This method first checks if the sender has any credit left. If not, the result handler is failed immediately.
-     * Otherwise, the request message is sent and a timer is started which fails the result handler,
-     * if no response is received within <em>requestTimeoutMillis</em> milliseconds.
+     * If serving of stale responses is enabled and the cache contains a stale response for
+     * the cache key, then the result handler is notified with the stale response immediately and
+     * the request message is sent in order to refresh the cached response in the background.
+     * <p>
+     * Otherwise, if a cache key is given, requests time out and a request for the same key is already in flight, then
+     * the request message is not sent at all. Instead, the result handler is notified
+     * about the outcome of the outstanding request.
+     * <p>
+     * Otherwise, this method first checks if the sender has any credit left. If not, the result handler is
+     * failed immediately. Otherwise, the request message is sent and a timer is started which fails the
+     * result handler, if no response is received within <em>requestTimeoutMillis</em> milliseconds.
      * 
      * @param request The message to send.
      * @param resultHandler The handler to notify about the outcome of the request.
@@ -679,9 +745,38 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
         }
 
         executeOrRunOnContext(res -> {
-            if (sender.sendQueueFull()) {
+            final Handler<AsyncResult<R>> requestHandler;
+            final R staleResponse = getStaleResponseFromCache(cacheKey);
+            if (staleResponse != null) {
+                LOG.debug("serving stale response from cache [target: {}, key: {}]", targetAddress, cacheKey);
+                currentSpan.log("serving stale response from cache");
+                resultHandler.handle(Future.succeededFuture(staleResponse));
+                if (outstandingRequests.containsKey(cacheKey)) {
+                    // response is already being refreshed
+                    return;
+                }
+                requestHandler = refreshAttempt -> {
+                    if (refreshAttempt.failed()) {
+                        LOG.debug("failed to refresh stale response [target: {}, key: {}]: {}",
+                                targetAddress, cacheKey, refreshAttempt.cause().getMessage());
+                    } else if (!isCacheable(refreshAttempt.result())) {
+                        // the service's current answer must not be served from the cache,
+                        // so neither must the stale response
+                        LOG.debug("removing stale response from cache [target: {}, key: {}, status: {}]",
+                                targetAddress, cacheKey, refreshAttempt.result().getStatus());
+                        removeFromCache(cacheKey);
+                    }
+                };
+            } else {
+                requestHandler = resultHandler;
+            }
+
+            if (joinOutstandingRequest(cacheKey, requestHandler)) {
+                LOG.debug("request for same key is already in flight [target: {}, key: {}]", targetAddress, cacheKey);
+                currentSpan.log("waiting for outcome of outstanding request");
+            } else if (sender.sendQueueFull()) {
                 LOG.debug("cannot send request to peer, no credit left for link [target: {}]", targetAddress);
-                resultHandler.handle(Future.failedFuture(new ServerErrorException(
+                requestHandler.handle(Future.failedFuture(new ServerErrorException(
                         HttpURLConnection.HTTP_UNAVAILABLE, "no credit available for sending request")));
             } else {
                 final Map<String, Object> details = new HashMap<>(3);
@@ -692,7 +787,8 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
                 details.put(TracingHelper.TAG_CREDIT.getKey(), sender.getCredit());
                 details.put(TracingHelper.TAG_QOS.getKey(), sender.getQoS().toString());
                 currentSpan.log(details);
-                final TriTuple<Handler<AsyncResult<R>>, Object, Span> handler = TriTuple.of(resultHandler, cacheKey, currentSpan);
+                final TriTuple<Handler<AsyncResult<R>>, Object, Span> handler = TriTuple.of(
+                        registerOutstandingRequest(cacheKey, requestHandler), cacheKey, currentSpan);
                 tracer.inject(currentSpan.context(), Format.Builtin.TEXT_MAP, new MessageAnnotationsInjectAdapter(request));
                 replyMap.put(correlationId, handler);
 
@@ -748,6 +844,61 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
         });
     }
 
+    /**
+     * Adds a handler to the handlers waiting for the outcome of an outstanding
+     * request for a cache key.
+     * 
+     * @param cacheKey The key to use for caching the response (may be {@code null}).
+     * @param resultHandler The handler to notify about the outcome of the request.
+     * @return {@code true} if requests time out, a request for the key is in flight and the handler has
+     *         been added to the handlers waiting for its outcome.
+     */
+    private boolean joinOutstandingRequest(final Object cacheKey, final Handler<AsyncResult<R>> resultHandler) {
+
+        if (cacheKey == null || requestTimeoutMillis <= 0) {
+            return false;
+        } else {
+            final List<Handler<AsyncResult<R>>> waitingHandlers = outstandingRequests.get(cacheKey);
+            if (waitingHandlers == null) {
+                return false;
+            } else {
+                waitingHandlers.add(resultHandler);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Registers a request for a cache key as being in flight.
+     * 
+     * @param cacheKey The key to use for caching the response (may be {@code null}).
+     * @param resultHandler The handler to notify about the outcome of the request.
+     * @return The handler to invoke with the outcome of the request. If the cache key
+     *         is {@code null} or requests do not time out, the given result handler is returned. Otherwise, a handler
+     *         is returned that notifies all handlers that have been waiting for
+     *         the outcome of the request.
+     */
+    private Handler<AsyncResult<R>> registerOutstandingRequest(final Object cacheKey, final Handler<AsyncResult<R>> resultHandler) {
+
+        if (cacheKey == null || requestTimeoutMillis <= 0) {
+            // without a timeout there is no guarantee that the request ever
+            // completes, so other requests must not wait for its outcome
+            return resultHandler;
+        } else {
+            final List<Handler<AsyncResult<R>>> waitingHandlers = new ArrayList<>();
+            waitingHandlers.add(resultHandler);
+            outstandingRequests.put(cacheKey, waitingHandlers);
+            return result -> {
+                final List<Handler<AsyncResult<R>>> handlers = outstandingRequests.remove(cacheKey);
+                if (handlers != null) {
+                    LOG.trace("notifying {} handler(s) about outcome of request [target: {}, key: {}]",
+                            handlers.size(), targetAddress, cacheKey);
+                    handlers.forEach(handler -> handler.handle(result));
+                }
+            };
+        }
+    }
+
     /**
      * Checks if this client's sender and receiver links are open.
      * 
@@ -764,6 +915,10 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
 
         Objects.requireNonNull(closeHandler);
         LOG.info("closing request-response client ...");
+        executeOrRunOnContext(res -> {
+            failPendingRequests(new ServerErrorException(HttpURLConnection.HTTP_UNAVAILABLE, "client has been closed"));
+            res.complete();
+        });
         closeLinks(closeHandler);
     }
 
@@ -778,6 +933,11 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
 
     /**
      * Gets a response from the cache.
+     * <p>
+     * If serving of stale responses is enabled, responses that have exceeded their
+     * maximum age are not returned by this method. Instead, such responses are
+     * served when the request for a fresh response is sent, see
+     * {@link #createAndSendRequest(String, Map, Buffer, String, Handler, Object, Span)}.
      * 
      * @param key The key to get the response for.
      * @return A succeeded future containing the response from the cache
@@ -788,6 +948,16 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
 
         if (responseCache == null) {
             return Future.failedFuture(new IllegalStateException("no cache configured"));
+        } else if (getResponseCacheStaleGracePeriod() > 0) {
+            final ExpiringValue<R> entry = responseCache.getExpiringValue(key);
+            if (entry == null) {
+                return Future.failedFuture("cache miss");
+            } else if (entry.isExpired(responseCache.getClock().instant().plusSeconds(getResponseCacheStaleGracePeriod()))) {
+                // the entry has exceeded its max age and is within the grace period
+                return Future.failedFuture("cached response is stale");
+            } else {
+                return Future.succeededFuture(entry.getValue());
+            }
         } else {
             final R result = responseCache.get(key);
             if (result == null) {
@@ -814,6 +984,11 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
      * <li>else if the response contains a <em>no-cache</em> directive, the response
      * is not put to the cache.</li>
      * </ol>
+     * <p>
+     * If serving of stale responses is enabled, the response is kept in the cache for
+     * the period of time returned by {@link #getResponseCacheStaleGracePeriod()} in addition
+     * to its maximum age. It is, however, not served after the point in time returned by
+     * {@link #getStaleResponseLimit(RequestResponseResult)}.
      * 
      * @param key The key to use for the response.
      * @param response The response to cache.
@@ -823,22 +998,86 @@ public abstract class AbstractRequestResponseClient<R extends RequestResponseRes
 
         Objects.requireNonNull(response);
 
-        if (responseCache != null && key != null) {
+        if (responseCache != null && key != null && isCacheable(response)) {
+            responseCache.put(key, response, Duration.ofSeconds(
+                    getCacheDirective(response).getMaxAge() + getResponseCacheStaleGracePeriod()));
+        }
+    }
 
-            final CacheDirective cacheDirective = Optional.ofNullable(response.getCacheDirective())
-                    .orElseGet(() -> {
-                        if (isCacheableStatusCode(response.getStatus())) {
-                            return CacheDirective.maxAgeDirective(getResponseCacheDefaultTimeout());
-                        } else {
-                            return CacheDirective.noCacheDirective();
-                        }
-                    });
+    private CacheDirective getCacheDirective(final R response) {
 
-            if (cacheDirective.isCachingAllowed()) {
-                if (cacheDirective.getMaxAge() > 0) {
-                    responseCache.put(key, response, Duration.ofSeconds(cacheDirective.getMaxAge()));
-                }
-            }
+        return Optional.ofNullable(response.getCacheDirective())
+                .orElseGet(() -> {
+                    if (isCacheableStatusCode(response.getStatus())) {
+                        return CacheDirective.maxAgeDirective(getResponseCacheDefaultTimeout());
+                    } else {
+                        return CacheDirective.noCacheDirective();
+                    }
+                });
+    }
+
+    private boolean isCacheable(final R response) {
+
+        final CacheDirective cacheDirective = getCacheDirective(response);
+        return cacheDirective.isCachingAllowed() && cacheDirective.getMaxAge() > 0;
+    }
+
+    /**
+     * Gets the point in time after which a cached response must not be served
+     * anymore once it has exceeded its maximum age.
+     * <p>
+     * Stale responses are served for at most the period of time returned by
+     * {@link #getResponseCacheStaleGracePeriod()}. Subclasses should override this
+     * method if a response contains information that becomes invalid before that
+     * period has elapsed, e.g. a token with an expiration time.
+     * <p>
+     * This default implementation returns {@code null}.
+     *
+     * @param response The cached response.
+     * @return The point in time or {@code null} if the response may be served
+     *         for the whole grace period.
+     */
+    protected Instant getStaleResponseLimit(final R response) {
+        return null;
+    }
+
+    /**
+     * Gets a stale response from the cache.
+     * 
+     * @param key The key to get the response for (may be {@code null}).
+     * @return The response or {@code null} if serving of stale responses is disabled,
+     *         if no response exists for the key, if the response has not exceeded its
+     *         max age yet or if the response's stale limit has been reached.
+     */
+    private R getStaleResponseFromCache(final Object key) {
+
+        if (responseCache == null || key == null || getResponseCacheStaleGracePeriod() <= 0) {
+            return null;
+        }
+        final ExpiringValue<R> entry = responseCache.getExpiringValue(key);
+        final Instant now = responseCache.getClock().instant();
+        if (entry == null || !entry.isExpired(now.plusSeconds(getResponseCacheStaleGracePeriod()))) {
+            return null;
+        }
+        final Instant limit = getStaleResponseLimit(entry.getValue());
+        if (limit != null && !now.isBefore(limit)) {
+            LOG.debug("stale response has reached its limit [target: {}, key: {}, limit: {}]", targetAddress, key, limit);
+            return null;
+        }
+        return entry.getValue();
+    }
+
+    /**
+     * Removes a response from the cache.
+     * <p>
+     * If the cache key is {@code null} or no cache is configured then this method does nothing.
+     * 
+     * @param key The key of the response to remove.
+     */
+    protected final void removeFromCache(final Object key) {
+
+        if (responseCache != null && key != null) {
+            responseCache.remove(key);
         }
     }
 
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -83,6 +84,7 @@ abstract public class AbstractSender extends AbstractHonoClient implements Messa
      */
     protected final String targetAddress;
 
+    private final TimeoutWheel outcomeTimeouts;
     private Handler<Void> drainHandler;
     private boolean registrationAssertionRequired;
 
@@ -110,6 +112,11 @@ abstract public class AbstractSender extends AbstractHonoClient implements Messa
         this.sender = Objects.requireNonNull(sender);
         this.tenantId = Objects.requireNonNull(tenantId);
         this.targetAddress = targetAddress;
+        if (config.getSendMessageTimeout() > 0) {
+            this.outcomeTimeouts = new TimeoutWheel(context.owner(), config.getSendMessageTimeout());
+        } else {
+            this.outcomeTimeouts = null;
+        }
         if (sender.isOpen()) {
             this.offeredCapabilities = Optional.ofNullable(sender.getRemoteOfferedCapabilities())
                     .map(caps -> Collections.unmodifiableList(Arrays.asList(caps)))
@@ -392,6 +399,10 @@ abstract public class AbstractSender extends AbstractHonoClient implements Messa
     /**
      * Sends an AMQP 1.0 message to the peer this client is configured for
      * and waits for the outcome of the transfer.
+     * <p>
+     * If the peer does not settle the message within the configured
+     * <em>send message timeout</em>, the message is settled locally
+     * and the returned future is failed.
      * 
      * @param message The message to send.
      * @param currentSpan The <em>OpenTracing</em> span used to trace the sending of the message.
@@ -404,6 +415,8 @@ abstract public class AbstractSender extends AbstractHonoClient implements Messa
      *         <p>
      *         The future will be failed with a {@link ServiceInvocationException} if the
      *         message could not be sent or has not been accepted by the peer.
+     *         It will be failed with a {@link ServerErrorException} with status 503
+     *         if the peer has not settled the message in time.
      * @throws NullPointerException if the message is {@code null}.
      */
     protected Future<ProtonDelivery> sendMessageAndWaitForOutcome(final Message message, final Span currentSpan) {
@@ -420,7 +433,13 @@ abstract public class AbstractSender extends AbstractHonoClient implements Messa
         details.put(TracingHelper.TAG_QOS.getKey(), sender.getQoS().toString());
         currentSpan.log(details);
 
-        sender.send(message, deliveryUpdated -> {
+        final AtomicReference<TimeoutWheel.Timeout> outcomeTimeout = new AtomicReference<>();
+        final ProtonDelivery sentDelivery = sender.send(message, deliveryUpdated -> {
+            Optional.ofNullable(outcomeTimeout.get()).ifPresent(TimeoutWheel.Timeout::cancel);
+            if (result.isComplete()) {
+                LOG.debug("ignoring update of message [message ID: {}] which has timed out", messageId);
+                return;
+            }
             final DeliveryState remoteState = deliveryUpdated.getRemoteState();
             if (deliveryUpdated.remotelySettled()) {
                 if (Accepted.class.isInstance(remoteState)) {
@@ -453,6 +472,19 @@ abstract public class AbstractSender extends AbstractHonoClient implements Messa
                 result.fail(e);
             }
         });
+        if (outcomeTimeouts != null && !result.isComplete()) {
+            outcomeTimeout.set(outcomeTimeouts.schedule(expired -> {
+                if (!result.isComplete()) {
+                    LOG.debug("waiting for outcome of message [message ID: {}] timed out", messageId);
+                    // release the message and the handler kept by the link
+                    if (sentDelivery != null) {
+                        sentDelivery.settle();
+                    }
+                    result.fail(new ServerErrorException(HttpURLConnection.HTTP_UNAVAILABLE,
+                            "waiting for delivery update timed out"));
+                }
+            }));
+        }
         LOG.trace("sent message [ID: {}], remaining credit: {}, queued messages: {}", messageId, sender.getCredit(), sender.getQueued());
 
         return result.map(delivery -> {
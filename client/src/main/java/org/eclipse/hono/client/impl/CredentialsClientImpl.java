@@ -20,6 +20,7 @@ import java.util.UUID;
 
 import io.vertx.core.buffer.Buffer;
 
+import org.eclipse.hono.cache.CacheProvider;
 import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.CredentialsClient;
 import org.eclipse.hono.client.StatusCodeMapper;
@@ -28,6 +29,7 @@ import org.eclipse.hono.util.CacheDirective;
 import org.eclipse.hono.util.CredentialsConstants;
 import org.eclipse.hono.util.CredentialsObject;
 import org.eclipse.hono.util.CredentialsResult;
+import org.eclipse.hono.util.TriTuple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +41,8 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.json.JsonObject;
 import io.vertx.proton.ProtonConnection;
+import io.vertx.proton.ProtonReceiver;
+import io.vertx.proton.ProtonSender;
 
 /**
  * A Vertx-Proton based client for Hono's Credentials API.
@@ -60,6 +64,21 @@ public class CredentialsClientImpl extends AbstractRequestResponseClient<Credent
         super(context, config, tenantId);
     }
 
+    /**
+     * Creates a new client for accessing the Credentials service.
+     * 
+     * @param context The vert.x context to use for interacting with the service.
+     * @param config The configuration properties.
+     * @param tenantId The identifier of the tenant for which the client should be created.
+     * @param sender The AMQP link to use for sending requests to the service.
+     * @param receiver The AMQP link to use for receiving responses from the service.
+     */
+    protected CredentialsClientImpl(final Context context, final ClientConfigProperties config, final String tenantId,
+            final ProtonSender sender, final ProtonReceiver receiver) {
+
+        super(context, config, tenantId, sender, receiver);
+    }
+
     @Override
     protected final String getName() {
 
@@ -103,16 +122,19 @@ public class CredentialsClientImpl extends AbstractRequestResponseClient<Credent
      *
      * @param context The vert.x context to run all interactions with the server on.
      * @param clientConfig The configuration properties to use.
+     * @param cacheProvider A factory for cache instances for credentials results. If {@code null}
+     *                     the client will not cache any results from the Credentials service.
      * @param con The AMQP connection to the server.
      * @param tenantId The tenant for which credentials are handled.
      * @param senderCloseHook A handler to invoke if the peer closes the sender link unexpectedly.
      * @param receiverCloseHook A handler to invoke if the peer closes the receiver link unexpectedly.
      * @param creationHandler The handler to invoke with the outcome of the creation attempt.
-     * @throws NullPointerException if any of the parameters is {@code null}.
+     * @throws NullPointerException if any of the parameters other than cache provider is {@code null}.
      */
     public static final void create(
             final Context context,
             final ClientConfigProperties clientConfig,
+            final CacheProvider cacheProvider,
             final ProtonConnection con,
             final String tenantId,
             final Handler<String> senderCloseHook,
@@ -121,6 +143,9 @@ public class CredentialsClientImpl extends AbstractRequestResponseClient<Credent
 
         LOG.debug("creating new credentials client for [{}]", tenantId);
         final CredentialsClientImpl client = new CredentialsClientImpl(context, clientConfig, tenantId);
+        if (cacheProvider != null) {
+            client.setResponseCache(cacheProvider.getCache(CredentialsClientImpl.getTargetAddress(tenantId)));
+        }
         client.createLinks(con, senderCloseHook, receiverCloseHook).setHandler(s -> {
             if (s.succeeded()) {
                 LOG.debug("successfully created credentials client for [{}]", tenantId);
@@ -146,21 +171,40 @@ public class CredentialsClientImpl extends AbstractRequestResponseClient<Credent
      * Invokes the <em>Get Credentials</em> operation of Hono's
      * <a href="https://www.eclipse.org/hono/api/Credentials-API">Credentials API</a>
      * on the service represented by the <em>sender</em> and <em>receiver</em> links.
+     * <p>
+     * Responses to requests that do not include any client context are cached
+     * (if a cache is configured and the service allows caching) using the type
+     * and authentication identifier as the key. Requests including a client context
+     * are always sent to the service.
      */
     @Override
     public final Future<CredentialsObject> get(final String type, final String authId, final JsonObject clientContext) {
 
         Objects.requireNonNull(type);
         Objects.requireNonNull(authId);
-
-        final Future<CredentialsResult<CredentialsObject>> responseTracker = Future.future();
-        final JsonObject specification = new JsonObject()
-                .put(CredentialsConstants.FIELD_TYPE, type)
-                .put(CredentialsConstants.FIELD_AUTH_ID, authId)
-                .mergeIn(clientContext);
-
-        createAndSendRequest(CredentialsConstants.CredentialsAction.get.toString(), specification.toBuffer(), responseTracker.completer());
-        return responseTracker.map(response -> {
+        Objects.requireNonNull(clientContext);
+
+        final TriTuple<CredentialsConstants.CredentialsAction, String, String> key = clientContext.isEmpty()
+                ? getCacheKey(type, authId)
+                : null;
+        final Future<CredentialsResult<CredentialsObject>> cachedResponse = key == null
+                ? Future.failedFuture("no cache key")
+                : getResponseFromCache(key);
+
+        return cachedResponse.recover(cacheMiss -> {
+            final Future<CredentialsResult<CredentialsObject>> responseTracker = Future.future();
+            final JsonObject specification = new JsonObject()
+                    .put(CredentialsConstants.FIELD_TYPE, type)
+                    .put(CredentialsConstants.FIELD_AUTH_ID, authId)
+                    .mergeIn(clientContext);
+
+            createAndSendRequest(
+                    CredentialsConstants.CredentialsAction.get.toString(),
+                    specification.toBuffer(),
+                    responseTracker.completer(),
+                    key);
+            return responseTracker;
+        }).map(response -> {
             switch(response.getStatus()) {
             case HttpURLConnection.HTTP_OK:
                 return response.getPayload();
@@ -171,4 +215,22 @@ public class CredentialsClientImpl extends AbstractRequestResponseClient<Credent
             }
         });
     }
+
+    /**
+     * Removes the credentials for a type and authentication identifier
+     * from this client's response cache.
+     */
+    @Override
+    public final void removeFromCache(final String type, final String authId) {
+
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(authId);
+
+        LOG.debug("removing credentials from cache [tenant: {}, type: {}, auth-id: {}]", getTenantId(), type, authId);
+        removeFromCache(getCacheKey(type, authId));
+    }
+
+    private static TriTuple<CredentialsConstants.CredentialsAction, String, String> getCacheKey(final String type, final String authId) {
+        return TriTuple.of(CredentialsConstants.CredentialsAction.get, type, authId);
+    }
 }
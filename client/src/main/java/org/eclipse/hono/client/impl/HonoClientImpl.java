@@ -771,6 +771,7 @@ public class HonoClientImpl implements HonoClient {
             CredentialsClientImpl.create(
                     context,
                     clientConfigProperties,
+                    cacheProvider,
                     connection,
                     tenantId,
                     this::removeCredentialsClient,
@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.client.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.message.Message;
+import org.eclipse.hono.client.CommandClient;
+import org.eclipse.hono.client.CredentialsClient;
+import org.eclipse.hono.client.HonoClient;
+import org.eclipse.hono.client.MessageConsumer;
+import org.eclipse.hono.client.MessageSender;
+import org.eclipse.hono.client.RegistrationClient;
+import org.eclipse.hono.client.TenantClient;
+import org.eclipse.hono.config.ClientConfigProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import io.opentracing.Tracer;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.proton.ProtonClientOptions;
+import io.vertx.proton.ProtonConnection;
+import io.vertx.proton.ProtonDelivery;
+
+/**
+ * A client for Hono's arbitrary APIs which maintains a pool of connections to the peer.
+ * <p>
+ * Each connection is managed by a separate {@link HonoClient} and is (re-)established
+ * independently of the other connections. Tenants are assigned to the connections
+ * deterministically based on the hash code of the tenant identifier, i.e. all senders,
+ * consumers and clients for a particular tenant are always created on the same connection.
+ * <p>
+ * The client for the Tenant API, which is not scoped to a tenant, is always created
+ * on the first connection of the pool.
+ */
+public final class PooledHonoClient implements HonoClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PooledHonoClient.class);
+
+    private final List<HonoClient> clients;
+
+    /**
+     * Creates a new client for a set of configuration properties.
+     * <p>
+     * The client maintains as many connections as defined by the
+     * {@link ClientConfigProperties#getConnectionPoolSize()} property.
+     *
+     * @param vertx The Vert.x instance to execute the client on, if {@code null} a new Vert.x instance is used.
+     * @param clientConfigProperties The configuration properties to use.
+     * @throws NullPointerException if clientConfigProperties is {@code null}.
+     */
+    public PooledHonoClient(final Vertx vertx, final ClientConfigProperties clientConfigProperties) {
+
+        Objects.requireNonNull(clientConfigProperties);
+        final Vertx vertxToUse = vertx != null ? vertx : Vertx.vertx();
+        final List<HonoClient> pool = new ArrayList<>(clientConfigProperties.getConnectionPoolSize());
+        for (int i = 0; i < clientConfigProperties.getConnectionPoolSize(); i++) {
+            pool.add(new HonoClientImpl(vertxToUse, clientConfigProperties));
+        }
+        this.clients = Collections.unmodifiableList(pool);
+    }
+
+    /**
+     * Creates a new client for a set of clients that each maintain a single connection.
+     *
+     * @param clients The clients to distribute the tenants among.
+     * @throws NullPointerException if clients is {@code null}.
+     * @throws IllegalArgumentException if clients is empty.
+     */
+    PooledHonoClient(final List<HonoClient> clients) {
+
+        Objects.requireNonNull(clients);
+        if (clients.isEmpty()) {
+            throw new IllegalArgumentException("at least one client is required");
+        }
+        this.clients = Collections.unmodifiableList(new ArrayList<>(clients));
+    }
+
+    /**
+     * Sets the OpenTracing {@code Tracer} to use for tracing messages
+     * published by devices across Hono's components.
+     * <p>
+     * If not set explicitly, the {@code NoopTracer} from OpenTracing will
+     * be used.
+     *
+     * @param opentracingTracer The tracer.
+     * @throws NullPointerException if tracer is {@code null}.
+     */
+    @Autowired(required = false)
+    public void setTracer(final Tracer opentracingTracer) {
+        Objects.requireNonNull(opentracingTracer);
+        for (final HonoClient client : clients) {
+            if (client instanceof HonoClientImpl) {
+                ((HonoClientImpl) client).setTracer(opentracingTracer);
+            }
+        }
+    }
+
+    /**
+     * Gets the client that manages the connection that a tenant is assigned to.
+     *
+     * @param tenantId The tenant.
+     * @return The client.
+     * @throws NullPointerException if tenant is {@code null}.
+     */
+    HonoClient getClient(final String tenantId) {
+        Objects.requireNonNull(tenantId);
+        return clients.get(Math.floorMod(tenantId.hashCode(), clients.size()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned future succeeds only if all connections of the pool are established.
+     */
+    @Override
+    public Future<Void> isConnected() {
+
+        @SuppressWarnings("rawtypes")
+        final List<Future> checks = new ArrayList<>(clients.size());
+        for (final HonoClient client : clients) {
+            checks.add(client.isConnected());
+        }
+        return CompositeFuture.all(checks).map(ok -> (Void) null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<HonoClient> connect() {
+        return connect(null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<HonoClient> connect(final ProtonClientOptions options) {
+        return connect(Objects.requireNonNull(options), null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<HonoClient> connect(final Handler<ProtonConnection> disconnectHandler) {
+        return connect(null, Objects.requireNonNull(disconnectHandler));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned future succeeds once all connections of the pool have been established.
+     * The disconnect handler is invoked with the affected connection whenever any of the
+     * connections is lost.
+     */
+    @Override
+    public Future<HonoClient> connect(
+            final ProtonClientOptions options,
+            final Handler<ProtonConnection> disconnectHandler) {
+
+        @SuppressWarnings("rawtypes")
+        final List<Future> attempts = new ArrayList<>(clients.size());
+        for (final HonoClient client : clients) {
+            attempts.add(client.connect(options, disconnectHandler));
+        }
+        return CompositeFuture.all(attempts).map(ok -> (HonoClient) this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void disconnect() {
+
+        final CountDownLatch countDown = new CountDownLatch(1);
+        disconnect(disconnectResult -> {
+            if (disconnectResult.succeeded()) {
+                countDown.countDown();
+            } else {
+                LOG.error("could not disconnect from the server", disconnectResult.cause());
+            }
+        });
+        await(countDown, "disconnecting from the server");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void disconnect(final Handler<AsyncResult<Void>> completionHandler) {
+
+        Objects.requireNonNull(completionHandler);
+        @SuppressWarnings("rawtypes")
+        final List<Future> results = new ArrayList<>(clients.size());
+        for (final HonoClient client : clients) {
+            final Future<Void> result = Future.future();
+            client.disconnect(result.completer());
+            results.add(result);
+        }
+        CompositeFuture.all(results).map(ok -> (Void) null).setHandler(completionHandler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<MessageSender> getOrCreateTelemetrySender(final String tenantId) {
+        return getClient(tenantId).getOrCreateTelemetrySender(tenantId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<MessageSender> getOrCreateTelemetrySender(final String tenantId, final String deviceId) {
+        return getClient(tenantId).getOrCreateTelemetrySender(tenantId, deviceId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<MessageSender> getOrCreateEventSender(final String tenantId) {
+        return getClient(tenantId).getOrCreateEventSender(tenantId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<MessageSender> getOrCreateEventSender(final String tenantId, final String deviceId) {
+        return getClient(tenantId).getOrCreateEventSender(tenantId, deviceId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<MessageConsumer> createTelemetryConsumer(
+            final String tenantId,
+            final Consumer<Message> telemetryConsumer,
+            final Handler<Void> closeHandler) {
+        return getClient(tenantId).createTelemetryConsumer(tenantId, telemetryConsumer, closeHandler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<MessageConsumer> createEventConsumer(
+            final String tenantId,
+            final Consumer<Message> eventConsumer,
+            final Handler<Void> closeHandler) {
+        return getClient(tenantId).createEventConsumer(tenantId, eventConsumer, closeHandler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<MessageConsumer> createEventConsumer(
+            final String tenantId,
+            final BiConsumer<ProtonDelivery, Message> eventConsumer,
+            final Handler<Void> closeHandler) {
+        return getClient(tenantId).createEventConsumer(tenantId, eventConsumer, closeHandler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<RegistrationClient> getOrCreateRegistrationClient(final String tenantId) {
+        return getClient(tenantId).getOrCreateRegistrationClient(tenantId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<CredentialsClient> getOrCreateCredentialsClient(final String tenantId) {
+        return getClient(tenantId).getOrCreateCredentialsClient(tenantId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<TenantClient> getOrCreateTenantClient() {
+        return clients.get(0).getOrCreateTenantClient();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<CommandClient> getOrCreateCommandClient(final String tenantId, final String deviceId) {
+        return getClient(tenantId).getOrCreateCommandClient(tenantId, deviceId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<CommandClient> getOrCreateCommandClient(
+            final String tenantId,
+            final String deviceId,
+            final String replyId) {
+        return getClient(tenantId).getOrCreateCommandClient(tenantId, deviceId, replyId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void shutdown() {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        shutdown(done -> {
+            if (done.succeeded()) {
+                latch.countDown();
+            } else {
+                LOG.error("could not close connection to server", done.cause());
+            }
+        });
+        await(latch, "shutdown of client");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void shutdown(final Handler<AsyncResult<Void>> completionHandler) {
+
+        Objects.requireNonNull(completionHandler);
+        @SuppressWarnings("rawtypes")
+        final List<Future> results = new ArrayList<>(clients.size());
+        for (final HonoClient client : clients) {
+            final Future<Void> result = Future.future();
+            client.shutdown(result.completer());
+            results.add(result);
+        }
+        CompositeFuture.all(results).map(ok -> (Void) null).setHandler(completionHandler);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All connections of the pool are established with the same peer,
+     * so the capabilities offered on the first connection are checked only.
+     */
+    @Override
+    public boolean supportsCapability(final Symbol capability) {
+        return clients.get(0).supportsCapability(capability);
+    }
+
+    private static void await(final CountDownLatch latch, final String operation) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                LOG.error("{} timed out after 5 seconds", operation);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -14,9 +14,11 @@
 package org.eclipse.hono.client.impl;
 
 import java.net.HttpURLConnection;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -27,6 +29,7 @@ import org.eclipse.hono.client.StatusCodeMapper;
 import org.eclipse.hono.config.ClientConfigProperties;
 import org.eclipse.hono.tracing.TracingHelper;
 import org.eclipse.hono.util.CacheDirective;
+import org.eclipse.hono.util.JwtHelper;
 import org.eclipse.hono.util.MessageHelper;
 import org.eclipse.hono.util.RegistrationConstants;
 import org.eclipse.hono.util.RegistrationResult;
@@ -125,6 +128,29 @@ public class RegistrationClientImpl extends AbstractRequestResponseClient<Regist
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A registration assertion must not be used after it has expired, so a stale
+     * response containing an assertion is never served after the assertion's expiration
+     * time. A response containing a malformed assertion is not served stale at all.
+     */
+    @Override
+    protected final Instant getStaleResponseLimit(final RegistrationResult response) {
+
+        final String assertion = Optional.ofNullable(response.getPayload())
+                .map(payload -> payload.getString(RegistrationConstants.FIELD_ASSERTION))
+                .orElse(null);
+        if (assertion == null) {
+            return null;
+        }
+        try {
+            return JwtHelper.getExpiration(assertion).toInstant();
+        } catch (final IllegalArgumentException e) {
+            return Instant.MIN;
+        }
+    }
+
     /**
      * Creates a new registration client for a tenant.
      * 
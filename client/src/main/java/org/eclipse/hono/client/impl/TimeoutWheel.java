@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.client.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+/**
+ * A hashed timer wheel for expiring operations that all share the same timeout.
+ * <p>
+ * The wheel consists of a ring of slots which is advanced by a single periodic vert.x timer.
+ * Scheduling and cancelling a timeout are constant time operations and do not require
+ * a vert.x timer of their own. The periodic timer is only running while there are
+ * pending timeouts.
+ * <p>
+ * A timeout expires at the earliest after the configured amount of time and at the
+ * latest one tick of the wheel later, where a tick is an eighth of the timeout
+ * (but at least {@value #MIN_TICK_MILLIS}ms).
+ * <p>
+ * Instances are not thread safe. All methods are expected to be invoked on the
+ * vert.x context that the wheel has been created on. Expiry handlers are invoked on
+ * the same context.
+ */
+final class TimeoutWheel {
+
+    private static final int TICKS_PER_TIMEOUT = 8;
+    private static final long MIN_TICK_MILLIS = 10;
+
+    private final Vertx vertx;
+    private final long tickMillis;
+    private final int ticksPerTimeout;
+    private final List<Set<Timeout>> slots;
+    private int cursor;
+    private int pending;
+    private boolean timerRunning;
+    private long timerId;
+
+    /**
+     * Creates a new wheel.
+     *
+     * @param vertx The vert.x instance to use for running the periodic timer.
+     * @param timeoutMillis The number of milliseconds after which scheduled timeouts expire.
+     * @throws NullPointerException if vertx is {@code null}.
+     * @throws IllegalArgumentException if timeout is not positive.
+     */
+    TimeoutWheel(final Vertx vertx, final long timeoutMillis) {
+
+        this.vertx = Objects.requireNonNull(vertx);
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.tickMillis = Math.max(MIN_TICK_MILLIS, (timeoutMillis + TICKS_PER_TIMEOUT - 1) / TICKS_PER_TIMEOUT);
+        this.ticksPerTimeout = (int) ((timeoutMillis + tickMillis - 1) / tickMillis);
+        // one additional slot for the partial tick at the time of scheduling and one for
+        // the slot currently being expired
+        final int slotCount = ticksPerTimeout + 2;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Schedules a new timeout.
+     *
+     * @param expiryHandler The handler to invoke once the timeout has expired.
+     * @return The timeout which can be used to cancel it.
+     * @throws NullPointerException if handler is {@code null}.
+     */
+    Timeout schedule(final Handler<Void> expiryHandler) {
+
+        Objects.requireNonNull(expiryHandler);
+        final Set<Timeout> slot = slots.get((cursor + ticksPerTimeout + 1) % slots.size());
+        final Timeout timeout = new Timeout(slot, expiryHandler);
+        slot.add(timeout);
+        pending++;
+        if (!timerRunning) {
+            timerId = vertx.setPeriodic(tickMillis, this::tick);
+            timerRunning = true;
+        }
+        return timeout;
+    }
+
+    /**
+     * Gets the number of timeouts that have neither expired nor been cancelled yet.
+     *
+     * @return The number of timeouts.
+     */
+    int getPendingTimeouts() {
+        return pending;
+    }
+
+    /**
+     * Advances the wheel by one slot and expires all timeouts contained in the slot.
+     *
+     * @param id The identifier of the periodic timer.
+     */
+    void tick(final Long id) {
+
+        cursor = (cursor + 1) % slots.size();
+        final Set<Timeout> slot = slots.get(cursor);
+        final List<Timeout> expired = new ArrayList<>(slot);
+        slot.clear();
+        pending -= expired.size();
+        if (pending == 0 && timerRunning) {
+            vertx.cancelTimer(timerId);
+            timerRunning = false;
+        }
+        for (final Timeout timeout : expired) {
+            timeout.expire();
+        }
+    }
+
+    /**
+     * A timeout scheduled on the wheel.
+     */
+    final class Timeout {
+
+        private final Set<Timeout> slot;
+        private Handler<Void> expiryHandler;
+
+        private Timeout(final Set<Timeout> slot, final Handler<Void> expiryHandler) {
+            this.slot = slot;
+            this.expiryHandler = expiryHandler;
+        }
+
+        /**
+         * Cancels this timeout.
+         * <p>
+         * The expiry handler will not be invoked anymore after this method has
+         * been invoked. Cancelling an expired or cancelled timeout has no effect.
+         */
+        void cancel() {
+            if (expiryHandler != null) {
+                expiryHandler = null;
+                if (slot.remove(this)) {
+                    pending--;
+                }
+            }
+        }
+
+        private void expire() {
+            final Handler<Void> handler = expiryHandler;
+            expiryHandler = null;
+            if (handler != null) {
+                handler.handle(null);
+            }
+        }
+    }
+}
@@ -14,6 +14,7 @@
 package org.eclipse.hono.client.impl;
 
 import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -21,7 +22,9 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.net.HttpURLConnection;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.Map;
 
@@ -30,6 +33,7 @@ import org.apache.qpid.proton.amqp.messaging.AmqpValue;
 import org.apache.qpid.proton.amqp.messaging.Rejected;
 import org.apache.qpid.proton.amqp.transport.Target;
 import org.apache.qpid.proton.message.Message;
+import org.eclipse.hono.cache.BasicExpiringValue;
 import org.eclipse.hono.cache.ExpiringValueCache;
 import org.eclipse.hono.client.RequestResponseClientConfigProperties;
 import org.eclipse.hono.client.ServerErrorException;
@@ -44,6 +48,7 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 
 import io.vertx.core.Context;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
@@ -98,6 +103,7 @@ public class AbstractRequestResponseClientTest  {
         when(sender.getRemoteTarget()).thenReturn(target);
 
         cache = mock(ExpiringValueCache.class);
+        when(cache.getClock()).thenReturn(Clock.systemUTC());
 
         client = getClient("tenant", sender, receiver);
         // do not time out requests by default
@@ -416,9 +422,314 @@ public class AbstractRequestResponseClientTest  {
         verify(cache, never()).put(eq("cacheKey"), any(SimpleRequestResponseResult.class), any(Duration.class));
     }
 
+    /**
+     * Verifies that the client sends a single request message only for
+     * concurrent requests using the same cache key and notifies all result handlers
+     * about the outcome of that request.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCreateAndSendRequestCoalescesRequestsForSameKey(final TestContext ctx) {
+
+        // GIVEN a client with a request timeout
+        client.setRequestTimeout(200);
+        // and two concurrent requests for the same cache key
+        final Async responses = ctx.async(2);
+        client.createAndSendRequest("get", (Buffer) null, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals(HttpURLConnection.HTTP_OK, result.getStatus());
+            responses.countDown();
+        }), "cacheKey");
+        client.createAndSendRequest("get", (Buffer) null, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals(HttpURLConnection.HTTP_OK, result.getStatus());
+            responses.countDown();
+        }), "cacheKey");
+
+        // THEN only a single request message is sent to the peer
+        final ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(sender, times(1)).send(messageCaptor.capture(), any(Handler.class));
+
+        // and both result handlers are invoked with the response to that message
+        final Message response = ProtonHelper.message("result");
+        MessageHelper.addProperty(response, MessageHelper.APP_PROPERTY_STATUS, HttpURLConnection.HTTP_OK);
+        response.setCorrelationId(messageCaptor.getValue().getMessageId());
+        final ProtonDelivery delivery = mock(ProtonDelivery.class);
+        client.handleResponse(delivery, response);
+        responses.await();
+
+        // and a subsequent request for the key results in a new request message
+        client.createAndSendRequest("get", (Buffer) null, s -> {}, "cacheKey");
+        verify(sender, times(2)).send(any(Message.class), any(Handler.class));
+    }
+
+    /**
+     * Verifies that all handlers waiting for the outcome of a request are failed
+     * if the peer sends a response lacking a status code and that a subsequent
+     * request for the same key results in a new request message.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testHandleResponseFailsCoalescedRequestsForMalformedResponse(final TestContext ctx) {
+
+        // GIVEN two concurrent requests for the same cache key
+        client.setRequestTimeout(200);
+        final Async failures = ctx.async(2);
+        client.createAndSendRequest("get", (Buffer) null, ctx.asyncAssertFailure(t -> {
+            ctx.assertTrue(t instanceof ServerErrorException);
+            failures.countDown();
+        }), "cacheKey");
+        client.createAndSendRequest("get", (Buffer) null, ctx.asyncAssertFailure(t -> {
+            ctx.assertTrue(t instanceof ServerErrorException);
+            failures.countDown();
+        }), "cacheKey");
+        final ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(sender, times(1)).send(messageCaptor.capture(), any(Handler.class));
+
+        // WHEN the peer sends a response without a status code
+        final Message response = ProtonHelper.message("result");
+        response.setCorrelationId(messageCaptor.getValue().getMessageId());
+        final ProtonDelivery delivery = mock(ProtonDelivery.class);
+        client.handleResponse(delivery, response);
+
+        // THEN both result handlers are failed
+        failures.await();
+        // and a subsequent request for the key results in a new request message
+        client.createAndSendRequest("get", (Buffer) null, s -> {}, "cacheKey");
+        verify(sender, times(2)).send(any(Message.class), any(Handler.class));
+    }
+
+    /**
+     * Verifies that requests for the same cache key are not coalesced if
+     * requests do not time out.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCreateAndSendRequestDoesNotCoalesceRequestsWithoutTimeout() {
+
+        // GIVEN a client which does not time out requests
+        client.setRequestTimeout(0);
+
+        // WHEN sending two concurrent requests for the same cache key
+        client.createAndSendRequest("get", (Buffer) null, s -> {}, "cacheKey");
+        client.createAndSendRequest("get", (Buffer) null, s -> {}, "cacheKey");
+
+        // THEN a request message is sent for each of them
+        verify(sender, times(2)).send(any(Message.class), any(Handler.class));
+    }
+
+    /**
+     * Verifies that closing the client fails all requests waiting for a response.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testCloseFailsOutstandingRequests(final TestContext ctx) {
+
+        // GIVEN a request which is waiting for a response
+        client.setRequestTimeout(200);
+        final Async failure = ctx.async();
+        client.createAndSendRequest("get", (Buffer) null, ctx.asyncAssertFailure(t -> {
+            ctx.assertTrue(t instanceof ServerErrorException);
+            failure.complete();
+        }), "cacheKey");
+
+        // WHEN closing the client
+        client.close(s -> {});
+
+        // THEN the request is failed
+        failure.await();
+    }
+
+    /**
+     * Verifies that the client serves a response that has exceeded its max age
+     * from the cache while refreshing it in the background, if a stale grace period
+     * is configured.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCreateAndSendRequestServesStaleResponseWhileRefreshing(final TestContext ctx) {
+
+        // GIVEN a client that serves stale responses for 30 seconds
+        final RequestResponseClientConfigProperties config = new RequestResponseClientConfigProperties();
+        config.setResponseCacheStaleGracePeriod(30);
+        client = getClient("tenant", sender, receiver, config);
+        client.setRequestTimeout(0);
+        client.setResponseCache(cache);
+        // and a cached response that has exceeded its max age
+        final SimpleRequestResponseResult cachedResult = SimpleRequestResponseResult.from(
+                HttpURLConnection.HTTP_OK, Buffer.buffer("stale"), null);
+        when(cache.getExpiringValue("cacheKey")).thenReturn(
+                new BasicExpiringValue<>(cachedResult, Instant.now().plusSeconds(10)));
+
+        // WHEN getting the response from the cache
+        client.getResponseFromCache("cacheKey").setHandler(ctx.asyncAssertFailure(t -> {
+            // THEN the stale response is not considered a cache hit
+        }));
+
+        // and sending a request for it
+        final Async staleResponse = ctx.async();
+        client.createAndSendRequest("get", (Buffer) null, ctx.asyncAssertSuccess(result -> {
+            // THEN the stale response is served immediately
+            ctx.assertEquals(cachedResult, result);
+            staleResponse.complete();
+        }), "cacheKey");
+        staleResponse.await();
+
+        // and a request for a fresh response is sent to the peer
+        final ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(sender).send(messageCaptor.capture(), any(Handler.class));
+        final Message response = ProtonHelper.message("result");
+        MessageHelper.addProperty(response, MessageHelper.APP_PROPERTY_STATUS, HttpURLConnection.HTTP_OK);
+        MessageHelper.addCacheDirective(response, CacheDirective.maxAgeDirective(35));
+        response.setCorrelationId(messageCaptor.getValue().getMessageId());
+        final ProtonDelivery delivery = mock(ProtonDelivery.class);
+        client.handleResponse(delivery, response);
+
+        // which is put to the cache for its max age plus the grace period
+        verify(cache).put(eq("cacheKey"), any(SimpleRequestResponseResult.class), eq(Duration.ofSeconds(65)));
+    }
+
+    /**
+     * Verifies that the client does not serve a cached response as a stale
+     * response if it has not exceeded its max age yet.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCreateAndSendRequestDoesNotServeFreshResponseAsStale() {
+
+        // GIVEN a client that serves stale responses for 30 seconds
+        final RequestResponseClientConfigProperties config = new RequestResponseClientConfigProperties();
+        config.setResponseCacheStaleGracePeriod(30);
+        client = getClient("tenant", sender, receiver, config);
+        client.setRequestTimeout(0);
+        client.setResponseCache(cache);
+        // and a cached response that has not exceeded its max age yet
+        final SimpleRequestResponseResult cachedResult = SimpleRequestResponseResult.from(
+                HttpURLConnection.HTTP_OK, Buffer.buffer("fresh"), null);
+        when(cache.getExpiringValue("cacheKey")).thenReturn(
+                new BasicExpiringValue<>(cachedResult, Instant.now().plusSeconds(60)));
+
+        // WHEN sending a request for it
+        final Future<SimpleRequestResponseResult> result = Future.future();
+        client.createAndSendRequest("get", (Buffer) null, result.completer(), "cacheKey");
+
+        // THEN the cached response is not served as a stale response
+        assertFalse(result.isComplete());
+        // but the request is sent to the peer
+        verify(sender).send(any(Message.class), any(Handler.class));
+    }
+
+    /**
+     * Verifies that the client does not serve a stale response after the
+     * limit returned by <em>getStaleResponseLimit</em> has been reached.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCreateAndSendRequestDoesNotServeStaleResponseBeyondLimit() {
+
+        // GIVEN a client that serves stale responses for 30 seconds
+        // but only until a response specific limit is reached
+        final RequestResponseClientConfigProperties config = new RequestResponseClientConfigProperties();
+        config.setResponseCacheStaleGracePeriod(30);
+        client = new AbstractRequestResponseClient<SimpleRequestResponseResult>(context, config, "tenant", sender, receiver) {
+
+            @Override
+            protected String getName() {
+                return "peer";
+            }
+
+            @Override
+            protected String createMessageId() {
+                return MESSAGE_ID;
+            }
+
+            @Override
+            protected SimpleRequestResponseResult getResult(final int status, final Buffer payload, final CacheDirective cacheDirective) {
+                return SimpleRequestResponseResult.from(status, payload, cacheDirective);
+            }
+
+            @Override
+            protected Instant getStaleResponseLimit(final SimpleRequestResponseResult response) {
+                return Instant.now().minusSeconds(1);
+            }
+        };
+        client.setRequestTimeout(0);
+        client.setResponseCache(cache);
+        // and a cached response that has exceeded its max age
+        final SimpleRequestResponseResult cachedResult = SimpleRequestResponseResult.from(
+                HttpURLConnection.HTTP_OK, Buffer.buffer("stale"), null);
+        when(cache.getExpiringValue("cacheKey")).thenReturn(
+                new BasicExpiringValue<>(cachedResult, Instant.now().plusSeconds(10)));
+
+        // WHEN sending a request for it
+        final Future<SimpleRequestResponseResult> result = Future.future();
+        client.createAndSendRequest("get", (Buffer) null, result.completer(), "cacheKey");
+
+        // THEN the stale response is not served
+        assertFalse(result.isComplete());
+        // but the request is sent to the peer
+        verify(sender).send(any(Message.class), any(Handler.class));
+    }
+
+    /**
+     * Verifies that the client removes a stale response from the cache if the
+     * response to the refresh request must not be cached.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCreateAndSendRequestRemovesStaleResponseIfRefreshIsNotCacheable(final TestContext ctx) {
+
+        // GIVEN a client that serves stale responses for 30 seconds
+        final RequestResponseClientConfigProperties config = new RequestResponseClientConfigProperties();
+        config.setResponseCacheStaleGracePeriod(30);
+        client = getClient("tenant", sender, receiver, config);
+        client.setRequestTimeout(0);
+        client.setResponseCache(cache);
+        // and a cached response that has exceeded its max age
+        final SimpleRequestResponseResult cachedResult = SimpleRequestResponseResult.from(
+                HttpURLConnection.HTTP_OK, Buffer.buffer("stale"), null);
+        when(cache.getExpiringValue("cacheKey")).thenReturn(
+                new BasicExpiringValue<>(cachedResult, Instant.now().plusSeconds(10)));
+
+        // WHEN sending a request for it
+        final Async staleResponse = ctx.async();
+        client.createAndSendRequest("get", (Buffer) null, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals(cachedResult, result);
+            staleResponse.complete();
+        }), "cacheKey");
+        staleResponse.await();
+
+        // and the service responds to the refresh request with a 404
+        final ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(sender).send(messageCaptor.capture(), any(Handler.class));
+        final Message response = ProtonHelper.message("result");
+        MessageHelper.addProperty(response, MessageHelper.APP_PROPERTY_STATUS, HttpURLConnection.HTTP_NOT_FOUND);
+        response.setCorrelationId(messageCaptor.getValue().getMessageId());
+        client.handleResponse(mock(ProtonDelivery.class), response);
+
+        // THEN the stale response is removed from the cache
+        verify(cache, never()).put(any(), any(SimpleRequestResponseResult.class), any(Duration.class));
+        verify(cache).remove("cacheKey");
+    }
+
     private AbstractRequestResponseClient<SimpleRequestResponseResult> getClient(final String tenant, final ProtonSender sender, final ProtonReceiver receiver) {
+        return getClient(tenant, sender, receiver, new ClientConfigProperties());
+    }
+
+    private AbstractRequestResponseClient<SimpleRequestResponseResult> getClient(
+            final String tenant,
+            final ProtonSender sender,
+            final ProtonReceiver receiver,
+            final ClientConfigProperties config) {
 
-        return new AbstractRequestResponseClient<SimpleRequestResponseResult>(context, new ClientConfigProperties(), tenant, sender, receiver) {
+        return new AbstractRequestResponseClient<SimpleRequestResponseResult>(context, config, tenant, sender, receiver) {
 
             @Override
             protected String getName() {
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.client.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.net.HttpURLConnection;
+import java.time.Duration;
+
+import org.apache.qpid.proton.message.Message;
+import org.eclipse.hono.cache.ExpiringValueCache;
+import org.eclipse.hono.client.RequestResponseClientConfigProperties;
+import org.eclipse.hono.util.CacheDirective;
+import org.eclipse.hono.util.CredentialsConstants;
+import org.eclipse.hono.util.CredentialsConstants.CredentialsAction;
+import org.eclipse.hono.util.CredentialsObject;
+import org.eclipse.hono.util.CredentialsResult;
+import org.eclipse.hono.util.MessageHelper;
+import org.eclipse.hono.util.TriTuple;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.proton.ProtonDelivery;
+import io.vertx.proton.ProtonHelper;
+import io.vertx.proton.ProtonReceiver;
+import io.vertx.proton.ProtonSender;
+
+
+/**
+ * Tests verifying behavior of {@link CredentialsClientImpl}.
+ *
+ */
+@RunWith(VertxUnitRunner.class)
+public class CredentialsClientImplTest {
+
+    /**
+     * Time out test cases after 5 seconds.
+     */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    private Vertx vertx;
+    private Context context;
+    private ProtonSender sender;
+    private CredentialsClientImpl client;
+    private ExpiringValueCache<Object, CredentialsResult<CredentialsObject>> cache;
+
+    /**
+     * Sets up the fixture.
+     */
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+
+        vertx = mock(Vertx.class);
+        context = HonoClientUnitTestHelper.mockContext(vertx);
+        final ProtonReceiver receiver = HonoClientUnitTestHelper.mockProtonReceiver();
+        sender = HonoClientUnitTestHelper.mockProtonSender();
+
+        cache = mock(ExpiringValueCache.class);
+        final RequestResponseClientConfigProperties config = new RequestResponseClientConfigProperties();
+        client = new CredentialsClientImpl(context, config, "tenant", sender, receiver);
+    }
+
+    /**
+     * Verifies that on a cache miss the client retrieves credentials
+     * from the Credentials service and puts them to the cache.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testGetCredentialsAddsResponseToCacheOnCacheMiss(final TestContext ctx) {
+
+        // GIVEN a client with an empty cache
+        client.setResponseCache(cache);
+
+        // WHEN getting credentials
+        final Async get = ctx.async();
+        client.get(CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD, "device")
+            .setHandler(ctx.asyncAssertSuccess(result -> get.complete()));
+
+        final ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(sender).send(messageCaptor.capture(), any(Handler.class));
+        final Message response = ProtonHelper.message(newCredentialsResult().encode());
+        MessageHelper.addProperty(response, MessageHelper.APP_PROPERTY_STATUS, HttpURLConnection.HTTP_OK);
+        MessageHelper.addCacheDirective(response, CacheDirective.maxAgeDirective(60));
+        response.setCorrelationId(messageCaptor.getValue().getMessageId());
+        final ProtonDelivery delivery = mock(ProtonDelivery.class);
+        client.handleResponse(delivery, response);
+
+        // THEN the credentials have been added to the cache
+        get.await();
+        verify(cache).put(
+                eq(TriTuple.of(CredentialsAction.get, CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD, "device")),
+                any(CredentialsResult.class),
+                eq(Duration.ofSeconds(60)));
+    }
+
+    /**
+     * Verifies that credentials are taken from the cache if the cache contains
+     * an entry for the type and authentication identifier.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testGetCredentialsReturnsValueFromCache(final TestContext ctx) {
+
+        // GIVEN a client with a cache containing the credentials
+        client.setResponseCache(cache);
+        final CredentialsObject credentials = newCredentialsResult().mapTo(CredentialsObject.class);
+        when(cache.get(any())).thenReturn(CredentialsResult.from(HttpURLConnection.HTTP_OK, credentials));
+
+        // WHEN getting credentials
+        client.get(CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD, "device").setHandler(ctx.asyncAssertSuccess(result -> {
+            // THEN the credentials are read from the cache
+            ctx.assertEquals("device", result.getDeviceId());
+            // and no request is sent to the service
+            verify(sender, never()).send(any(Message.class), any(Handler.class));
+        }));
+    }
+
+    /**
+     * Verifies that the client removes credentials from the cache.
+     */
+    @Test
+    public void testRemoveFromCacheRemovesCredentials() {
+
+        // GIVEN a client with a cache
+        client.setResponseCache(cache);
+
+        // WHEN removing credentials from the cache
+        client.removeFromCache(CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD, "device");
+
+        // THEN the corresponding cache entry is removed
+        verify(cache).remove(TriTuple.of(CredentialsAction.get, CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD, "device"));
+    }
+
+    private static JsonObject newCredentialsResult() {
+        return JsonObject.mapFrom(CredentialsObject.fromHashedPassword(
+                "device", "device", "secret", CredentialsConstants.DEFAULT_HASH_FUNCTION, null, null, null));
+    }
+}
@@ -12,11 +12,13 @@
  *******************************************************************************/
 package org.eclipse.hono.client.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.net.HttpURLConnection;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.vertx.core.Context;
@@ -26,6 +28,7 @@ import org.apache.qpid.proton.amqp.messaging.Accepted;
 import org.apache.qpid.proton.amqp.messaging.Rejected;
 import org.apache.qpid.proton.message.Message;
 import org.eclipse.hono.client.MessageSender;
+import org.eclipse.hono.client.ServerErrorException;
 import org.eclipse.hono.config.ClientConfigProperties;
 import org.junit.Before;
 import org.junit.Test;
@@ -66,7 +69,8 @@ public class EventSenderImplTest {
 
     /**
      * Verifies that the sender waits for the peer to settle and
-     * accept a message before succeeding the returned future.
+     * accept a message before succeeding the returned future and that
+     * it does not time out waiting by default.
      * 
      * @param ctx The vert.x test context.
      */
@@ -90,6 +94,8 @@ public class EventSenderImplTest {
         // and the result is not completed yet
         verify(sender).send(any(Message.class), eq(handlerRef.get()));
         assertFalse(result.isComplete());
+        // and no timeout has been scheduled because it is disabled by default
+        verify(vertx, never()).setPeriodic(anyLong(), any(Handler.class));
 
         // until it gets accepted by the peer
         final ProtonDelivery accepted = mock(ProtonDelivery.class);
@@ -155,4 +161,87 @@ public class EventSenderImplTest {
         verify(sender, never()).send(any(Message.class), any(Handler.class));
     }
 
+    /**
+     * Verifies that the sender fails with a 503 status and settles the delivery
+     * if the peer does not settle the message in time.
+     */
+    @SuppressWarnings({ "unchecked" })
+    @Test
+    public void testSendMessageFailsIfPeerDoesNotSettleInTime() {
+
+        // GIVEN a sender that has credit
+        when(sender.sendQueueFull()).thenReturn(Boolean.FALSE);
+        config.setSendMessageTimeout(100);
+        final AtomicReference<Handler<Long>> tickHandler = new AtomicReference<>();
+        when(vertx.setPeriodic(anyLong(), any(Handler.class))).thenAnswer(invocation -> {
+            tickHandler.set(invocation.getArgument(1));
+            return 1L;
+        });
+        final MessageSender messageSender = new EventSenderImpl(config, sender, "tenant", "event/tenant", context);
+        final AtomicReference<Handler<ProtonDelivery>> handlerRef = new AtomicReference<>();
+        final ProtonDelivery delivery = mock(ProtonDelivery.class);
+        doAnswer(invocation -> {
+            handlerRef.set(invocation.getArgument(1));
+            return delivery;
+        }).when(sender).send(any(Message.class), any(Handler.class));
+
+        // WHEN sending a message which the peer never settles
+        final Future<ProtonDelivery> result = messageSender.send("device", "some payload", "application/text", "token");
+        assertFalse(result.isComplete());
+        while (!result.isComplete()) {
+            tickHandler.get().handle(1L);
+        }
+
+        // THEN the result fails with a 503
+        assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, ((ServerErrorException) result.cause()).getErrorCode());
+        // and the delivery has been settled locally
+        verify(delivery).settle();
+        // and the periodic timer has been cancelled
+        verify(vertx).cancelTimer(1L);
+
+        // and a late update of the delivery is ignored
+        final ProtonDelivery accepted = mock(ProtonDelivery.class);
+        when(accepted.remotelySettled()).thenReturn(Boolean.TRUE);
+        when(accepted.getRemoteState()).thenReturn(new Accepted());
+        handlerRef.get().handle(accepted);
+        assertTrue(result.failed());
+    }
+
+    /**
+     * Verifies that the outcome timeout is cancelled once the peer settles the message.
+     */
+    @SuppressWarnings({ "unchecked" })
+    @Test
+    public void testSendMessageCancelsTimeoutOnOutcome() {
+
+        // GIVEN a sender that has credit
+        when(sender.sendQueueFull()).thenReturn(Boolean.FALSE);
+        config.setSendMessageTimeout(100);
+        final AtomicReference<Handler<Long>> tickHandler = new AtomicReference<>();
+        when(vertx.setPeriodic(anyLong(), any(Handler.class))).thenAnswer(invocation -> {
+            tickHandler.set(invocation.getArgument(1));
+            return 1L;
+        });
+        final MessageSender messageSender = new EventSenderImpl(config, sender, "tenant", "event/tenant", context);
+        final AtomicReference<Handler<ProtonDelivery>> handlerRef = new AtomicReference<>();
+        final ProtonDelivery delivery = mock(ProtonDelivery.class);
+        doAnswer(invocation -> {
+            handlerRef.set(invocation.getArgument(1));
+            return delivery;
+        }).when(sender).send(any(Message.class), any(Handler.class));
+
+        // WHEN sending a message which gets accepted by the peer
+        final Future<ProtonDelivery> result = messageSender.send("device", "some payload", "application/text", "token");
+        final ProtonDelivery accepted = mock(ProtonDelivery.class);
+        when(accepted.remotelySettled()).thenReturn(Boolean.TRUE);
+        when(accepted.getRemoteState()).thenReturn(new Accepted());
+        handlerRef.get().handle(accepted);
+
+        // THEN the result succeeds and stays succeeded even after the wheel has turned a full round
+        for (int i = 0; i < 20; i++) {
+            tickHandler.get().handle(1L);
+        }
+        assertTrue(result.succeeded());
+        verify(delivery, never()).settle();
+    }
 }
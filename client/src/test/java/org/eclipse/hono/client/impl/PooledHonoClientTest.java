@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.client.impl;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.hono.client.HonoClient;
+import org.eclipse.hono.client.MessageSender;
+import org.eclipse.hono.client.RegistrationClient;
+import org.eclipse.hono.client.ServerErrorException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+
+import io.vertx.core.Future;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Test cases verifying the behavior of {@link PooledHonoClient}.
+ *
+ */
+@RunWith(VertxUnitRunner.class)
+public class PooledHonoClientTest {
+
+    /**
+     * Global timeout for each test case.
+     */
+    @Rule
+    public Timeout timeout = Timeout.seconds(3);
+
+    private HonoClient first;
+    private HonoClient second;
+    private HonoClient third;
+    private PooledHonoClient client;
+
+    /**
+     * Sets up fixture.
+     */
+    @Before
+    public void setUp() {
+
+        first = mock(HonoClient.class);
+        second = mock(HonoClient.class);
+        third = mock(HonoClient.class);
+        client = new PooledHonoClient(Arrays.asList(first, second, third));
+    }
+
+    /**
+     * Verifies that all senders and clients for a tenant are created on the
+     * same connection and that tenants are distributed among the connections.
+     */
+    @Test
+    public void testTenantsAreAssignedToConnectionsDeterministically() {
+
+        final List<HonoClient> pool = Arrays.asList(first, second, third);
+        for (final String tenantId : Arrays.asList("DEFAULT_TENANT", "tenant-1", "tenant-2", "tenant-3")) {
+            final HonoClient expected = pool.get(Math.floorMod(tenantId.hashCode(), pool.size()));
+            assertSame(expected, client.getClient(tenantId));
+            assertSame(client.getClient(tenantId), client.getClient(tenantId));
+        }
+        // GIVEN a pool client for which the connections are mocked
+        final MessageSender sender = mock(MessageSender.class);
+        final RegistrationClient registrationClient = mock(RegistrationClient.class);
+        final HonoClient assignedClient = client.getClient("tenant-1");
+        when(assignedClient.getOrCreateTelemetrySender("tenant-1")).thenReturn(Future.succeededFuture(sender));
+        when(assignedClient.getOrCreateRegistrationClient("tenant-1")).thenReturn(Future.succeededFuture(registrationClient));
+
+        // WHEN creating a sender and a registration client for a tenant
+        // THEN both are created on the connection that the tenant is assigned to
+        assertSame(sender, client.getOrCreateTelemetrySender("tenant-1").result());
+        assertSame(registrationClient, client.getOrCreateRegistrationClient("tenant-1").result());
+        for (final HonoClient other : pool) {
+            if (other != assignedClient) {
+                verify(other, never()).getOrCreateTelemetrySender(anyString());
+                verify(other, never()).getOrCreateRegistrationClient(anyString());
+            }
+        }
+    }
+
+    /**
+     * Verifies that the client establishes all connections of the pool and
+     * succeeds once all of them are established.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testConnectEstablishesAllConnections(final TestContext ctx) {
+
+        // GIVEN a pool of clients which can connect to the peer
+        for (final HonoClient pooledClient : Arrays.asList(first, second, third)) {
+            when(pooledClient.connect(any(), any())).thenReturn(Future.succeededFuture(pooledClient));
+        }
+
+        // WHEN connecting the pool client
+        client.connect().setHandler(ctx.asyncAssertSuccess(con -> {
+            // THEN all connections have been established
+            ctx.assertEquals(client, con);
+            verify(first).connect(null, null);
+            verify(second).connect(null, null);
+            verify(third).connect(null, null);
+        }));
+    }
+
+    /**
+     * Verifies that the client is not considered connected if any of the
+     * connections of the pool is not established.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testIsConnectedFailsIfAnyConnectionIsLost(final TestContext ctx) {
+
+        // GIVEN a pool of which one connection has been lost
+        when(first.isConnected()).thenReturn(Future.succeededFuture());
+        when(second.isConnected()).thenReturn(Future.failedFuture(
+                new ServerErrorException(HttpURLConnection.HTTP_UNAVAILABLE, "no connection to service")));
+        when(third.isConnected()).thenReturn(Future.succeededFuture());
+
+        // WHEN checking if the pool client is connected
+        client.isConnected().setHandler(ctx.asyncAssertFailure(t -> {
+            // THEN the check fails
+            ctx.assertTrue(t instanceof ServerErrorException);
+        }));
+    }
+}
@@ -14,6 +14,7 @@
 package org.eclipse.hono.client.impl;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -21,10 +22,12 @@ import static org.mockito.Mockito.*;
 
 import java.net.HttpURLConnection;
 import java.sql.Date;
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 
 import org.apache.qpid.proton.message.Message;
+import org.eclipse.hono.cache.BasicExpiringValue;
 import org.eclipse.hono.cache.ExpiringValueCache;
 import org.eclipse.hono.client.RequestResponseClientConfigProperties;
 import org.eclipse.hono.util.CacheDirective;
@@ -42,6 +45,7 @@ import org.mockito.ArgumentCaptor;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.vertx.core.Context;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
@@ -177,6 +181,72 @@ public class RegistrationClientImplTest {
 
     }
 
+    /**
+     * Verifies that a stale registration assertion is served from the cache only
+     * until the assertion expires, even if the stale grace period has not elapsed yet.
+     * 
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAssertRegistrationDoesNotServeStaleResponseWithExpiredAssertion(final TestContext ctx) {
+
+        // GIVEN a client that serves stale responses for 30 seconds
+        final RequestResponseClientConfigProperties config = new RequestResponseClientConfigProperties();
+        config.setResponseCacheStaleGracePeriod(30);
+        client = new RegistrationClientImpl(context, config, "tenant", sender, HonoClientUnitTestHelper.mockProtonReceiver());
+        client.setRequestTimeout(0);
+        client.setResponseCache(cache);
+        when(cache.getClock()).thenReturn(Clock.systemUTC());
+        // and a cached response that has exceeded its max age
+        // but contains an assertion that has already expired
+        final RegistrationResult staleResult = RegistrationResult.from(HttpURLConnection.HTTP_OK,
+                newRegistrationAssertionResult(null, Instant.now().minusSeconds(1)));
+        when(cache.getExpiringValue(TriTuple.of("assert", "device", null))).thenReturn(
+                new BasicExpiringValue<>(staleResult, Instant.now().plusSeconds(20)));
+
+        // WHEN getting registration information
+        final Future<JsonObject> result = client.assertRegistration("device");
+
+        // THEN the stale response is not served
+        assertFalse(result.isComplete());
+        // but a fresh assertion is requested from the service
+        verify(sender).send(any(Message.class), any(Handler.class));
+    }
+
+    /**
+     * Verifies that a stale registration assertion that has not expired yet is served
+     * from the cache while a fresh assertion is requested.
+     * 
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAssertRegistrationServesStaleResponseWithValidAssertion(final TestContext ctx) {
+
+        // GIVEN a client that serves stale responses for 30 seconds
+        final RequestResponseClientConfigProperties config = new RequestResponseClientConfigProperties();
+        config.setResponseCacheStaleGracePeriod(30);
+        client = new RegistrationClientImpl(context, config, "tenant", sender, HonoClientUnitTestHelper.mockProtonReceiver());
+        client.setRequestTimeout(0);
+        client.setResponseCache(cache);
+        when(cache.getClock()).thenReturn(Clock.systemUTC());
+        // and a cached response that has exceeded its max age
+        // but contains an assertion that is still valid
+        final JsonObject registrationAssertion = newRegistrationAssertionResult();
+        final RegistrationResult staleResult = RegistrationResult.from(HttpURLConnection.HTTP_OK, registrationAssertion);
+        when(cache.getExpiringValue(TriTuple.of("assert", "device", null))).thenReturn(
+                new BasicExpiringValue<>(staleResult, Instant.now().plusSeconds(20)));
+
+        // WHEN getting registration information
+        client.assertRegistration("device").setHandler(ctx.asyncAssertSuccess(result -> {
+            // THEN the stale assertion is served
+            ctx.assertEquals(registrationAssertion, result);
+            // and a fresh assertion is requested from the service
+            verify(sender).send(any(Message.class), any(Handler.class));
+        }));
+    }
+
     /**
      * Verifies that the client includes the required information in the request
      * message sent to the Device Registration service.
@@ -210,10 +280,14 @@ public class RegistrationClientImplTest {
     }
 
     private static JsonObject newRegistrationAssertionResult(final String defaultContentType) {
+        return newRegistrationAssertionResult(defaultContentType, Instant.now().plusSeconds(10));
+    }
+
+    private static JsonObject newRegistrationAssertionResult(final String defaultContentType, final Instant expiration) {
 
         final String token = Jwts.builder()
             .signWith(SignatureAlgorithm.HS256, "asecretkeywithatleastthirtytwobytes")
-            .setExpiration(Date.from(Instant.now().plusSeconds(10)))
+            .setExpiration(Date.from(expiration))
             .setIssuer("test")
             .compact();
         final JsonObject result = new JsonObject().put(RegistrationConstants.FIELD_ASSERTION, token);
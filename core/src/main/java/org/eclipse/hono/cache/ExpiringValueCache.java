@@ -13,6 +13,7 @@
 
 package org.eclipse.hono.cache;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 
@@ -60,4 +61,36 @@ public interface ExpiringValueCache<K, V> {
      *         if the value is expired.
      */
     V get(K key);
+
+    /**
+     * Gets a value from the cache along with its validity period.
+     * <p>
+     * This method can be used to determine if a value will expire
+     * within a given period of time.
+     * 
+     * @param key The key to get the value for.
+     * @return The value or {@code null} if no value exists for the key or
+     *         if the value is expired.
+     */
+    ExpiringValue<V> getExpiringValue(K key);
+
+    /**
+     * Removes a value from the cache.
+     * <p>
+     * This method does nothing if no value exists for the key.
+     * 
+     * @param key The key to remove the value for.
+     */
+    void remove(K key);
+
+    /**
+     * Gets the clock that the expiration of values is checked against.
+     * <p>
+     * This default implementation returns the system UTC clock.
+     *
+     * @return The clock.
+     */
+    default Clock getClock() {
+        return Clock.systemUTC();
+    }
 }
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.cache;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A provider for {@link InMemoryExpiringValueCache} instances.
+ * <p>
+ * The provider creates a separate cache for each name, all sharing
+ * the same configuration and clock. Subsequent invocations of
+ * {@link #getCache(String)} for the same name return the same instance.
+ */
+public final class InMemoryCacheProvider implements CacheProvider {
+
+    private final Map<String, InMemoryExpiringValueCache<?, ?>> caches = new ConcurrentHashMap<>();
+    private final long maxSize;
+    private final int initialCapacity;
+    private final Clock clock;
+
+    /**
+     * Creates a new provider.
+     *
+     * @param maxSize The maximum number of entries that the created caches may hold.
+     * @param initialCapacity The number of entries to allocate space for initially.
+     * @param clock The clock to check the expiration of entries against.
+     * @throws NullPointerException if clock is {@code null}.
+     * @throws IllegalArgumentException if max size is &lt;= 0 or if initial capacity is &lt; 0.
+     */
+    public InMemoryCacheProvider(final long maxSize, final int initialCapacity, final Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("max size must be > 0");
+        }
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initial capacity must be >= 0");
+        }
+        this.maxSize = maxSize;
+        this.initialCapacity = initialCapacity;
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K, V> ExpiringValueCache<K, V> getCache(final String cacheName) {
+
+        Objects.requireNonNull(cacheName);
+        return (ExpiringValueCache<K, V>) caches.computeIfAbsent(cacheName, name -> new InMemoryExpiringValueCache<>(
+                maxSize, initialCapacity, Long.MAX_VALUE, (key, value) -> 0, clock));
+    }
+}
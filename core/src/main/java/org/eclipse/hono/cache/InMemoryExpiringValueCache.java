@@ -0,0 +1,379 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A bounded, thread safe cache for expiring values that is kept in the local heap.
+ * <p>
+ * The cache is bounded by a maximum number of entries and, optionally, by a maximum
+ * total weight of the cached entries as determined by a <em>weigher</em> function.
+ * Once any of the bounds is exceeded, least recently used entries are evicted.
+ * <p>
+ * In order to support concurrent access, the entries are distributed over a number
+ * of segments, each of which is guarded by its own lock and is responsible for an
+ * equal share of the bounds. Eviction order is therefore LRU per segment only.
+ * <p>
+ * Entries are not removed actively when they expire. Instead, expired entries are
+ * removed when they are looked up or when they are evicted. Expiration is checked
+ * against the millisecond time of a (shared) {@code Clock}, so that looking up
+ * a value does not require creating any temporary objects.
+ * <p>
+ * The cache keeps track of the number of hits, misses and evictions. The counters
+ * are maintained per segment under the segment's lock, so they do not introduce
+ * any additional contention.
+ *
+ * @param <K> The type of keys that the cache supports.
+ * @param <V> The type of values that the cache supports.
+ */
+public final class InMemoryExpiringValueCache<K, V> implements ExpiringValueCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_ENTRIES_PER_SEGMENT = 32;
+
+    private final Clock clock;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final Segment<K, V>[] segments;
+
+    /**
+     * Creates a new cache that is bounded by the number of entries only.
+     * <p>
+     * Expiration is checked against the system UTC clock.
+     *
+     * @param maxSize The maximum number of entries to keep in the cache.
+     * @throws IllegalArgumentException if max size is &lt;= 0.
+     */
+    public InMemoryExpiringValueCache(final long maxSize) {
+        this(maxSize, 0, Long.MAX_VALUE, (key, value) -> 0, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize The maximum number of entries to keep in the cache.
+     * @param initialCapacity The number of entries to allocate space for initially.
+     * @param maxWeight The maximum total weight of the entries to keep in the cache.
+     * @param weigher The function to use for determining the weight of an entry.
+     *                The function must return a non-negative value.
+     * @param clock The clock to check the expiration of entries against.
+     * @throws NullPointerException if weigher or clock are {@code null}.
+     * @throws IllegalArgumentException if max size or max weight is &lt;= 0 or if initial capacity
+     *                                  is &lt; 0.
+     */
+    @SuppressWarnings("unchecked")
+    public InMemoryExpiringValueCache(
+            final long maxSize,
+            final int initialCapacity,
+            final long maxWeight,
+            final ToIntBiFunction<? super K, ? super V> weigher,
+            final Clock clock) {
+
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("max size must be > 0");
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("max weight must be > 0");
+        }
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initial capacity must be >= 0");
+        }
+        this.weigher = Objects.requireNonNull(weigher);
+        this.clock = Objects.requireNonNull(clock);
+
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * 2L * MIN_ENTRIES_PER_SEGMENT <= maxSize) {
+            segmentCount *= 2;
+        }
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // distribute remainders so that the bounds are never exceeded in total
+            final long segmentMaxSize = maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0);
+            final long segmentMaxWeight = maxWeight / segmentCount + (i < maxWeight % segmentCount ? 1 : 0);
+            segments[i] = new Segment<>(segmentMaxSize, segmentMaxWeight, initialCapacity / segmentCount);
+        }
+    }
+
+    @Override
+    public void put(final K key, final V value, final Instant expirationTime) {
+
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(expirationTime);
+
+        final long expiresAt = expirationTime.toEpochMilli();
+        if (expiresAt <= clock.millis()) {
+            throw new IllegalArgumentException("value is already expired");
+        }
+        final int weight = weigher.applyAsInt(key, value);
+        if (weight < 0) {
+            throw new IllegalStateException("weigher must not return negative values");
+        }
+        segmentFor(key).put(key, new Entry<>(value, expiresAt, weight));
+    }
+
+    @Override
+    public void put(final K key, final V value, final Duration maxAge) {
+
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(maxAge);
+
+        put(key, value, Instant.ofEpochMilli(clock.millis()).plus(maxAge));
+    }
+
+    @Override
+    public V get(final K key) {
+
+        final Entry<V> entry = lookup(key);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public ExpiringValue<V> getExpiringValue(final K key) {
+
+        final Entry<V> entry = lookup(key);
+        return entry == null ? null : new CachedValue(entry);
+    }
+
+    private Entry<V> lookup(final K key) {
+
+        if (key == null) {
+            return null;
+        }
+        return segmentFor(key).get(key, clock.millis());
+    }
+
+    @Override
+    public void remove(final K key) {
+
+        if (key != null) {
+            segmentFor(key).remove(key);
+        }
+    }
+
+    @Override
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Gets the number of entries currently contained in the cache.
+     * <p>
+     * The number may include entries that have already expired but have
+     * not been removed yet.
+     *
+     * @return The number of entries.
+     */
+    public long size() {
+        long size = 0;
+        for (final Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of lookups that have returned a (non-expired) value.
+     *
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        long count = 0;
+        for (final Segment<K, V> segment : segments) {
+            count += segment.getHitCount();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of lookups that have not returned a value because
+     * no entry existed for the key or because the entry had expired.
+     *
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        long count = 0;
+        for (final Segment<K, V> segment : segments) {
+            count += segment.getMissCount();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of entries that have been evicted in order to
+     * comply with the cache's bounds.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictionCount() {
+        long count = 0;
+        for (final Segment<K, V> segment : segments) {
+            count += segment.getEvictionCount();
+        }
+        return count;
+    }
+
+    private Segment<K, V> segmentFor(final Object key) {
+        final int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * A cached value along with its expiration time and weight.
+     *
+     * @param <V> The type of value.
+     */
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long expiresAt;
+        private final int weight;
+
+        Entry(final V value, final long expiresAt, final int weight) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.weight = weight;
+        }
+
+        boolean isExpired(final long now) {
+            return now > expiresAt;
+        }
+    }
+
+    /**
+     * A view on a cached entry which checks expiration against the cache's clock.
+     */
+    private final class CachedValue implements ExpiringValue<V> {
+
+        private final Entry<V> entry;
+
+        CachedValue(final Entry<V> entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public V getValue() {
+            return entry.value;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return entry.isExpired(clock.millis());
+        }
+
+        @Override
+        public boolean isExpired(final Instant refInstant) {
+            Objects.requireNonNull(refInstant);
+            return entry.isExpired(refInstant.toEpochMilli());
+        }
+    }
+
+    /**
+     * A share of the cache's entries that is guarded by a single lock.
+     *
+     * @param <K> The type of keys.
+     * @param <V> The type of values.
+     */
+    private static final class Segment<K, V> {
+
+        private final long maxSize;
+        private final long maxWeight;
+        private final LinkedHashMap<K, Entry<V>> entries;
+        private long weight;
+        private long hitCount;
+        private long missCount;
+        private long evictionCount;
+
+        Segment(final long maxSize, final long maxWeight, final int initialCapacity) {
+            this.maxSize = maxSize;
+            this.maxWeight = maxWeight;
+            // access order makes the eldest entry the least recently used one
+            this.entries = new LinkedHashMap<>(initialCapacity, 0.75f, true);
+        }
+
+        synchronized Entry<V> get(final K key, final long now) {
+            final Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                missCount++;
+                return null;
+            } else if (entry.isExpired(now)) {
+                entries.remove(key);
+                weight -= entry.weight;
+                missCount++;
+                return null;
+            } else {
+                hitCount++;
+                return entry;
+            }
+        }
+
+        /**
+         * Puts an entry to this segment, evicting least recently used
+         * entries as necessary.
+         */
+        synchronized void put(final K key, final Entry<V> entry) {
+
+            final Entry<V> oldEntry = entries.remove(key);
+            if (oldEntry != null) {
+                weight -= oldEntry.weight;
+            }
+            if (entry.weight > maxWeight) {
+                // entry would evict everything else and still not fit
+                evictionCount++;
+                return;
+            }
+            entries.put(key, entry);
+            weight += entry.weight;
+
+            final Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            while ((entries.size() > maxSize || weight > maxWeight) && eldest.hasNext()) {
+                final Entry<V> evictedEntry = eldest.next().getValue();
+                eldest.remove();
+                weight -= evictedEntry.weight;
+                evictionCount++;
+            }
+        }
+
+        synchronized void remove(final K key) {
+            final Entry<V> entry = entries.remove(key);
+            if (entry != null) {
+                weight -= entry.weight;
+            }
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long getHitCount() {
+            return hitCount;
+        }
+
+        synchronized long getMissCount() {
+            return missCount;
+        }
+
+        synchronized long getEvictionCount() {
+            return evictionCount;
+        }
+    }
+}
@@ -30,6 +30,7 @@ public class ApplicationConfigProperties {
 
     private int healthCheckPort = Constants.PORT_UNCONFIGURED;
     private String healthCheckBindAddress = Constants.LOOPBACK_DEVICE_ADDRESS;
+    private boolean metricsEndpointEnabled = false;
 
     /**
      * Gets the maximum time to wait for the server to start up.
@@ -135,4 +136,25 @@ public class ApplicationConfigProperties {
         this.healthCheckBindAddress = Objects.requireNonNull(address);
     }
 
+    /**
+     * Checks if the HTTP server hosting the health check resources should also expose
+     * a resource for scraping the application's metrics.
+     *
+     * @return {@code true} if the metrics should be exposed.
+     */
+    public final boolean isMetricsEndpointEnabled() {
+        return metricsEndpointEnabled;
+    }
+
+    /**
+     * Sets whether the HTTP server hosting the health check resources should also expose
+     * a resource for scraping the application's metrics.
+     * <p>
+     * The default value of this property is {@code false}.
+     *
+     * @param enabled {@code true} if the metrics should be exposed.
+     */
+    public final void setMetricsEndpointEnabled(final boolean enabled) {
+        this.metricsEndpointEnabled = enabled;
+    }
 }
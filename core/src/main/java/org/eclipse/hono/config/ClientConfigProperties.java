@@ -38,6 +38,16 @@ public class ClientConfigProperties extends AbstractConfig {
      * The default amount of time to wait for a response before a request times out.
      */
     public static final long DEFAULT_REQUEST_TIMEOUT = 200L; // ms
+    /**
+     * The default amount of time to wait for the outcome of a message transfer.
+     * <p>
+     * The default value of 0 means that the client waits indefinitely.
+     */
+    public static final long DEFAULT_SEND_MESSAGE_TIMEOUT = 0L; // ms
+    /**
+     * The default number of connections to establish with the peer.
+     */
+    public static final int  DEFAULT_CONNECTION_POOL_SIZE = 1;
 
     private String name;
     private String host = "localhost";
@@ -49,9 +59,11 @@ public class ClientConfigProperties extends AbstractConfig {
     private long flowLatency = DEFAULT_FLOW_LATENCY;
     private int initialCredits = DEFAULT_INITIAL_CREDITS;
     private long requestTimeoutMillis = DEFAULT_REQUEST_TIMEOUT;
+    private long sendMessageTimeoutMillis = DEFAULT_SEND_MESSAGE_TIMEOUT;
     private boolean hostnameVerificationRequired = true;
     private boolean tlsEnabled = false;
     private int reconnectAttempts = -1;
+    private int connectionPoolSize = DEFAULT_CONNECTION_POOL_SIZE;
 
     /**
      * Gets the name or literal IP address of the host that the client is configured to connect to.
@@ -345,6 +357,39 @@ public class ClientConfigProperties extends AbstractConfig {
         }
     }
 
+    /**
+     * Gets the maximum amount of time a client should wait for the peer to settle
+     * a message that has been sent with <em>at least once</em> delivery semantics
+     * before the transfer is failed.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_SEND_MESSAGE_TIMEOUT}.
+     *
+     * @return The maximum number of milliseconds to wait or 0 if the client
+     *         should wait indefinitely.
+     */
+    public final long getSendMessageTimeout() {
+        return sendMessageTimeoutMillis;
+    }
+
+    /**
+     * Sets the maximum amount of time a client should wait for the peer to settle
+     * a message that has been sent with <em>at least once</em> delivery semantics
+     * before the transfer is failed.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_SEND_MESSAGE_TIMEOUT}.
+     *
+     * @param sendMessageTimeoutMillis The maximum number of milliseconds to wait
+     *                                 or 0 if the client should wait indefinitely.
+     * @throws IllegalArgumentException if the timeout is negative.
+     */
+    public final void setSendMessageTimeout(final long sendMessageTimeoutMillis) {
+        if (sendMessageTimeoutMillis < 0) {
+            throw new IllegalArgumentException("send message timeout must not be negative");
+        } else {
+            this.sendMessageTimeoutMillis = sendMessageTimeoutMillis;
+        }
+    }
+
     /**
      * Checks if the <em>host</em> property must match the distinguished or
      * any of the alternative names asserted by the server's certificate when
@@ -438,4 +483,39 @@ public class ClientConfigProperties extends AbstractConfig {
             this.reconnectAttempts = attempts;
         }
     }
+
+    /**
+     * Gets the number of AMQP connections that the client should establish with the peer.
+     * <p>
+     * A value greater than 1 makes the client use a pool of connections.
+     * Tenants are then assigned to the connections of the pool deterministically
+     * based on the tenant identifier.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_CONNECTION_POOL_SIZE}.
+     *
+     * @return The number of connections.
+     */
+    public final int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    /**
+     * Sets the number of AMQP connections that the client should establish with the peer.
+     * <p>
+     * A value greater than 1 makes the client use a pool of connections.
+     * Tenants are then assigned to the connections of the pool deterministically
+     * based on the tenant identifier.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_CONNECTION_POOL_SIZE}.
+     *
+     * @param size The number of connections.
+     * @throws IllegalArgumentException if size is &lt; 1.
+     */
+    public final void setConnectionPoolSize(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("connection pool size must be > 0");
+        } else {
+            this.connectionPoolSize = size;
+        }
+    }
 }
@@ -22,6 +22,9 @@ public class ProtocolAdapterProperties extends ServiceConfigProperties {
     private boolean authenticationRequired = true;
     private boolean jmsVendorPropsEnabled = false;
     private boolean defaultsEnabled = true;
+    private int maxMessagesAwaitingCredit = 0;
+    private long creditWaitTimeout = 1000L;
+    private int deviceLinkCredit = 0;
 
     /**
      * Checks whether the protocol adapter always authenticates devices using their provided credentials as defined
@@ -130,4 +133,108 @@ public class ProtocolAdapterProperties extends ServiceConfigProperties {
     public void setDefaultsEnabled(final boolean flag) {
         this.defaultsEnabled = flag;
     }
+
+    /**
+     * Gets the maximum number of messages per downstream link that the adapter
+     * holds back while waiting for the link to be replenished with credit.
+     * <p>
+     * Messages published by devices while a downstream link has no credit are
+     * forwarded once the link has been replenished. Messages exceeding this limit
+     * are rejected like before. This property is currently supported by MQTT based
+     * adapters only.
+     * <p>
+     * The default value of this property is 0, which means that messages are rejected
+     * immediately if the downstream link has no credit.
+     * 
+     * @return The maximum number of messages.
+     */
+    public final int getMaxMessagesAwaitingCredit() {
+        return maxMessagesAwaitingCredit;
+    }
+
+    /**
+     * Sets the maximum number of messages per downstream link that the adapter
+     * holds back while waiting for the link to be replenished with credit.
+     * <p>
+     * The default value of this property is 0, which means that messages are rejected
+     * immediately if the downstream link has no credit.
+     * 
+     * @param maxMessages The maximum number of messages.
+     * @throws IllegalArgumentException if the number is &lt; 0.
+     */
+    public final void setMaxMessagesAwaitingCredit(final int maxMessages) {
+        if (maxMessages < 0) {
+            throw new IllegalArgumentException("max messages must be >= 0");
+        }
+        this.maxMessagesAwaitingCredit = maxMessages;
+    }
+
+    /**
+     * Gets the maximum amount of time that a message held back by the adapter
+     * waits for the downstream link to be replenished with credit.
+     * <p>
+     * Messages are rejected once this time has passed without the link having
+     * been replenished. This property is only relevant if
+     * {@link #getMaxMessagesAwaitingCredit()} is &gt; 0.
+     * <p>
+     * The default value of this property is 1000.
+     * 
+     * @return The number of milliseconds to wait.
+     */
+    public final long getCreditWaitTimeout() {
+        return creditWaitTimeout;
+    }
+
+    /**
+     * Sets the maximum amount of time that a message held back by the adapter
+     * waits for the downstream link to be replenished with credit.
+     * <p>
+     * The default value of this property is 1000.
+     * 
+     * @param timeoutMillis The number of milliseconds to wait.
+     * @throws IllegalArgumentException if the timeout is &lt;= 0.
+     */
+    public final void setCreditWaitTimeout(final long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("credit wait timeout must be > 0");
+        }
+        this.creditWaitTimeout = timeoutMillis;
+    }
+
+    /**
+     * Gets the number of credits that the adapter issues to links opened by devices
+     * for uploading messages.
+     * <p>
+     * If set to a value &gt; 0, the adapter does not use a fixed prefetch window
+     * but issues credit for another message only after a message received from a
+     * device has been processed and the downstream link that the message has been
+     * forwarded on has credit left. This way, devices are slowed down if downstream
+     * consumers cannot keep up. This property is currently supported by the AMQP
+     * adapter only.
+     * <p>
+     * The default value of this property is 0, which means that the adapter
+     * issues credit to devices independently of the downstream links' credit.
+     * 
+     * @return The number of credits.
+     */
+    public final int getDeviceLinkCredit() {
+        return deviceLinkCredit;
+    }
+
+    /**
+     * Sets the number of credits that the adapter issues to links opened by devices
+     * for uploading messages.
+     * <p>
+     * The default value of this property is 0, which means that the adapter
+     * issues credit to devices independently of the downstream links' credit.
+     * 
+     * @param credit The number of credits.
+     * @throws IllegalArgumentException if credit is &lt; 0.
+     */
+    public final void setDeviceLinkCredit(final int credit) {
+        if (credit < 0) {
+            throw new IllegalArgumentException("credit must be >= 0");
+        }
+        this.deviceLinkCredit = credit;
+    }
 }
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.cache;
+
+import static org.junit.Assert.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests verifying behavior of {@link InMemoryExpiringValueCache}.
+ *
+ */
+public class InMemoryExpiringValueCacheTest {
+
+    private MutableClock clock;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+        clock = new MutableClock(Instant.parse("2018-06-01T10:00:00Z"));
+    }
+
+    /**
+     * Verifies that a value can be retrieved until it expires.
+     */
+    @Test
+    public void testGetReturnsValueUntilExpired() {
+
+        final InMemoryExpiringValueCache<String, String> cache = newCache(10, Long.MAX_VALUE);
+        cache.put("key", "value", Duration.ofSeconds(10));
+
+        assertEquals("value", cache.get("key"));
+        clock.advance(Duration.ofSeconds(10));
+        assertEquals("value", cache.get("key"));
+        clock.advance(Duration.ofMillis(1));
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    /**
+     * Verifies that the expiration of a value retrieved from the cache
+     * is checked against the cache's clock.
+     */
+    @Test
+    public void testExpiringValueUsesCacheClock() {
+
+        final InMemoryExpiringValueCache<String, String> cache = newCache(10, Long.MAX_VALUE);
+        cache.put("key", "value", Duration.ofSeconds(10));
+
+        final ExpiringValue<String> value = cache.getExpiringValue("key");
+        assertFalse(value.isExpired());
+        clock.advance(Duration.ofSeconds(11));
+        assertTrue(value.isExpired());
+    }
+
+    /**
+     * Verifies that already expired values are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutRejectsExpiredValue() {
+
+        final InMemoryExpiringValueCache<String, String> cache = newCache(10, Long.MAX_VALUE);
+        cache.put("key", "value", clock.instant());
+    }
+
+    /**
+     * Verifies that the least recently used entry is evicted when the
+     * maximum size is exceeded.
+     */
+    @Test
+    public void testPutEvictsLeastRecentlyUsedEntry() {
+
+        final InMemoryExpiringValueCache<String, String> cache = newCache(2, Long.MAX_VALUE);
+        cache.put("one", "1", Duration.ofSeconds(10));
+        cache.put("two", "2", Duration.ofSeconds(10));
+        // make "one" the most recently used entry
+        assertEquals("1", cache.get("one"));
+        cache.put("three", "3", Duration.ofSeconds(10));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals("1", cache.get("one"));
+        assertNull(cache.get("two"));
+        assertEquals("3", cache.get("three"));
+    }
+
+    /**
+     * Verifies that entries are evicted when the maximum weight is exceeded.
+     */
+    @Test
+    public void testPutEvictsEntriesExceedingMaxWeight() {
+
+        final InMemoryExpiringValueCache<String, String> cache = newCache(10, 10);
+        cache.put("one", "12345", Duration.ofSeconds(10));
+        cache.put("two", "1234", Duration.ofSeconds(10));
+        cache.put("three", "123", Duration.ofSeconds(10));
+
+        assertNull(cache.get("one"));
+        assertEquals("1234", cache.get("two"));
+        assertEquals("123", cache.get("three"));
+
+        // a value that exceeds the max weight on its own is not cached at all
+        cache.put("four", "12345678901", Duration.ofSeconds(10));
+        assertNull(cache.get("four"));
+        assertEquals("1234", cache.get("two"));
+    }
+
+    /**
+     * Verifies that a removed value can no longer be retrieved.
+     */
+    @Test
+    public void testRemoveRemovesValue() {
+
+        final InMemoryExpiringValueCache<String, String> cache = newCache(10, Long.MAX_VALUE);
+        cache.put("key", "value", Duration.ofSeconds(10));
+        cache.remove("key");
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Verifies that the cache never holds more than the maximum number of
+     * entries, regardless of how the keys are distributed over the segments.
+     */
+    @Test
+    public void testSizeDoesNotExceedMaxSize() {
+
+        final InMemoryExpiringValueCache<Integer, String> cache = new InMemoryExpiringValueCache<>(
+                1000, 0, Long.MAX_VALUE, (key, value) -> 0, clock);
+        for (int i = 0; i < 10000; i++) {
+            cache.put(i, "value", Duration.ofSeconds(10));
+        }
+        assertTrue(cache.size() <= 1000);
+        assertEquals(10000 - cache.size(), cache.getEvictionCount());
+        // the most recently added value has not been evicted
+        assertEquals("value", cache.get(9999));
+    }
+
+    private InMemoryExpiringValueCache<String, String> newCache(final long maxSize, final long maxWeight) {
+        return new InMemoryExpiringValueCache<>(maxSize, 0, maxWeight, (key, value) -> value.length(), clock);
+    }
+
+    /**
+     * A clock that can be advanced manually.
+     */
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(final Instant now) {
+            this.now = now;
+        }
+
+        void advance(final Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -44,4 +44,13 @@ public class ClientConfigPropertiesTest {
         assertThat(props.getPassword(), is("bar"));
     }
 
+    /**
+     * Verifies that the connection pool size must be positive.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetConnectionPoolSizeRejectsZero() {
+
+        new ClientConfigProperties().setConnectionPoolSize(0);
+    }
+
 }
@@ -13,14 +13,16 @@
 
 package org.eclipse.hono.service;
 
+import java.time.Clock;
 import java.util.Optional;
 
 import org.eclipse.hono.cache.CacheProvider;
+import org.eclipse.hono.cache.InMemoryCacheProvider;
 import org.eclipse.hono.client.HonoClient;
 import org.eclipse.hono.client.RequestResponseClientConfigProperties;
 import org.eclipse.hono.client.impl.HonoClientImpl;
+import org.eclipse.hono.client.impl.PooledHonoClient;
 import org.eclipse.hono.config.ClientConfigProperties;
-import org.eclipse.hono.service.cache.SpringCacheProvider;
 import org.eclipse.hono.service.command.CommandConfigProperties;
 import org.eclipse.hono.service.command.CommandConnection;
 import org.eclipse.hono.service.command.CommandConnectionImpl;
@@ -33,12 +35,9 @@ import org.eclipse.hono.util.TenantConstants;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.cache.guava.GuavaCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Scope;
 
-import com.google.common.cache.CacheBuilder;
-
 import io.opentracing.Tracer;
 import io.opentracing.contrib.tracerresolver.TracerResolver;
 import io.opentracing.noop.NoopTracerFactory;
@@ -134,6 +133,8 @@ public abstract class AbstractAdapterConfig {
      * Exposes a client for the <em>Hono Messaging</em> component as a Spring bean.
      * <p>
      * The client is configured with the properties provided by {@link #messagingClientConfig()}.
+     * A client maintaining a pool of connections is created if the configured
+     * connection pool size is greater than 1.
      *
      * @return The client.
      */
@@ -141,7 +142,12 @@ public abstract class AbstractAdapterConfig {
     @Bean
     @Scope("prototype")
     public HonoClient messagingClient() {
-        return new HonoClientImpl(vertx(), messagingClientConfig());
+        final ClientConfigProperties config = messagingClientConfig();
+        if (config.getConnectionPoolSize() > 1) {
+            return new PooledHonoClient(vertx(), config);
+        } else {
+            return new HonoClientImpl(vertx(), config);
+        }
     }
 
     /**
@@ -202,7 +208,7 @@ public abstract class AbstractAdapterConfig {
     @Qualifier(RegistrationConstants.REGISTRATION_ENDPOINT)
     @Scope("prototype")
     public CacheProvider registrationCacheProvider() {
-        return newGuavaCache(registrationServiceClientConfig());
+        return newCacheProvider(registrationServiceClientConfig());
     }
 
     /**
@@ -213,7 +219,7 @@ public abstract class AbstractAdapterConfig {
     @Qualifier(CredentialsConstants.CREDENTIALS_ENDPOINT)
     @ConfigurationProperties(prefix = "hono.credentials")
     @Bean
-    public ClientConfigProperties credentialsServiceClientConfig() {
+    public RequestResponseClientConfigProperties credentialsServiceClientConfig() {
         final RequestResponseClientConfigProperties config = new RequestResponseClientConfigProperties();
         customizeCredentialsServiceClientConfig(config);
         return config;
@@ -241,7 +247,27 @@ public abstract class AbstractAdapterConfig {
     @Qualifier(CredentialsConstants.CREDENTIALS_ENDPOINT)
     @Scope("prototype")
     public HonoClient credentialsServiceClient() {
-        return new HonoClientImpl(vertx(), credentialsServiceClientConfig());
+
+        final HonoClientImpl result = new HonoClientImpl(vertx(), credentialsServiceClientConfig());
+
+        final CacheProvider cacheProvider = credentialsCacheProvider();
+        if (cacheProvider != null) {
+            result.setCacheProvider(cacheProvider);
+        }
+
+        return result;
+    }
+
+    /**
+     * Exposes the provider for caches as a Spring bean.
+     *
+     * @return The provider instance.
+     */
+    @Bean
+    @Qualifier(CredentialsConstants.CREDENTIALS_ENDPOINT)
+    @Scope("prototype")
+    public CacheProvider credentialsCacheProvider() {
+        return newCacheProvider(credentialsServiceClientConfig());
     }
 
     /**
@@ -300,7 +326,7 @@ public abstract class AbstractAdapterConfig {
     @Qualifier(TenantConstants.TENANT_ENDPOINT)
     @Scope("prototype")
     public CacheProvider tenantCacheProvider() {
-        return newGuavaCache(tenantServiceClientConfig());
+        return newCacheProvider(tenantServiceClientConfig());
     }
 
     /**
@@ -327,12 +353,12 @@ public abstract class AbstractAdapterConfig {
     }
 
     /**
-     * Create a new cache provider based on Guava and Spring Cache.
+     * Create a new cache provider based on Hono's in-memory cache.
      * 
      * @param config The configuration to use as base for this cache.
      * @return A new cache provider or {@code null} if no cache should be used.
      */
-    private static CacheProvider newGuavaCache(final RequestResponseClientConfigProperties config) {
+    private static CacheProvider newCacheProvider(final RequestResponseClientConfigProperties config) {
         final int minCacheSize = config.getResponseCacheMinSize();
         final long maxCacheSize = config.getResponseCacheMaxSize();
 
@@ -340,15 +366,6 @@ public abstract class AbstractAdapterConfig {
             return null;
         }
 
-        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
-                .concurrencyLevel(1)
-                .initialCapacity(minCacheSize)
-                .maximumSize(Math.max(minCacheSize, maxCacheSize));
-
-        final GuavaCacheManager manager = new GuavaCacheManager();
-        manager.setAllowNullValues(false);
-        manager.setCacheBuilder(builder);
-
-        return new SpringCacheProvider(manager);
+        return new InMemoryCacheProvider(Math.max(minCacheSize, maxCacheSize), minCacheSize, Clock.systemUTC());
     }
 }
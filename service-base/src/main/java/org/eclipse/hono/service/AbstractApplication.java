@@ -34,6 +34,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 
+import com.codahale.metrics.MetricRegistry;
+
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
@@ -55,6 +57,7 @@ public class AbstractApplication implements ApplicationRunner {
     private final Set<ObjectFactory<? extends AbstractServiceBase<?>>> serviceFactories = new HashSet<>();
     private ApplicationConfigProperties config = new ApplicationConfigProperties();
     private Vertx vertx;
+    private MetricRegistry metricRegistry;
 
     private HealthCheckServer healthCheckServer;
 
@@ -104,6 +107,19 @@ public class AbstractApplication implements ApplicationRunner {
         this.config = Objects.requireNonNull(config);
     }
 
+    /**
+     * Sets the registry containing the application's metrics.
+     * <p>
+     * The metrics are exposed by the health check server if the
+     * <em>metricsEndpointEnabled</em> application property is set.
+     *
+     * @param metricRegistry The registry.
+     */
+    @Autowired(required = false)
+    public final void setMetricRegistry(final MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
     /**
      * Starts up this application.
      * <p>
@@ -126,6 +142,9 @@ public class AbstractApplication implements ApplicationRunner {
         }
 
         healthCheckServer = new HealthCheckServer(vertx, config);
+        if (metricRegistry != null && config.isMetricsEndpointEnabled()) {
+            healthCheckServer.registerMetricsResource(metricRegistry);
+        }
 
         final Future<Void> future = deployRequiredVerticles(config.getMaxInstances())
              .compose(s -> deployServiceVerticles())
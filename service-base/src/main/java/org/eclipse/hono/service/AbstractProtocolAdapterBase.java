@@ -16,6 +16,7 @@ import java.net.HttpURLConnection;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.messaging.Accepted;
@@ -38,11 +39,13 @@ import org.eclipse.hono.service.command.CommandResponseSender;
 import org.eclipse.hono.service.monitoring.ConnectionEventProducer;
 import org.eclipse.hono.util.Constants;
 import org.eclipse.hono.util.CredentialsConstants;
+import org.eclipse.hono.util.EndpointType;
 import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.MessageHelper;
 import org.eclipse.hono.util.RegistrationConstants;
 import org.eclipse.hono.util.ResourceIdentifier;
 import org.eclipse.hono.util.Strings;
+import org.eclipse.hono.util.TelemetryConstants;
 import org.eclipse.hono.util.TenantConstants;
 import org.eclipse.hono.util.TenantObject;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -669,23 +672,125 @@ public abstract class AbstractProtocolAdapterBase<T extends ProtocolAdapterPrope
                 .compose(client -> client.assertRegistration(deviceId, gatewayId.result(), context));
     }
 
+    /**
+     * Gets the information required for forwarding a message published by a device downstream.
+     * <p>
+     * This method retrieves the tenant's configuration, an assertion of the device's registration
+     * status and the downstream sender for the endpoint in parallel. If all of the information
+     * is already available locally, e.g. because it has been cached by the service clients, the
+     * returned future is already completed and no intermediate futures are created.
+     *
+     * @param endpoint The endpoint to forward the message to. Supported endpoints are
+     *                 {@link TelemetryConstants#TELEMETRY_ENDPOINT} and {@link EventConstants#EVENT_ENDPOINT}
+     *                 and their short forms.
+     * @param tenantId The tenant that the device belongs to.
+     * @param deviceId The device that has published the message.
+     * @param authenticatedDevice The device that has authenticated to this protocol adapter.
+     *            <p>
+     *            If not {@code null} then the authenticated device is compared to the given tenant and device ID. If
+     *            they differ in the device identifier, then the authenticated device is considered to be a gateway
+     *            acting on behalf of the device.
+     * @param context The currently active OpenTracing span that is used to
+     *                trace the retrieval of the information.
+     * @return A future indicating the outcome of the operation.
+     *         <p>
+     *         The future will fail with a {@link ServiceInvocationException} if any of the information
+     *         cannot be retrieved or if this adapter is not enabled for the tenant.
+     *         <p>
+     *         Otherwise the future will contain the information.
+     * @throws NullPointerException if any of endpoint, tenant or device ID are {@code null}.
+     */
+    protected final Future<UploadContext> getUploadContext(
+            final String endpoint,
+            final String tenantId,
+            final String deviceId,
+            final Device authenticatedDevice,
+            final SpanContext context) {
+
+        Objects.requireNonNull(endpoint);
+        Objects.requireNonNull(tenantId);
+        Objects.requireNonNull(deviceId);
+
+        // the gateway ID is determined from local state only, so the future is already completed
+        final Future<String> gatewayId = getGatewayId(tenantId, deviceId, authenticatedDevice);
+        if (gatewayId.failed()) {
+            return Future.failedFuture(gatewayId.cause());
+        }
+
+        final Future<MessageSender> senderTracker;
+        switch (EndpointType.fromString(endpoint)) {
+        case TELEMETRY:
+            senderTracker = getTelemetrySender(tenantId);
+            break;
+        case EVENT:
+            senderTracker = getEventSender(tenantId);
+            break;
+        default:
+            return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST,
+                    "unknown endpoint"));
+        }
+        final Future<TenantObject> tenantTracker = invoke(getTenantClient(),
+                client -> client.get(tenantId, context));
+        final Future<JsonObject> assertionTracker = invoke(getRegistrationClient(tenantId),
+                client -> client.assertRegistration(deviceId, gatewayId.result(), context));
+
+        if (tenantTracker.succeeded() && assertionTracker.succeeded() && senderTracker.succeeded()) {
+            // fast path: everything has been resolved from local state already
+            return newUploadContext(tenantTracker.result(), assertionTracker.result(), senderTracker.result());
+        } else {
+            return CompositeFuture.all(tenantTracker, assertionTracker, senderTracker)
+                    .compose(ok -> newUploadContext(tenantTracker.result(), assertionTracker.result(), senderTracker.result()));
+        }
+    }
+
+    private Future<UploadContext> newUploadContext(
+            final TenantObject tenant,
+            final JsonObject registrationAssertion,
+            final MessageSender sender) {
+
+        if (tenant.isAdapterEnabled(getTypeName())) {
+            return Future.succeededFuture(new UploadContext(tenant, registrationAssertion, sender));
+        } else {
+            return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
+                    "adapter is not enabled for tenant"));
+        }
+    }
+
+    /**
+     * Invokes an operation on a service client without creating an intermediate
+     * future if the client is already available.
+     */
+    private static <C, R> Future<R> invoke(final Future<C> clientTracker, final Function<C, Future<R>> operation) {
+        if (clientTracker.succeeded()) {
+            return operation.apply(clientTracker.result());
+        } else {
+            return clientTracker.compose(operation);
+        }
+    }
+
+    /**
+     * Determines the gateway acting on behalf of a device.
+     *
+     * @return A future that is already completed. The future will be succeeded with the
+     *         authenticated device's identifier if it acts as a gateway or with {@code null}
+     *         if the device has not authenticated or is the authenticated device itself.
+     *         The future will be failed if the authenticated device belongs to another tenant.
+     */
     private Future<String> getGatewayId(final String tenantId, final String deviceId,
             final Device authenticatedDevice) {
 
-        final Future<String> result = Future.future();
         if (authenticatedDevice == null) {
-            result.complete(null);
+            return Future.succeededFuture();
         } else if (tenantId.equals(authenticatedDevice.getTenantId())) {
             if (deviceId.equals(authenticatedDevice.getDeviceId())) {
-                result.complete(null);
+                return Future.succeededFuture();
             } else {
-                result.complete(authenticatedDevice.getDeviceId());
+                return Future.succeededFuture(authenticatedDevice.getDeviceId());
             }
         } else {
-            result.fail(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
+            return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
                     "cannot publish data for device of other tenant"));
         }
-        return result;
     }
 
     /**
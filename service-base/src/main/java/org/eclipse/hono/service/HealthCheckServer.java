@@ -16,10 +16,13 @@ package org.eclipse.hono.service;
 import java.util.Objects;
 
 import org.eclipse.hono.config.ApplicationConfigProperties;
+import org.eclipse.hono.service.metric.PrometheusMetricsHandler;
 import org.eclipse.hono.util.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
+
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpServer;
@@ -36,6 +39,7 @@ import io.vertx.ext.web.Router;
  * <b>Usage</b>
  * <ol>
  * <li>Invoke {@link #registerHealthCheckResources(HealthCheckProvider)} to register readiness and liveness checks.</li>
+ * <li>Optionally invoke {@link #registerMetricsResource(MetricRegistry)} to expose metrics for scraping.</li>
  * <li>Invoke {@link #start()} to start the server</li>
  * <li>Before shutdown: invoke {@link #stop()} for a graceful shutdown.</li>
  * </ol>
@@ -46,11 +50,13 @@ public final class HealthCheckServer implements Lifecycle {
 
     private static final String URI_LIVENESS_PROBE  = "/liveness";
     private static final String URI_READINESS_PROBE = "/readiness";
+    private static final String URI_METRICS         = "/metrics";
 
     private HttpServer server;
 
     private HealthCheckHandler readinessHandler;
     private HealthCheckHandler livenessHandler;
+    private PrometheusMetricsHandler metricsHandler;
 
     private final Vertx vertx;
     private final ApplicationConfigProperties config;
@@ -100,6 +106,23 @@ public final class HealthCheckServer implements Lifecycle {
         } // else: health check port not configured.
     }
 
+    /**
+     * Registers a resource for scraping the metrics contained in a registry if health check
+     * is configured, otherwise does nothing.
+     * <p>
+     * The metrics are exposed at URI {@value #URI_METRICS} in Prometheus' text format.
+     *
+     * @param registry The registry containing the metrics.
+     * @throws NullPointerException if registry is {@code null}.
+     * @see PrometheusMetricsHandler
+     */
+    public void registerMetricsResource(final MetricRegistry registry) {
+        Objects.requireNonNull(registry);
+        if (router != null) {
+            metricsHandler = new PrometheusMetricsHandler(registry);
+        } // else: health check port not configured.
+    }
+
     /**
      * Starts the health check server if health check is configured, otherwise does nothing.
      *
@@ -117,6 +140,9 @@ public final class HealthCheckServer implements Lifecycle {
 
             router.get(URI_READINESS_PROBE).handler(readinessHandler);
             router.get(URI_LIVENESS_PROBE).handler(livenessHandler);
+            if (metricsHandler != null) {
+                router.get(URI_METRICS).handler(metricsHandler);
+            }
 
             server.requestHandler(router::accept).listen(startAttempt -> {
                 if (startAttempt.succeeded()) {
@@ -124,6 +150,10 @@ public final class HealthCheckServer implements Lifecycle {
                             URI_READINESS_PROBE);
                     LOG.info("liveness probe available at http://{}:{}{}", options.getHost(), options.getPort(),
                             URI_LIVENESS_PROBE);
+                    if (metricsHandler != null) {
+                        LOG.info("metrics available at http://{}:{}{}", options.getHost(), options.getPort(),
+                                URI_METRICS);
+                    }
                     result.complete();
                 } else {
                     LOG.warn("failed to start health checks HTTP server:", startAttempt.cause().getMessage());
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service;
+
+import java.util.Objects;
+
+import org.eclipse.hono.client.MessageSender;
+import org.eclipse.hono.util.TenantObject;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The information required by a protocol adapter for forwarding a message
+ * published by a device downstream.
+ * <p>
+ * Instances are immutable.
+ *
+ * @see AbstractProtocolAdapterBase#getUploadContext(String, String, String, org.eclipse.hono.service.auth.device.Device, io.opentracing.SpanContext)
+ */
+public final class UploadContext {
+
+    private final TenantObject tenant;
+    private final JsonObject registrationAssertion;
+    private final MessageSender sender;
+
+    /**
+     * Creates a new context.
+     *
+     * @param tenant The configuration of the tenant that the device belongs to.
+     * @param registrationAssertion The assertion of the device's registration status.
+     * @param sender The sender to use for forwarding the message.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    UploadContext(final TenantObject tenant, final JsonObject registrationAssertion, final MessageSender sender) {
+        this.tenant = Objects.requireNonNull(tenant);
+        this.registrationAssertion = Objects.requireNonNull(registrationAssertion);
+        this.sender = Objects.requireNonNull(sender);
+    }
+
+    /**
+     * Gets the configuration of the tenant that the device belongs to.
+     *
+     * @return The configuration.
+     */
+    public TenantObject getTenant() {
+        return tenant;
+    }
+
+    /**
+     * Gets the assertion of the device's registration status.
+     * <p>
+     * The returned object contains the assertion as well as the
+     * <em>default</em> values registered for the device as returned
+     * by the Device Registration service.
+     *
+     * @return The assertion.
+     */
+    public JsonObject getRegistrationAssertion() {
+        return registrationAssertion;
+    }
+
+    /**
+     * Gets the sender to use for forwarding the message.
+     *
+     * @return The sender.
+     */
+    public MessageSender getSender() {
+        return sender;
+    }
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.auth.device;
+
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.eclipse.hono.client.ClientErrorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.User;
+
+
+/**
+ * An authentication provider that remembers devices that have been authenticated
+ * successfully by means of username/password credentials.
+ * <p>
+ * Devices using a stateless protocol like HTTP usually present the same credentials
+ * with every request. This provider verifies such credentials only once by means of
+ * the wrapped provider, i.e. by retrieving the credentials on record from the
+ * <em>Credentials</em> service and matching the password hash. Subsequent requests
+ * presenting the same tenant, authentication identifier and password are then
+ * authenticated from the cache until the configured time to live has elapsed.
+ * <p>
+ * Authenticated devices are cached under an HMAC of the tenant, authentication
+ * identifier and password, using a random key that is created when the provider
+ * is instantiated. Passwords are therefore never kept in memory in plain text.
+ * The number of cached devices is bounded, least recently used entries are evicted first.
+ * Failed authentication attempts are never cached.
+ */
+public final class CachingUsernamePasswordAuthProvider implements HonoClientBasedAuthProvider {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingUsernamePasswordAuthProvider.class);
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final UsernamePasswordAuthProvider delegate;
+    private final Cache<String, Device> authenticatedDevices;
+    private final SecretKeySpec macKey;
+
+    /**
+     * Creates a provider for a delegate.
+     *
+     * @param delegate The provider to use for authenticating devices that are not (yet) cached.
+     * @param timeToLive The period of time after which a cached device needs to be authenticated again.
+     * @param maxCacheSize The maximum number of authenticated devices to keep in the cache.
+     * @throws NullPointerException if delegate or time to live are {@code null}.
+     * @throws IllegalArgumentException if max cache size is &lt;= 0 or time to live is not positive.
+     */
+    public CachingUsernamePasswordAuthProvider(
+            final UsernamePasswordAuthProvider delegate,
+            final Duration timeToLive,
+            final long maxCacheSize) {
+
+        this.delegate = Objects.requireNonNull(delegate);
+        Objects.requireNonNull(timeToLive);
+        if (maxCacheSize <= 0) {
+            throw new IllegalArgumentException("max cache size must be > 0");
+        }
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("time to live must be > 0");
+        }
+        this.authenticatedDevices = CacheBuilder.newBuilder()
+                .maximumSize(maxCacheSize)
+                .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        final byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.macKey = new SecretKeySpec(key, MAC_ALGORITHM);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Username/password credentials are looked up in the cache of already authenticated
+     * devices first. All other types of credentials are passed on to the wrapped provider.
+     */
+    @Override
+    public void authenticate(final DeviceCredentials credentials, final Handler<AsyncResult<Device>> resultHandler) {
+
+        Objects.requireNonNull(credentials);
+        Objects.requireNonNull(resultHandler);
+
+        if (!(credentials instanceof UsernamePasswordCredentials)) {
+            delegate.authenticate(credentials, resultHandler);
+            return;
+        }
+
+        final String key = getKey((UsernamePasswordCredentials) credentials);
+        if (key == null) {
+            delegate.authenticate(credentials, resultHandler);
+            return;
+        }
+
+        final Device cachedDevice = authenticatedDevices.getIfPresent(key);
+        if (cachedDevice != null) {
+            LOG.trace("found authenticated device in cache [tenant: {}, auth-id: {}]",
+                    credentials.getTenantId(), credentials.getAuthId());
+            resultHandler.handle(Future.succeededFuture(cachedDevice));
+        } else {
+            delegate.authenticate(credentials, authAttempt -> {
+                if (authAttempt.succeeded()) {
+                    authenticatedDevices.put(key, authAttempt.result());
+                }
+                resultHandler.handle(authAttempt);
+            });
+        }
+    }
+
+    @Override
+    public void authenticate(final JsonObject authInfo, final Handler<AsyncResult<User>> resultHandler) {
+
+        final DeviceCredentials credentials = delegate.getCredentials(Objects.requireNonNull(authInfo));
+        if (credentials == null) {
+            resultHandler.handle(Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_UNAUTHORIZED, "malformed credentials")));
+        } else {
+            authenticate(credentials, s -> {
+                if (s.succeeded()) {
+                    resultHandler.handle(Future.succeededFuture(s.result()));
+                } else {
+                    resultHandler.handle(Future.failedFuture(s.cause()));
+                }
+            });
+        }
+    }
+
+    private String getKey(final UsernamePasswordCredentials credentials) {
+
+        try {
+            final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            mac.update(credentials.getTenantId().getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0x00);
+            mac.update(credentials.getAuthId().getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0x00);
+            mac.update(credentials.getPassword().getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(mac.doFinal());
+        } catch (final GeneralSecurityException e) {
+            // all JVMs are required to support HmacSHA256
+            LOG.warn("cannot create key for caching authenticated device", e);
+            return null;
+        }
+    }
+}
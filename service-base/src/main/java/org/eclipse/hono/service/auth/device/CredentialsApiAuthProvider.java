@@ -108,11 +108,22 @@ public abstract class CredentialsApiAuthProvider implements HonoClientBasedAuthP
             if (deviceCredentials.validate(credentialsOnRecord)) {
                 return new Device(deviceCredentials.getTenantId(), credentialsOnRecord.getDeviceId());
             } else {
-                 throw new ClientErrorException(HttpURLConnection.HTTP_UNAUTHORIZED, "bad credentials");
+                // the credentials on record may have been updated in the meantime
+                removeCredentialsFromCache(deviceCredentials);
+                throw new ClientErrorException(HttpURLConnection.HTTP_UNAUTHORIZED, "bad credentials");
             }
         }).setHandler(resultHandler);
     }
 
+    private void removeCredentialsFromCache(final DeviceCredentials deviceCredentials) {
+
+        getCredentialsClient(deviceCredentials.getTenantId()).setHandler(client -> {
+            if (client.succeeded()) {
+                client.result().removeFromCache(deviceCredentials.getType(), deviceCredentials.getAuthId());
+            }
+        });
+    }
+
     @Override
     public final void authenticate(final JsonObject authInfo, final Handler<AsyncResult<User>> resultHandler) {
 
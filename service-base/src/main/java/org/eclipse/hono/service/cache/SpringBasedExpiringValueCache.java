@@ -74,6 +74,13 @@ public class SpringBasedExpiringValueCache<K, V> implements ExpiringValueCache<K
     @Override
     public V get(final K key) {
 
+        final ExpiringValue<V> value = getExpiringValue(key);
+        return value == null ? null : value.getValue();
+    }
+
+    @Override
+    public ExpiringValue<V> getExpiringValue(final K key) {
+
         if (key == null) {
             return null;
         } else {
@@ -89,9 +96,18 @@ public class SpringBasedExpiringValueCache<K, V> implements ExpiringValueCache<K
                 return null;
             } else {
                 LOG.trace("cache hit [key: {}]", key);
-                return value.getValue();
+                return value;
             }
         }
     }
 
+    @Override
+    public void remove(final K key) {
+
+        if (key != null) {
+            LOG.trace("removing value from cache [key: {}]", key);
+            cache.evict(key);
+        }
+    }
+
 }
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.metric;
+
+/**
+ * A counter (or meter) that has been resolved for a particular metric name.
+ * <p>
+ * Updating a handle neither requires building the metric's name nor looking up
+ * the metric by its name.
+ *
+ * @see Metrics#getCounter(String)
+ */
+public interface CounterHandle {
+
+    /**
+     * Increments the counter by one.
+     */
+    void increment();
+
+    /**
+     * Decrements the counter by one.
+     */
+    void decrement();
+}
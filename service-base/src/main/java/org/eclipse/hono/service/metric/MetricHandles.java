@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.metric;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+/**
+ * A cache of handles for a metric that is scoped by e.g. endpoint
+ * and tenant.
+ * <p>
+ * A handle is resolved once only, when it is requested for the first time.
+ * Subsequent requests for the same scope and key return the cached handle
+ * without creating any temporary objects.
+ *
+ * @param <H> The type of handle.
+ * @see Metrics#newCounterHandles(BiFunction)
+ * @see Metrics#newUploadTimers(BiFunction)
+ */
+public final class MetricHandles<H> {
+
+    private static final String NO_SCOPE = "";
+
+    private final ConcurrentMap<String, ConcurrentMap<String, H>> handles = new ConcurrentHashMap<>();
+    private final BiFunction<String, String, H> factory;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param factory The function to invoke for resolving the handle for a scope and key.
+     * @throws NullPointerException if factory is {@code null}.
+     */
+    MetricHandles(final BiFunction<String, String, H> factory) {
+        this.factory = Objects.requireNonNull(factory);
+    }
+
+    /**
+     * Gets the handle for a key that is not scoped any further.
+     * <p>
+     * The handle is resolved using the empty string as the scope.
+     *
+     * @param key The key, e.g. an address or a tenant identifier.
+     * @return The handle.
+     * @throws NullPointerException if key is {@code null}.
+     */
+    public H get(final String key) {
+        return get(NO_SCOPE, key);
+    }
+
+    /**
+     * Gets the handle for a scope and key.
+     *
+     * @param scope The scope, e.g. the name of an endpoint.
+     * @param key The key within the scope, e.g. a tenant identifier.
+     * @return The handle.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    public H get(final String scope, final String key) {
+
+        Objects.requireNonNull(scope);
+        Objects.requireNonNull(key);
+
+        // try plain lookups first because computeIfAbsent locks the bin
+        // even if the mapping already exists
+        ConcurrentMap<String, H> scopedHandles = handles.get(scope);
+        if (scopedHandles == null) {
+            scopedHandles = handles.computeIfAbsent(scope, s -> new ConcurrentHashMap<>());
+        }
+        final H handle = scopedHandles.get(key);
+        if (handle == null) {
+            return scopedHandles.computeIfAbsent(key, k -> factory.apply(scope, k));
+        } else {
+            return handle;
+        }
+    }
+}
@@ -13,11 +13,19 @@
 
 package org.eclipse.hono.service.metric;
 
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.metrics.CounterService;
 import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
 
-import java.util.Objects;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 /**
  * Base metrics collector.
@@ -40,9 +48,16 @@ abstract public class Metrics {
     protected static final String CONNECTIONS   = ".connections.";
     protected static final String UNAUTHENTICATED_CONNECTIONS   = ".unauthenticatedConnections.";
 
+    /**
+     * The prefix that Spring Boot's dropwizard metric services add to the names of counters.
+     */
+    private static final String COUNTER_PREFIX = "counter.";
+
     protected GaugeService   gaugeService   = NullGaugeService.getInstance();
     protected CounterService counterService = NullCounterService.getInstance();
 
+    private MetricRegistry metricRegistry;
+
     /**
      * It is needed to set the specific service prefix; if no config is given it is not needed and will never be used.
      *
@@ -84,6 +99,144 @@ abstract public class Metrics {
         this.counterService = counterService;
     }
 
+    /**
+     * Sets the registry that the dropwizard based counter service keeps its metrics in.
+     * <p>
+     * If the counter service is Spring Boot's {@code DropwizardMetricServices}, counter handles
+     * are bound to the metrics contained in this registry directly.
+     *
+     * @param metricRegistry The registry.
+     */
+    @Autowired(required = false)
+    public final void setMetricRegistry(final MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Gets a handle for updating a counter.
+     * <p>
+     * The handle updates the same metric as invoking the counter service's
+     * <em>increment</em> and <em>decrement</em> methods with the given name.
+     * However, if the counter service is backed by a dropwizard metric registry,
+     * the handle updates the dropwizard meter or counter directly.
+     *
+     * @param name The name of the counter. A name starting with {@value #METER_PREFIX}
+     *             refers to a meter.
+     * @return The handle.
+     * @throws NullPointerException if name is {@code null}.
+     */
+    protected final CounterHandle getCounter(final String name) {
+
+        Objects.requireNonNull(name);
+
+        if (metricRegistry != null && counterService instanceof DropwizardMetricServices) {
+            // use the same naming scheme as DropwizardMetricServices
+            if (name.startsWith(METER_PREFIX)) {
+                final Meter meter = metricRegistry.meter(name);
+                return new CounterHandle() {
+
+                    @Override
+                    public void increment() {
+                        meter.mark();
+                    }
+
+                    @Override
+                    public void decrement() {
+                        meter.mark(-1);
+                    }
+                };
+            } else {
+                final Counter counter = metricRegistry.counter(
+                        name.startsWith(COUNTER_PREFIX) ? name : COUNTER_PREFIX + name);
+                return new CounterHandle() {
+
+                    @Override
+                    public void increment() {
+                        counter.inc();
+                    }
+
+                    @Override
+                    public void decrement() {
+                        counter.dec();
+                    }
+                };
+            }
+        } else {
+            final CounterService service = counterService;
+            return new CounterHandle() {
+
+                @Override
+                public void increment() {
+                    service.increment(name);
+                }
+
+                @Override
+                public void decrement() {
+                    service.decrement(name);
+                }
+            };
+        }
+    }
+
+    /**
+     * Gets a handle for updating a timer.
+     * <p>
+     * The handle updates the same metric as submitting a value with the given name
+     * to the gauge service. However, if the gauge service is backed by a dropwizard
+     * metric registry, the handle updates the dropwizard timer directly and retains
+     * nanosecond precision.
+     *
+     * @param name The name of the timer. The name should start with {@value #TIMER_PREFIX}.
+     * @return The handle.
+     * @throws NullPointerException if name is {@code null}.
+     */
+    protected final TimerHandle getTimer(final String name) {
+
+        Objects.requireNonNull(name);
+
+        if (metricRegistry != null && gaugeService instanceof DropwizardMetricServices) {
+            final Timer timer = metricRegistry.timer(name);
+            return durationNanos -> timer.update(durationNanos, TimeUnit.NANOSECONDS);
+        } else {
+            final GaugeService service = gaugeService;
+            // the gauge service expects timer values in milliseconds
+            return durationNanos -> service.submit(name, durationNanos / 1_000_000d);
+        }
+    }
+
+    /**
+     * Creates a cache of handles for a counter that is scoped by e.g. endpoint and tenant.
+     * <p>
+     * The handles are resolved lazily, i.e. the name provider is invoked (and the
+     * handle is resolved by means of {@link #getCounter(String)}) once for each scope
+     * and key when the handle is requested for the first time.
+     *
+     * @param nameProvider The function to invoke for building the name of the counter
+     *                     for a scope and key.
+     * @return The cache.
+     * @throws NullPointerException if name provider is {@code null}.
+     */
+    protected final MetricHandles<CounterHandle> newCounterHandles(final BiFunction<String, String, String> nameProvider) {
+        Objects.requireNonNull(nameProvider);
+        return new MetricHandles<>((scope, key) -> getCounter(nameProvider.apply(scope, key)));
+    }
+
+    /**
+     * Creates a cache of timers for the stages of forwarding messages uploaded by devices.
+     * <p>
+     * The timers are scoped by e.g. endpoint and tenant and are resolved lazily by means
+     * of {@link #getTimer(String)}.
+     *
+     * @param namePrefixProvider The function to invoke for building the prefix of the
+     *                           timers' names for a scope and key.
+     * @return The cache.
+     * @throws NullPointerException if name prefix provider is {@code null}.
+     */
+    protected final MetricHandles<UploadTimers> newUploadTimers(final BiFunction<String, String, String> namePrefixProvider) {
+        Objects.requireNonNull(namePrefixProvider);
+        return new MetricHandles<>((scope, key) -> new UploadTimers(namePrefixProvider.apply(scope, key), this::getTimer));
+    }
+
     /**
      * Replaces '/' with '.' to transform e.g. <code>telemetry/DEFAULT_TENANT</code> to <code>telemetry.DEFAULT_TENANT</code>
      *
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.metric;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * A handler for exposing the metrics contained in a dropwizard registry in
+ * <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">Prometheus' text format</a>.
+ * <p>
+ * The tenant, the type of message and the QoS level are extracted from the dotted names
+ * of Hono's metrics and are exposed as labels, using the same templates as the InfluxDB
+ * configuration of the example deployment. The remaining segments of a metric's name make up
+ * the name of the exposed metric family, e.g. a meter named
+ * {@code meter.hono.http.messages.telemetry.DEFAULT_TENANT.processed} is exposed as
+ * {@code hono_http_messages_processed_total{type="telemetry",tenant="DEFAULT_TENANT"}}.
+ * <p>
+ * Counters and gauges are exposed as gauges, meters as counters and histograms and timers
+ * as summaries. Timer values are exposed in seconds.
+ * <p>
+ * The metrics are rendered on a worker thread.
+ */
+public final class PrometheusMetricsHandler implements Handler<RoutingContext> {
+
+    /**
+     * The content type of the text format.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Logger LOG = LoggerFactory.getLogger(PrometheusMetricsHandler.class);
+
+    private static final String LABEL_TYPE = "type";
+    private static final String LABEL_TENANT = "tenant";
+    private static final String LABEL_QOS = "qos";
+    private static final String[] LABELS = { LABEL_TYPE, LABEL_TENANT, LABEL_QOS };
+    private static final String[] TYPE_PREFIXES = { "counter.", "gauge.", "histogram.", "meter.", "timer." };
+    private static final double[] QUANTILES = { 0.5, 0.75, 0.95, 0.98, 0.99, 0.999 };
+    private static final Pattern ILLEGAL_NAME_CHARS = Pattern.compile("[^a-zA-Z0-9_:]");
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final List<Pattern> TEMPLATES = Arrays.asList(
+            // Hono Messaging
+            Pattern.compile("counter\\.hono\\.messaging\\.receivers\\.upstream\\.links\\.(?<type>[^.]+)\\.(?<tenant>[^.]+)"),
+            Pattern.compile("counter\\.hono\\.messaging\\.senders\\.downstream\\.(?<type>[^.]+)\\.(?<tenant>[^.]+)"),
+            Pattern.compile("gauge\\.hono\\.messaging\\.link\\.downstream\\.credits\\.(?<type>[^.]+)\\.(?<tenant>[^.]+)"),
+            // Hono Messaging and protocol adapters
+            Pattern.compile("(?:counter|meter|timer)\\.hono\\.[^.]+\\.messages\\.(?<type>[^.]+)\\.(?<tenant>[^.]+)(?:\\.qos(?<qos>\\d))?\\.[^.]+"),
+            Pattern.compile("counter\\.hono\\.[^.]+\\.connections\\.(?<tenant>[^.]+)"));
+
+    private final MetricRegistry registry;
+
+    /**
+     * Creates a handler for a registry.
+     *
+     * @param registry The registry containing the metrics to expose.
+     * @throws NullPointerException if registry is {@code null}.
+     */
+    public PrometheusMetricsHandler(final MetricRegistry registry) {
+        this.registry = Objects.requireNonNull(registry);
+    }
+
+    @Override
+    public void handle(final RoutingContext ctx) {
+
+        ctx.vertx().<String> executeBlocking(rendering -> rendering.complete(scrape()), false, result -> {
+            if (result.succeeded()) {
+                ctx.response()
+                    .putHeader(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE)
+                    .end(result.result());
+            } else {
+                LOG.debug("failed to render metrics", result.cause());
+                ctx.fail(result.cause());
+            }
+        });
+    }
+
+    /**
+     * Renders all metrics contained in the registry.
+     *
+     * @return The metrics in Prometheus' text format.
+     */
+    String scrape() {
+
+        final SortedMap<String, Family> families = new TreeMap<>();
+
+        for (final Map.Entry<String, Counter> counter : registry.getCounters().entrySet()) {
+            final Sample sample = Sample.from(counter.getKey());
+            family(families, sample.name, "gauge").add(sample, "", counter.getValue().getCount());
+        }
+        for (@SuppressWarnings("rawtypes") final Map.Entry<String, Gauge> gauge : registry.getGauges().entrySet()) {
+            final Object value = gauge.getValue().getValue();
+            final Sample sample = Sample.from(gauge.getKey());
+            if (value instanceof Number) {
+                family(families, sample.name, "gauge").add(sample, "", ((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                family(families, sample.name, "gauge").add(sample, "", (Boolean) value ? 1 : 0);
+            }
+        }
+        for (final Map.Entry<String, Meter> meter : registry.getMeters().entrySet()) {
+            final Sample sample = Sample.from(meter.getKey());
+            family(families, sample.name + "_total", "counter").add(sample, "", meter.getValue().getCount());
+        }
+        for (final Map.Entry<String, Histogram> histogram : registry.getHistograms().entrySet()) {
+            final Sample sample = Sample.from(histogram.getKey());
+            addSummary(family(families, sample.name, "summary"), sample, histogram.getValue().getSnapshot(),
+                    histogram.getValue().getCount(), 1);
+        }
+        for (final Map.Entry<String, Timer> timer : registry.getTimers().entrySet()) {
+            final Sample sample = Sample.from(timer.getKey());
+            addSummary(family(families, sample.name + "_seconds", "summary"), sample, timer.getValue().getSnapshot(),
+                    timer.getValue().getCount(), NANOS_PER_SECOND);
+        }
+
+        final StringBuilder result = new StringBuilder();
+        families.forEach((name, family) -> {
+            result.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            family.samples.forEach(line -> result.append(line).append('\n'));
+        });
+        return result.toString();
+    }
+
+    private static Family family(final Map<String, Family> families, final String name, final String type) {
+        return families.computeIfAbsent(name, n -> new Family(n, type));
+    }
+
+    private static void addSummary(final Family family, final Sample sample, final Snapshot snapshot,
+            final long count, final double divisor) {
+
+        for (final double quantile : QUANTILES) {
+            family.add(sample, "", "quantile", Double.toString(quantile), snapshot.getValue(quantile) / divisor);
+        }
+        family.add(sample, "_count", count);
+    }
+
+    private static String format(final double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        } else {
+            return Double.toString(value);
+        }
+    }
+
+    private static void appendLabel(final StringBuilder line, final String name, final String value) {
+
+        if (line.charAt(line.length() - 1) != '{') {
+            line.append(',');
+        }
+        line.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+            case '\\':
+                line.append("\\\\");
+                break;
+            case '"':
+                line.append("\\\"");
+                break;
+            case '\n':
+                line.append("\\n");
+                break;
+            default:
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * The samples of a metric family.
+     */
+    private static final class Family {
+
+        private final String name;
+        private final String type;
+        private final List<String> samples = new ArrayList<>();
+
+        Family(final String name, final String type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        void add(final Sample sample, final String suffix, final double value) {
+            add(sample, suffix, null, null, value);
+        }
+
+        void add(final Sample sample, final String suffix, final String extraLabel, final String extraLabelValue,
+                final double value) {
+
+            final StringBuilder line = new StringBuilder(name).append(suffix);
+            if (!sample.labels.isEmpty() || extraLabel != null) {
+                line.append('{');
+                sample.labels.forEach((label, labelValue) -> appendLabel(line, label, labelValue));
+                if (extraLabel != null) {
+                    appendLabel(line, extraLabel, extraLabelValue);
+                }
+                line.append('}');
+            }
+            samples.add(line.append(' ').append(format(value)).toString());
+        }
+    }
+
+    /**
+     * The name and labels extracted from the dotted name of a metric.
+     */
+    private static final class Sample {
+
+        private final String name;
+        private final Map<String, String> labels;
+
+        private Sample(final String name, final Map<String, String> labels) {
+            this.name = name;
+            this.labels = labels;
+        }
+
+        static Sample from(final String metricName) {
+
+            final Map<String, String> labels = new TreeMap<>();
+            String name = metricName;
+            for (final Pattern template : TEMPLATES) {
+                final Matcher matcher = template.matcher(metricName);
+                if (matcher.matches()) {
+                    final StringBuilder remainder = new StringBuilder(metricName);
+                    // remove the label segments back to front so that the offsets remain valid
+                    for (int i = LABELS.length - 1; i >= 0; i--) {
+                        final String label = LABELS[i];
+                        if (template.pattern().contains("<" + label + ">") && matcher.group(label) != null) {
+                            labels.put(label, matcher.group(label));
+                            final int start = LABEL_QOS.equals(label) ? matcher.start(label) - LABEL_QOS.length() : matcher.start(label);
+                            remainder.delete(start - 1, matcher.end(label));
+                        }
+                    }
+                    name = remainder.toString();
+                    break;
+                }
+            }
+            for (final String prefix : TYPE_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    name = name.substring(prefix.length());
+                    break;
+                }
+            }
+            return new Sample(ILLEGAL_NAME_CHARS.matcher(name).replaceAll("_"), labels);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.metric;
+
+/**
+ * A timer that has been resolved for a particular metric name.
+ * <p>
+ * A timer keeps track of the distribution of the durations recorded with it.
+ *
+ * @see Metrics#getTimer(String)
+ */
+@FunctionalInterface
+public interface TimerHandle {
+
+    /**
+     * Records a duration.
+     *
+     * @param durationNanos The duration in nanoseconds.
+     */
+    void update(long durationNanos);
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.metric;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Timers for the stages of forwarding messages uploaded by devices
+ * to a particular endpoint and tenant.
+ * <p>
+ * The timers are further scoped by the QoS level that the messages are
+ * uploaded with. The name of a timer is made up of a common prefix, the
+ * QoS level and the stage, e.g. {@code timer.hono.http.messages.telemetry.DEFAULT_TENANT.qos1.forward}.
+ * <p>
+ * Each timer is resolved when it is used for the first time.
+ *
+ * @see Metrics#newUploadTimers(java.util.function.BiFunction)
+ */
+public final class UploadTimers {
+
+    /**
+     * The highest supported QoS level.
+     */
+    public static final int MAX_QOS = 2;
+
+    /**
+     * The stages of forwarding a message.
+     */
+    public enum Stage {
+
+        /**
+         * Looking up the tenant, the device's registration status and the downstream sender.
+         */
+        LOOKUP("lookup"),
+        /**
+         * Sending the message downstream, including waiting for the disposition
+         * (if the message is sent with QoS 1).
+         */
+        FORWARD("forward"),
+        /**
+         * The overall time from receiving the message until it has been forwarded.
+         */
+        TOTAL("total");
+
+        private final String name;
+
+        Stage(final String name) {
+            this.name = name;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final String namePrefix;
+    private final Function<String, TimerHandle> resolver;
+    private final TimerHandle[] timers = new TimerHandle[STAGES.length * (MAX_QOS + 1)];
+
+    /**
+     * Creates timers for a name prefix.
+     *
+     * @param namePrefix The prefix of the timers' names.
+     * @param resolver The function to invoke for resolving a timer by its name.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    UploadTimers(final String namePrefix, final Function<String, TimerHandle> resolver) {
+        this.namePrefix = Objects.requireNonNull(namePrefix);
+        this.resolver = Objects.requireNonNull(resolver);
+    }
+
+    /**
+     * Gets the timer for a stage and QoS level.
+     *
+     * @param stage The stage.
+     * @param qos The QoS level.
+     * @return The timer.
+     * @throws NullPointerException if stage is {@code null}.
+     * @throws IllegalArgumentException if the QoS level is &lt; 0 or &gt; {@link #MAX_QOS}.
+     */
+    public TimerHandle get(final Stage stage, final int qos) {
+
+        Objects.requireNonNull(stage);
+        if (qos < 0 || qos > MAX_QOS) {
+            throw new IllegalArgumentException("unsupported QoS level");
+        }
+        final int index = stage.ordinal() * (MAX_QOS + 1) + qos;
+        TimerHandle timer = timers[index];
+        if (timer == null) {
+            // resolving a timer is idempotent, so a race between threads
+            // only results in the timer being resolved more than once
+            timer = resolver.apply(namePrefix + ".qos" + qos + "." + stage.name);
+            timers[index] = timer;
+        }
+        return timer;
+    }
+}
@@ -13,6 +13,9 @@
 package org.eclipse.hono.service.registration;
 
 import java.net.HttpURLConnection;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 
 import org.eclipse.hono.client.ClientErrorException;
@@ -21,9 +24,13 @@ import org.eclipse.hono.util.CacheDirective;
 import org.eclipse.hono.util.EventBusMessage;
 import org.eclipse.hono.util.RegistrationConstants;
 import org.eclipse.hono.util.RegistrationResult;
+import org.eclipse.hono.util.ResourceIdentifier;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
@@ -36,6 +43,13 @@ import io.vertx.core.json.JsonObject;
  * In particular, this base class provides support for receiving service invocation request messages
  * via vert.x' event bus and route them to specific methods corresponding to the operation indicated
  * in the message.
+ * <p>
+ * Assertion tokens created for a device are cached and are included in the responses to
+ * subsequent requests for asserting the same device's registration status until a safety
+ * margin of 10% of the token's lifetime (at least one second) before the token expires.
+ * The maximum number of cached tokens can be set using {@link #setAssertionCacheMaxSize(long)}.
+ * Subclasses need to invoke {@link #invalidateAssertion(String, String)} whenever a device's
+ * registration information is updated or removed.
  * 
  * @param <T> The type of configuration properties this service requires.
  */
@@ -47,6 +61,12 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
      */
     public static final String PROPERTY_VIA = "via";
 
+    /**
+     * The default maximum number of assertion tokens that are cached.
+     */
+    public static final long DEFAULT_ASSERTION_CACHE_MAX_SIZE = 10000L;
+
+    private Cache<ResourceIdentifier, IssuedAssertion> issuedAssertions = newAssertionCache(DEFAULT_ASSERTION_CACHE_MAX_SIZE);
     private RegistrationAssertionHelper assertionFactory;
 
     /**
@@ -61,6 +81,24 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
         this.assertionFactory = Objects.requireNonNull(assertionFactory);
     }
 
+    /**
+     * Sets the maximum number of assertion tokens that are cached for reuse.
+     * <p>
+     * Setting this property to 0 disables caching, i.e. a new token is created
+     * for each request to assert a device's registration status.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_ASSERTION_CACHE_MAX_SIZE}.
+     * 
+     * @param size The maximum number of cached tokens.
+     * @throws IllegalArgumentException if size is &lt; 0.
+     */
+    public final void setAssertionCacheMaxSize(final long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("maximum cache size must not be negative");
+        }
+        this.issuedAssertions = size > 0 ? newAssertionCache(size) : null;
+    }
+
     /**
      * Asserts that the <em>assertionFactory</em> property is set.
      * <p>
@@ -312,10 +350,8 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
 
         getResultTracker.map(result -> {
             if (isDeviceEnabled(result)) {
-                return RegistrationResult.from(
-                        HttpURLConnection.HTTP_OK,
-                        getAssertionPayload(tenantId, deviceId, result.getPayload().getJsonObject(RegistrationConstants.FIELD_DATA)),
-                        CacheDirective.maxAgeDirective(assertionFactory.getAssertionLifetime()));
+                return getAssertionResult(tenantId, deviceId,
+                        result.getPayload().getJsonObject(RegistrationConstants.FIELD_DATA).getJsonObject(RegistrationConstants.FIELD_DEFAULTS));
             } else {
                 return RegistrationResult.from(HttpURLConnection.HTTP_NOT_FOUND);
             }
@@ -361,10 +397,8 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
                 final JsonObject gatewayData = gatewayResult.getPayload().getJsonObject(RegistrationConstants.FIELD_DATA, new JsonObject());
 
                 if (isGatewayAuthorized(gatewayId, gatewayData, deviceId, deviceData)) {
-                    return Future.succeededFuture(RegistrationResult.from(
-                        HttpURLConnection.HTTP_OK,
-                        getAssertionPayload(tenantId, deviceId, deviceData),
-                        CacheDirective.maxAgeDirective(assertionFactory.getAssertionLifetime())));
+                    return Future.succeededFuture(getAssertionResult(tenantId, deviceId,
+                            deviceData.getJsonObject(RegistrationConstants.FIELD_DEFAULTS)));
                 } else {
                     return Future.succeededFuture(RegistrationResult.from(HttpURLConnection.HTTP_FORBIDDEN));
                 }
@@ -419,6 +453,8 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
      * <p>
      * The returned JSON object may also contain <em>default</em> values registered for the
      * device under key {@link RegistrationConstants#FIELD_DEFAULTS}.
+     * <p>
+     * A token that has been created for the device before is reused if it is not about to expire.
      * 
      * @param tenantId The tenant the device belongs to.
      * @param deviceId The device to create the assertion token for.
@@ -427,10 +463,107 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
      */
     protected final JsonObject getAssertionPayload(final String tenantId, final String deviceId, final JsonObject registrationInfo) {
 
+        return newAssertionPayload(deviceId, getIssuedAssertion(tenantId, deviceId, Instant.now()).token,
+                registrationInfo.getJsonObject(RegistrationConstants.FIELD_DEFAULTS));
+    }
+
+    /**
+     * Creates the result of a successful assertion of a device's registration status.
+     * <p>
+     * The result contains the payload created by {@link #getAssertionPayload(String, String, JsonObject)}
+     * and a cache directive corresponding to the period of time during which the assertion token
+     * may be used.
+     * <p>
+     * Subclasses that keep the default values registered for devices readily available
+     * may use this method in order to avoid looking up the values in the device's
+     * registration information.
+     * 
+     * @param tenantId The tenant the device belongs to.
+     * @param deviceId The device to create the assertion token for.
+     * @param defaults The default values registered for the device or {@code null}
+     *                 if no default values are registered.
+     * @return The result.
+     */
+    protected final RegistrationResult getAssertionResult(final String tenantId, final String deviceId, final JsonObject defaults) {
+
+        final Instant now = Instant.now();
+        final IssuedAssertion assertion = getIssuedAssertion(tenantId, deviceId, now);
+        final long maxAge = assertion.isReusable(now) ? assertion.getMaxAge(now) : assertionFactory.getAssertionLifetime();
+        return RegistrationResult.from(
+                HttpURLConnection.HTTP_OK,
+                newAssertionPayload(deviceId, assertion.token, defaults),
+                CacheDirective.maxAgeDirective(maxAge));
+    }
+
+    /**
+     * Removes the assertion token that has been created for a device from the cache.
+     * <p>
+     * Subclasses should invoke this method whenever the registration information of
+     * a device is updated or removed.
+     * 
+     * @param tenantId The tenant the device belongs to.
+     * @param deviceId The device identifier.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    protected final void invalidateAssertion(final String tenantId, final String deviceId) {
+
+        Objects.requireNonNull(tenantId);
+        Objects.requireNonNull(deviceId);
+        if (issuedAssertions != null) {
+            issuedAssertions.invalidate(getAssertionKey(tenantId, deviceId));
+        }
+    }
+
+    /**
+     * Removes all assertion tokens from the cache.
+     * <p>
+     * Subclasses should invoke this method when the registration information of all
+     * devices is removed.
+     */
+    protected final void invalidateAllAssertions() {
+        if (issuedAssertions != null) {
+            issuedAssertions.invalidateAll();
+        }
+    }
+
+    private IssuedAssertion getIssuedAssertion(final String tenantId, final String deviceId, final Instant now) {
+
+        final IssuedAssertion cachedAssertion = issuedAssertions == null ? null
+                : issuedAssertions.getIfPresent(getAssertionKey(tenantId, deviceId));
+        if (cachedAssertion != null && cachedAssertion.isReusable(now)) {
+            log.trace("reusing cached assertion [tenant: {}, device-id: {}]", tenantId, deviceId);
+            return cachedAssertion;
+        }
+
+        final long lifetime = assertionFactory.getAssertionLifetime();
+        final long safetyMargin = Math.max(1, lifetime / 10);
+        // the token's exp claim has a resolution of seconds and is set after this point in time
+        final Instant reusableUntil = now.truncatedTo(ChronoUnit.SECONDS).plusSeconds(lifetime - safetyMargin);
+        final IssuedAssertion assertion = new IssuedAssertion(assertionFactory.getAssertion(tenantId, deviceId), reusableUntil);
+        if (issuedAssertions != null) {
+            final ResourceIdentifier key = getAssertionKey(tenantId, deviceId);
+            if (assertion.isReusable(now)) {
+                issuedAssertions.put(key, assertion);
+            } else {
+                issuedAssertions.invalidate(key);
+            }
+        }
+        return assertion;
+    }
+
+    private static Cache<ResourceIdentifier, IssuedAssertion> newAssertionCache(final long maxSize) {
+        return CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    private static ResourceIdentifier getAssertionKey(final String tenantId, final String deviceId) {
+        return ResourceIdentifier.from(RegistrationConstants.REGISTRATION_ENDPOINT, tenantId, deviceId);
+    }
+
+    private static JsonObject newAssertionPayload(final String deviceId, final String token, final JsonObject defaults) {
+
         final JsonObject result = new JsonObject()
                 .put(RegistrationConstants.FIELD_PAYLOAD_DEVICE_ID, deviceId)
-                .put(RegistrationConstants.FIELD_ASSERTION, assertionFactory.getAssertion(tenantId, deviceId));
-        final JsonObject defaults = registrationInfo.getJsonObject(RegistrationConstants.FIELD_DEFAULTS);
+                .put(RegistrationConstants.FIELD_ASSERTION, token);
         if (defaults != null) {
             result.put(RegistrationConstants.FIELD_DEFAULTS, defaults);
         }
@@ -451,4 +584,27 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
                 .put(RegistrationConstants.FIELD_PAYLOAD_DEVICE_ID, deviceId)
                 .put(RegistrationConstants.FIELD_DATA, data);
     }
+
+    /**
+     * An assertion token along with the point in time until which it may be
+     * included in responses.
+     */
+    private static final class IssuedAssertion {
+
+        private final String token;
+        private final Instant reusableUntil;
+
+        private IssuedAssertion(final String token, final Instant reusableUntil) {
+            this.token = token;
+            this.reusableUntil = reusableUntil;
+        }
+
+        private long getMaxAge(final Instant now) {
+            return Duration.between(now, reusableUntil).getSeconds();
+        }
+
+        private boolean isReusable(final Instant now) {
+            return getMaxAge(now) > 0;
+        }
+    }
 }
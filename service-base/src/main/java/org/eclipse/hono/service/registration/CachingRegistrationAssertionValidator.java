@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.registration;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Objects;
+
+import org.eclipse.hono.util.JwtHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A registration assertion validator that remembers tokens that have already
+ * been verified successfully.
+ * <p>
+ * Protocol adapters usually include the same assertion in many consecutive messages
+ * published on behalf of a device. This class verifies the signature of such a token
+ * only once by means of the wrapped validator and then considers the token valid
+ * for the same tenant and device until the token's <em>exp</em> claim has passed.
+ * <p>
+ * Tokens are cached under a SHA-256 digest of the token, tenant and device identifiers.
+ * The number of cached tokens is bounded, least recently used tokens are evicted first.
+ */
+public final class CachingRegistrationAssertionValidator implements RegistrationAssertionHelper {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingRegistrationAssertionValidator.class);
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final RegistrationAssertionHelper delegate;
+    private final Cache<String, Instant> verifiedTokens;
+
+    /**
+     * Creates a validator for a delegate.
+     *
+     * @param delegate The validator to use for verifying tokens that are not (yet) cached.
+     * @param maxCacheSize The maximum number of verified tokens to keep in the cache.
+     * @throws NullPointerException if delegate is {@code null}.
+     * @throws IllegalArgumentException if max cache size is &lt;= 0.
+     */
+    public CachingRegistrationAssertionValidator(final RegistrationAssertionHelper delegate, final long maxCacheSize) {
+
+        this.delegate = Objects.requireNonNull(delegate);
+        if (maxCacheSize <= 0) {
+            throw new IllegalArgumentException("max cache size must be > 0");
+        }
+        this.verifiedTokens = CacheBuilder.newBuilder()
+                .maximumSize(maxCacheSize)
+                .build();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Delegates to the wrapped helper.
+     */
+    @Override
+    public String getAssertion(final String tenantId, final String deviceId) {
+        return delegate.getAssertion(tenantId, deviceId);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Delegates to the wrapped helper.
+     */
+    @Override
+    public long getAssertionLifetime() {
+        return delegate.getAssertionLifetime();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The signature of the token is verified by means of the wrapped validator
+     * only if the token is not contained in the cache of already verified tokens.
+     */
+    @Override
+    public boolean isValid(final String token, final String tenantId, final String deviceId) {
+
+        Objects.requireNonNull(token);
+        Objects.requireNonNull(tenantId);
+        Objects.requireNonNull(deviceId);
+
+        final String key = getKey(token, tenantId, deviceId);
+        if (key == null) {
+            return delegate.isValid(token, tenantId, deviceId);
+        }
+
+        final Instant expiration = verifiedTokens.getIfPresent(key);
+        if (expiration != null) {
+            if (Instant.now().isBefore(expiration)) {
+                LOG.trace("found verified token in cache [tenant: {}, device-id: {}]", tenantId, deviceId);
+                return true;
+            } else {
+                verifiedTokens.invalidate(key);
+            }
+        }
+
+        if (delegate.isValid(token, tenantId, deviceId)) {
+            try {
+                final Instant exp = JwtHelper.getExpiration(token).toInstant();
+                if (Instant.now().isBefore(exp)) {
+                    verifiedTokens.put(key, exp);
+                }
+            } catch (final IllegalArgumentException e) {
+                // token contains no exp claim, do not cache it
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private static String getKey(final String token, final String tenantId, final String deviceId) {
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            digest.update(tenantId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0x00);
+            digest.update(deviceId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0x00);
+            digest.update(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (final NoSuchAlgorithmException e) {
+            // all JVMs are required to support SHA-256
+            LOG.warn("cannot create digest for registration assertion", e);
+            return null;
+        }
+    }
+}
@@ -23,14 +23,18 @@ import java.net.HttpURLConnection;
 import org.apache.qpid.proton.message.Message;
 import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.HonoClient;
+import org.eclipse.hono.client.MessageSender;
 import org.eclipse.hono.client.RegistrationClient;
 import org.eclipse.hono.client.ServiceInvocationException;
+import org.eclipse.hono.client.TenantClient;
 import org.eclipse.hono.config.ProtocolAdapterProperties;
 import org.eclipse.hono.service.auth.device.Device;
 import org.eclipse.hono.service.command.CommandConnection;
 import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.MessageHelper;
 import org.eclipse.hono.util.RegistrationConstants;
+import org.eclipse.hono.util.TelemetryConstants;
+import org.eclipse.hono.util.TenantObject;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -305,6 +309,64 @@ public class AbstractProtocolAdapterBaseTest {
                 }));
     }
 
+    /**
+     * Verifies that the upload context for a device is available right away
+     * if all of the service clients can answer from their local state.
+     */
+    @Test
+    public void testGetUploadContextSucceedsImmediatelyForCachedResults() {
+
+        // GIVEN an adapter connected to services which answer from their caches
+        final TenantObject tenant = TenantObject.from("tenant", true)
+                .addAdapterConfiguration(TenantObject.newAdapterConfig(ADAPTER_NAME, true));
+        givenATenantClient(Future.succeededFuture(tenant));
+        final JsonObject assertionResult = newRegistrationAssertionResult("token");
+        when(registrationClient.assertRegistration(eq("device"), any(), any())).thenReturn(Future.succeededFuture(assertionResult));
+        final MessageSender sender = mock(MessageSender.class);
+        when(messagingService.getOrCreateTelemetrySender("tenant")).thenReturn(Future.succeededFuture(sender));
+
+        // WHEN retrieving the upload context for a telemetry message
+        final Future<UploadContext> result = adapter.getUploadContext(
+                TelemetryConstants.TELEMETRY_ENDPOINT, "tenant", "device", null, null);
+
+        // THEN the returned future has already succeeded
+        assertTrue(result.succeeded());
+        assertThat(result.result().getTenant(), is(tenant));
+        assertThat(result.result().getRegistrationAssertion(), is(assertionResult));
+        assertThat(result.result().getSender(), is(sender));
+    }
+
+    /**
+     * Verifies that the upload context cannot be retrieved for a tenant
+     * that the adapter is not enabled for.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testGetUploadContextFailsWith403ForDisabledAdapter(final TestContext ctx) {
+
+        // GIVEN a tenant for which the adapter is disabled
+        givenATenantClient(Future.succeededFuture(TenantObject.from("tenant", true)
+                .addAdapterConfiguration(TenantObject.newAdapterConfig(ADAPTER_NAME, false))));
+        when(registrationClient.assertRegistration(eq("device"), any(), any()))
+            .thenReturn(Future.succeededFuture(newRegistrationAssertionResult("token")));
+        when(messagingService.getOrCreateEventSender("tenant")).thenReturn(Future.succeededFuture(mock(MessageSender.class)));
+
+        // WHEN retrieving the upload context for an event
+        adapter.getUploadContext(EventConstants.EVENT_ENDPOINT, "tenant", "device", null, null)
+            .setHandler(ctx.asyncAssertFailure(t -> {
+                // THEN the request fails with a 403 Forbidden error
+                ctx.assertEquals(HttpURLConnection.HTTP_FORBIDDEN, ((ClientErrorException) t).getErrorCode());
+            }));
+    }
+
+    private void givenATenantClient(final Future<TenantObject> result) {
+
+        final TenantClient tenantClient = mock(TenantClient.class);
+        when(tenantClient.get(eq("tenant"), any())).thenReturn(result);
+        when(tenantService.getOrCreateTenantClient()).thenReturn(Future.succeededFuture(tenantClient));
+    }
+
     private AbstractProtocolAdapterBase<ProtocolAdapterProperties> newProtocolAdapter(final ProtocolAdapterProperties props) {
 
         return newProtocolAdapter(props, ADAPTER_NAME);
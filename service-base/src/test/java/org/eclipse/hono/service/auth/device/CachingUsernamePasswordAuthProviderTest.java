@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.auth.device;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.hono.client.CredentialsClient;
+import org.eclipse.hono.client.HonoClient;
+import org.eclipse.hono.config.ServiceConfigProperties;
+import org.eclipse.hono.util.CredentialsConstants;
+import org.eclipse.hono.util.CredentialsObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+
+import io.vertx.core.Future;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+
+/**
+ * Tests verifying behavior of {@link CachingUsernamePasswordAuthProvider}.
+ *
+ */
+@RunWith(VertxUnitRunner.class)
+public class CachingUsernamePasswordAuthProviderTest {
+
+    /**
+     * Time out all test after 2 secs.
+     */
+    @Rule
+    public Timeout globalTimeout = new Timeout(2, TimeUnit.SECONDS);
+
+    private CredentialsClient credentialsClient;
+    private CachingUsernamePasswordAuthProvider provider;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+
+        credentialsClient = mock(CredentialsClient.class);
+        when(credentialsClient.get(anyString(), anyString())).thenReturn(Future.succeededFuture(
+                CredentialsObject.fromHashedPassword("device", "device", "secret",
+                        CredentialsConstants.DEFAULT_HASH_FUNCTION, null, null, null)));
+        final HonoClient honoClient = mock(HonoClient.class);
+        when(honoClient.getOrCreateCredentialsClient(anyString())).thenReturn(Future.succeededFuture(credentialsClient));
+
+        provider = new CachingUsernamePasswordAuthProvider(
+                new UsernamePasswordAuthProvider(honoClient, new ServiceConfigProperties()),
+                Duration.ofMinutes(1),
+                100);
+    }
+
+    /**
+     * Verifies that the credentials of a device are retrieved from the
+     * Credentials service only once.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testAuthenticateRetrievesCredentialsOnlyOnce(final TestContext ctx) {
+
+        // GIVEN a device that has been authenticated already
+        final Async authentication = ctx.async();
+        provider.authenticate(UsernamePasswordCredentials.create("device@tenant", "secret", false), ctx.asyncAssertSuccess(device -> {
+            authentication.complete();
+        }));
+        authentication.await();
+
+        // WHEN the device authenticates again using the same credentials
+        provider.authenticate(UsernamePasswordCredentials.create("device@tenant", "secret", false), ctx.asyncAssertSuccess(device -> {
+            // THEN the device is authenticated
+            ctx.assertEquals("tenant", device.getTenantId());
+            ctx.assertEquals("device", device.getDeviceId());
+            // without retrieving the credentials again
+            verify(credentialsClient, times(1)).get(CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD, "device");
+        }));
+    }
+
+    /**
+     * Verifies that a device presenting a different password is not
+     * authenticated from the cache.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testAuthenticateFailsForDifferentPassword(final TestContext ctx) {
+
+        // GIVEN a device that has been authenticated already
+        final Async authentication = ctx.async();
+        provider.authenticate(UsernamePasswordCredentials.create("device@tenant", "secret", false), ctx.asyncAssertSuccess(device -> {
+            authentication.complete();
+        }));
+        authentication.await();
+
+        // WHEN the device authenticates using a different password
+        provider.authenticate(UsernamePasswordCredentials.create("device@tenant", "wrong", false), ctx.asyncAssertFailure(t -> {
+            // THEN the credentials are verified against the Credentials service
+            verify(credentialsClient, times(2)).get(CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD, "device");
+        }));
+    }
+
+    /**
+     * Verifies that failed authentication attempts are not cached.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testAuthenticateDoesNotCacheFailedAttempts(final TestContext ctx) {
+
+        // GIVEN a device that has failed to authenticate
+        final Async authentication = ctx.async();
+        provider.authenticate(UsernamePasswordCredentials.create("device@tenant", "wrong", false), ctx.asyncAssertFailure(t -> {
+            authentication.complete();
+        }));
+        authentication.await();
+
+        // WHEN the device authenticates again using the same credentials
+        provider.authenticate(UsernamePasswordCredentials.create("device@tenant", "wrong", false), ctx.asyncAssertFailure(t -> {
+            // THEN the credentials are verified against the Credentials service again
+            verify(credentialsClient, times(2)).get(CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD, "device");
+        }));
+    }
+}
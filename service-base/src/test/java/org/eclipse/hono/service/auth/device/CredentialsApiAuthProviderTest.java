@@ -16,6 +16,7 @@ package org.eclipse.hono.service.auth.device;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.net.HttpURLConnection;
@@ -25,6 +26,8 @@ import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.CredentialsClient;
 import org.eclipse.hono.client.HonoClient;
 import org.eclipse.hono.client.ServerErrorException;
+import org.eclipse.hono.util.CredentialsConstants;
+import org.eclipse.hono.util.CredentialsObject;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -128,4 +131,27 @@ public class CredentialsApiAuthProviderTest {
         }));
     }
 
+    /**
+     * Verifies that the auth provider removes the credentials on record from the
+     * credentials client's cache if the credentials provided by the device do not
+     * match.
+     * 
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testAuthenticateRemovesNonMatchingCredentialsFromCache(final TestContext ctx) {
+
+        // GIVEN credentials on record with a password that differs from the one provided by the device
+        final CredentialsObject credentialsOnRecord = CredentialsObject.fromHashedPassword(
+                "device", "device", "old-secret", CredentialsConstants.DEFAULT_HASH_FUNCTION, null, null, null);
+        when(credentialsClient.get(anyString(), eq("device"))).thenReturn(Future.succeededFuture(credentialsOnRecord));
+
+        // WHEN trying to authenticate using the new password
+        provider.authenticate(UsernamePasswordCredentials.create("device@TENANT", "new-secret", false), ctx.asyncAssertFailure(t -> {
+            // THEN authentication fails with a 401 client error
+            ctx.assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, ((ClientErrorException) t).getErrorCode());
+            // and the credentials on record are removed from the cache
+            verify(credentialsClient).removeFromCache(CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD, "device");
+        }));
+    }
 }
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.metric;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.hono.service.metric.UploadTimers.Stage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+
+/**
+ * Tests verifying behavior of {@link Metrics}.
+ *
+ */
+public class MetricsTest {
+
+    private Metrics metrics;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+
+        metrics = new Metrics() {
+
+            @Override
+            protected String getPrefix() {
+                return "test";
+            }
+        };
+    }
+
+    /**
+     * Verifies that counter handles update the same dropwizard metrics as
+     * the dropwizard based counter service.
+     */
+    @Test
+    public void testCounterHandlesUpdateDropwizardMetrics() {
+
+        // GIVEN metrics backed by a dropwizard registry
+        final MetricRegistry registry = new MetricRegistry();
+        final DropwizardMetricServices counterService = new DropwizardMetricServices(registry);
+        metrics.setMetricRegistry(registry);
+        metrics.setCounterService(counterService);
+
+        // WHEN updating a meter and a counter using both the counter service and handles
+        counterService.increment("meter.test.processed");
+        metrics.getCounter("meter.test.processed").increment();
+        counterService.increment("test.connections");
+        metrics.getCounter("test.connections").increment();
+        metrics.getCounter("test.connections").decrement();
+        metrics.getCounter("test.connections").increment();
+
+        // THEN the handles have updated the counter service's metrics
+        assertEquals(2, registry.meter("meter.test.processed").getCount());
+        assertEquals(2, registry.counter("counter.test.connections").getCount());
+        assertEquals(2, registry.getMetrics().size());
+    }
+
+    /**
+     * Verifies that counter handles delegate to the counter service if it is
+     * not backed by a dropwizard registry.
+     */
+    @Test
+    public void testCounterHandlesDelegateToCounterService() {
+
+        final CounterService counterService = mock(CounterService.class);
+        metrics.setCounterService(counterService);
+
+        final CounterHandle handle = metrics.getCounter("test.connections");
+        handle.increment();
+        handle.decrement();
+
+        verify(counterService).increment("test.connections");
+        verify(counterService).decrement("test.connections");
+    }
+
+    /**
+     * Verifies that handles are resolved once per scope and key only.
+     */
+    @Test
+    public void testMetricHandlesResolveHandlesOnce() {
+
+        final AtomicInteger resolved = new AtomicInteger();
+        final MetricHandles<CounterHandle> handles = metrics.newCounterHandles((endpoint, tenant) -> {
+            resolved.incrementAndGet();
+            return endpoint + "." + tenant;
+        });
+
+        final CounterHandle handle = handles.get("telemetry", "tenant");
+        assertSame(handle, handles.get("telemetry", "tenant"));
+        assertNotSame(handle, handles.get("event", "tenant"));
+        assertNotSame(handle, handles.get("telemetry", "other-tenant"));
+        assertEquals(3, resolved.get());
+    }
+
+    /**
+     * Verifies that upload timers update the dropwizard timers that are scoped
+     * by endpoint, tenant, QoS level and stage.
+     */
+    @Test
+    public void testUploadTimersUpdateDropwizardTimers() {
+
+        // GIVEN metrics backed by a dropwizard registry
+        final MetricRegistry registry = new MetricRegistry();
+        final DropwizardMetricServices metricServices = new DropwizardMetricServices(registry);
+        metrics.setMetricRegistry(registry);
+        metrics.setGaugeService(metricServices);
+        final MetricHandles<UploadTimers> uploadTimers = metrics.newUploadTimers(
+                (endpoint, tenant) -> "timer.test.messages." + endpoint + "." + tenant);
+
+        // WHEN recording the durations of forwarding a message
+        final UploadTimers timers = uploadTimers.get("telemetry", "tenant");
+        timers.get(Stage.LOOKUP, 1).update(TimeUnit.MILLISECONDS.toNanos(5));
+        timers.get(Stage.FORWARD, 1).update(TimeUnit.MILLISECONDS.toNanos(10));
+        timers.get(Stage.FORWARD, 1).update(TimeUnit.MILLISECONDS.toNanos(20));
+
+        // THEN the timers have been updated with nanosecond precision
+        final Timer lookup = registry.timer("timer.test.messages.telemetry.tenant.qos1.lookup");
+        assertEquals(1, lookup.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5), lookup.getSnapshot().getMax());
+        final Timer forward = registry.timer("timer.test.messages.telemetry.tenant.qos1.forward");
+        assertEquals(2, forward.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), forward.getSnapshot().getMax());
+        // and no timers have been created for other QoS levels or stages
+        assertEquals(2, registry.getTimers().size());
+    }
+
+    /**
+     * Verifies that timer handles submit durations in milliseconds to the
+     * gauge service if it is not backed by a dropwizard registry.
+     */
+    @Test
+    public void testTimerHandlesDelegateToGaugeService() {
+
+        final GaugeService gaugeService = mock(GaugeService.class);
+        metrics.setGaugeService(gaugeService);
+
+        metrics.getTimer("timer.test.forward").update(TimeUnit.MICROSECONDS.toNanos(1500));
+
+        verify(gaugeService).submit("timer.test.forward", 1.5);
+    }
+
+    /**
+     * Verifies that upload timers reject unsupported QoS levels.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUploadTimersRejectUnsupportedQoS() {
+
+        metrics.newUploadTimers((endpoint, tenant) -> "timer").get("telemetry", "tenant").get(Stage.TOTAL, 3);
+    }
+}
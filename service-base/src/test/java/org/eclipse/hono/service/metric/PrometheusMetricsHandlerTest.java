@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.metric;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+
+/**
+ * Tests verifying behavior of {@link PrometheusMetricsHandler}.
+ *
+ */
+public class PrometheusMetricsHandlerTest {
+
+    private MetricRegistry registry;
+    private PrometheusMetricsHandler handler;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+        registry = new MetricRegistry();
+        handler = new PrometheusMetricsHandler(registry);
+    }
+
+    /**
+     * Verifies that the tenant and type of message are exposed as labels
+     * of a single metric family.
+     */
+    @Test
+    public void testScrapeExposesTenantAndTypeAsLabels() {
+
+        registry.meter("meter.hono.http.messages.telemetry.DEFAULT_TENANT.processed").mark(3);
+        registry.meter("meter.hono.http.messages.event.other.processed").mark();
+        registry.counter("counter.hono.mqtt.connections.DEFAULT_TENANT").inc(2);
+
+        final String result = handler.scrape();
+
+        assertThat(result, containsString("# TYPE hono_http_messages_processed_total counter\n"));
+        assertThat(result, containsString("hono_http_messages_processed_total{tenant=\"DEFAULT_TENANT\",type=\"telemetry\"} 3.0\n"));
+        assertThat(result, containsString("hono_http_messages_processed_total{tenant=\"other\",type=\"event\"} 1.0\n"));
+        assertThat(result, containsString("# TYPE hono_mqtt_connections gauge\n"));
+        assertThat(result, containsString("hono_mqtt_connections{tenant=\"DEFAULT_TENANT\"} 2.0\n"));
+        // the type of a metric family is declared only once
+        assertEquals(result.indexOf("# TYPE hono_http_messages_processed_total"),
+                result.lastIndexOf("# TYPE hono_http_messages_processed_total"));
+    }
+
+    /**
+     * Verifies that timers are exposed as summaries in seconds with the
+     * QoS level as a label.
+     */
+    @Test
+    public void testScrapeExposesTimersAsSummaries() {
+
+        registry.timer("timer.hono.mqtt.messages.telemetry.DEFAULT_TENANT.qos1.forward").update(500, TimeUnit.MILLISECONDS);
+
+        final String result = handler.scrape();
+
+        assertThat(result, containsString("# TYPE hono_mqtt_messages_forward_seconds summary\n"));
+        assertThat(result, containsString(
+                "hono_mqtt_messages_forward_seconds{qos=\"1\",tenant=\"DEFAULT_TENANT\",type=\"telemetry\",quantile=\"0.99\"} 0.5\n"));
+        assertThat(result, containsString(
+                "hono_mqtt_messages_forward_seconds_count{qos=\"1\",tenant=\"DEFAULT_TENANT\",type=\"telemetry\"} 1.0\n"));
+    }
+
+    /**
+     * Verifies that metrics which do not match any of Hono's templates are exposed
+     * using their sanitized names and that gauges with non-numeric values are omitted.
+     */
+    @Test
+    public void testScrapeSanitizesOtherMetricNames() {
+
+        registry.register("hono.http.vertx.pools.worker.vert.x-worker-thread.queue-size", (Gauge<Integer>) () -> 4);
+        registry.register("hono.http.vertx.name", (Gauge<String>) () -> "test");
+
+        final String result = handler.scrape();
+
+        assertThat(result, containsString("hono_http_vertx_pools_worker_vert_x_worker_thread_queue_size 4.0\n"));
+        assertThat(result, not(containsString("hono_http_vertx_name")));
+    }
+}
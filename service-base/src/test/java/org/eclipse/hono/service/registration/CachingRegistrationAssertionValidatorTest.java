@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.registration;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests verifying behavior of {@link CachingRegistrationAssertionValidator}.
+ *
+ */
+public class CachingRegistrationAssertionValidatorTest {
+
+    private static final String SECRET = "hfguisdauifsuifhwebfjkhsdfuigsdafigsdaozfgaDSBCMBGQ";
+
+    private RegistrationAssertionHelper helper;
+    private RegistrationAssertionHelper delegate;
+    private CachingRegistrationAssertionValidator validator;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+        helper = RegistrationAssertionHelperImpl.forSharedSecret(SECRET, 60);
+        delegate = mock(RegistrationAssertionHelper.class);
+        when(delegate.isValid(anyString(), anyString(), anyString())).thenAnswer(invocation -> helper.isValid(
+                invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+        validator = new CachingRegistrationAssertionValidator(delegate, 100);
+    }
+
+    /**
+     * Verifies that the signature of a token is verified only once.
+     */
+    @Test
+    public void testIsValidVerifiesSignatureOnlyOnce() {
+
+        final String token = helper.getAssertion("tenant", "device");
+        assertTrue(validator.isValid(token, "tenant", "device"));
+        assertTrue(validator.isValid(token, "tenant", "device"));
+        verify(delegate, times(1)).isValid(token, "tenant", "device");
+    }
+
+    /**
+     * Verifies that a cached token is not considered valid for another device.
+     */
+    @Test
+    public void testIsValidFailsForOtherDevice() {
+
+        final String token = helper.getAssertion("tenant", "device");
+        assertTrue(validator.isValid(token, "tenant", "device"));
+        assertFalse(validator.isValid(token, "tenant", "other-device"));
+        assertFalse(validator.isValid(token, "other-tenant", "device"));
+    }
+
+    /**
+     * Verifies that invalid tokens are not cached.
+     */
+    @Test
+    public void testIsValidDoesNotCacheInvalidTokens() {
+
+        final String token = RegistrationAssertionHelperImpl.forSharedSecret(SECRET.replace('h', 'x'), 60)
+                .getAssertion("tenant", "device");
+        assertFalse(validator.isValid(token, "tenant", "device"));
+        assertFalse(validator.isValid(token, "tenant", "device"));
+        verify(delegate, times(2)).isValid(anyString(), anyString(), anyString());
+    }
+}
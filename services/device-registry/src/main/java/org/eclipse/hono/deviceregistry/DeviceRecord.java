@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.deviceregistry;
+
+import java.util.Objects;
+
+import org.eclipse.hono.service.registration.BaseRegistrationService;
+import org.eclipse.hono.util.RegistrationConstants;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The registration information of a device.
+ * <p>
+ * In addition to the data that has been registered for the device, a record
+ * contains the properties that are needed for asserting the device's registration
+ * status in parsed form. The data is expected to be replaced instead of being
+ * modified in place after the record has been created.
+ */
+final class DeviceRecord {
+
+    private final JsonObject data;
+    private final boolean enabled;
+    private final String via;
+    private final JsonObject defaults;
+
+    private DeviceRecord(final JsonObject data) {
+
+        this.data = data;
+        this.enabled = !Boolean.FALSE.equals(data.getValue(RegistrationConstants.FIELD_ENABLED));
+        this.via = getValue(data, BaseRegistrationService.PROPERTY_VIA, String.class);
+        this.defaults = getValue(data, RegistrationConstants.FIELD_DEFAULTS, JsonObject.class);
+    }
+
+    /**
+     * Creates a record for registration data.
+     *
+     * @param data The data registered for the device.
+     * @return The record.
+     * @throws NullPointerException if data is {@code null}.
+     */
+    static DeviceRecord from(final JsonObject data) {
+        return new DeviceRecord(Objects.requireNonNull(data));
+    }
+
+    private static <T> T getValue(final JsonObject data, final String field, final Class<T> type) {
+
+        final Object value = data.getValue(field);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    /**
+     * Gets the data registered for the device.
+     *
+     * @return The data.
+     */
+    JsonObject getData() {
+        return data;
+    }
+
+    /**
+     * Checks if the device is enabled.
+     *
+     * @return {@code false} if the data contains an <em>enabled</em> property
+     *         with value {@code false}, {@code true} otherwise.
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the identifier of the gateway that may act on behalf of the device.
+     *
+     * @return The identifier or {@code null} if not set.
+     */
+    String getVia() {
+        return via;
+    }
+
+    /**
+     * Gets the default values registered for the device.
+     *
+     * @return The default values or {@code null} if not set.
+     */
+    JsonObject getDefaults() {
+        return defaults;
+    }
+}
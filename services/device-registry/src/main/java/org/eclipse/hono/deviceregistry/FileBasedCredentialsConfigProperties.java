@@ -25,6 +25,7 @@ public final class FileBasedCredentialsConfigProperties extends AbstractFileBase
      */
     private static final String DEFAULT_CREDENTIALS_FILENAME = "/var/lib/hono/device-registry/credentials.json";
 
+    private long cacheMaxAge = 0;
 
     /**
      * {@inheritDoc}
@@ -33,4 +34,38 @@ public final class FileBasedCredentialsConfigProperties extends AbstractFileBase
     protected String getDefaultFileName() {
         return DEFAULT_CREDENTIALS_FILENAME;
     }
+
+    /**
+     * Gets the number of seconds that clients may cache credentials retrieved from the registry.
+     * <p>
+     * Note that clients may continue to use cached credentials after they have been
+     * disabled, removed or updated in the registry until the period has elapsed.
+     * <p>
+     * The default value of this property is 0, which means that responses contain a
+     * <em>no-cache</em> directive.
+     *
+     * @return The number of seconds.
+     */
+    public long getCacheMaxAge() {
+        return cacheMaxAge;
+    }
+
+    /**
+     * Sets the number of seconds that clients may cache credentials retrieved from the registry.
+     * <p>
+     * Note that clients may continue to use cached credentials after they have been
+     * disabled, removed or updated in the registry until the period has elapsed.
+     * <p>
+     * The default value of this property is 0, which means that responses contain a
+     * <em>no-cache</em> directive.
+     *
+     * @param maxAge The number of seconds.
+     * @throws IllegalArgumentException if max age is negative.
+     */
+    public void setCacheMaxAge(final long maxAge) {
+        if (maxAge < 0) {
+            throw new IllegalArgumentException("max age must be >= 0");
+        }
+        this.cacheMaxAge = maxAge;
+    }
 }
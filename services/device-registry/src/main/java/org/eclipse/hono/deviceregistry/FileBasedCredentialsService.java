@@ -14,9 +14,11 @@
 package org.eclipse.hono.deviceregistry;
 
 import java.net.HttpURLConnection;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
@@ -60,6 +62,8 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
 
     // <tenantId, <authId, credentialsData[]>>
     private final Map<String, Map<String, JsonArray>> credentials = new HashMap<>();
+    // <tenantId, <deviceId, credentialsData[]>>
+    private final Map<String, Map<String, List<JsonObject>>> credentialsByDevice = new HashMap<>();
     private boolean running = false;
     private boolean dirty = false;
 
@@ -140,14 +144,11 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
     private Future<Void> addAll(final Buffer credentials) {
         final Future<Void> result = Future.future();
         try {
-            int credentialsCount = 0;
-            final JsonArray allObjects = credentials.toJsonArray();
-            log.debug("trying to load credentials for {} tenants", allObjects.size());
-            for (final Object obj : allObjects) {
-                if (JsonObject.class.isInstance(obj)) {
-                    credentialsCount += addCredentialsForTenant((JsonObject) obj);
-                }
-            }
+            final int credentialsCount = RegistryFileParser.parse(credentials, ARRAY_CREDENTIALS, (tenantId, credentialsObject) -> {
+                final String authId = credentialsObject.getString(CredentialsConstants.FIELD_AUTH_ID);
+                getAuthIdCredentials(authId, getCredentialsForTenant(tenantId)).add(credentialsObject);
+                addToDeviceIndex(tenantId, credentialsObject);
+            });
             log.info("successfully loaded {} credentials from file [{}]", credentialsCount, getConfig().getFilename());
             result.complete();
         } catch (final DecodeException e) {
@@ -155,26 +156,6 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
             result.fail(e);
         }
         return result;
-    };
-
-    int addCredentialsForTenant(final JsonObject tenant) {
-        int count = 0;
-        final String tenantId = tenant.getString(FIELD_TENANT);
-        final Map<String, JsonArray> credentialsMap = new HashMap<>();
-        for (final Object credentialsObj : tenant.getJsonArray(ARRAY_CREDENTIALS)) {
-            final JsonObject credentials = (JsonObject) credentialsObj;
-            final JsonArray authIdCredentials;
-            if (credentialsMap.containsKey(credentials.getString(CredentialsConstants.FIELD_AUTH_ID))) {
-                authIdCredentials = credentialsMap.get(credentials.getString(CredentialsConstants.FIELD_AUTH_ID));
-            } else {
-                authIdCredentials = new JsonArray();
-            }
-            authIdCredentials.add(credentials);
-            credentialsMap.put(credentials.getString(CredentialsConstants.FIELD_AUTH_ID), authIdCredentials);
-            count++;
-        }
-        credentials.put(tenantId, credentialsMap);
-        return count;
     }
 
     @Override
@@ -196,29 +177,37 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
             return Future.succeededFuture();
         } else if (dirty) {
             return checkFileExists(true).compose(s -> {
+                // take a copy of the arrays on the event loop thread because they are
+                // modified in place, the credentials themselves are replaced instead
+                final Map<String, List<JsonArray>> snapshot = new HashMap<>(credentials.size());
+                credentials.forEach((tenantId, credentialsForTenant) -> {
+                    final List<JsonArray> arrays = new ArrayList<>(credentialsForTenant.size());
+                    credentialsForTenant.values().forEach(array -> arrays.add(new JsonArray(new ArrayList<>(array.getList()))));
+                    snapshot.put(tenantId, arrays);
+                });
+                dirty = false;
+
                 final AtomicInteger idCount = new AtomicInteger();
-                final JsonArray tenants = new JsonArray();
-                for (final Entry<String, Map<String, JsonArray>> entry : credentials.entrySet()) {
-                    final JsonArray credentialsArray = new JsonArray();
-                    for (final JsonArray singleAuthIdCredentials : entry.getValue().values()) {
-                        credentialsArray.addAll(singleAuthIdCredentials.copy());
-                        idCount.incrementAndGet();
+                return SnapshotWriter.write(vertx, getConfig().getFilename(), () -> {
+                    final JsonArray tenants = new JsonArray();
+                    for (final Entry<String, List<JsonArray>> entry : snapshot.entrySet()) {
+                        final JsonArray credentialsArray = new JsonArray();
+                        for (final JsonArray singleAuthIdCredentials : entry.getValue()) {
+                            credentialsArray.addAll(singleAuthIdCredentials);
+                            idCount.incrementAndGet();
+                        }
+                        tenants.add(
+                                new JsonObject()
+                                        .put(FIELD_TENANT, entry.getKey())
+                                        .put(ARRAY_CREDENTIALS, credentialsArray));
                     }
-                    tenants.add(
-                            new JsonObject()
-                                    .put(FIELD_TENANT, entry.getKey())
-                                    .put(ARRAY_CREDENTIALS, credentialsArray));
-                }
-                final Future<Void> writeHandler = Future.future();
-                vertx.fileSystem().writeFile(
-                        getConfig().getFilename(),
-                        Buffer.buffer(tenants.encodePrettily(), StandardCharsets.UTF_8.name()),
-                        writeHandler.completer());
-                return writeHandler.map(ok -> {
-                    dirty = false;
+                    return tenants;
+                }).map(ok -> {
                     log.trace("successfully wrote {} credentials to file {}", idCount.get(), getConfig().getFilename());
                     return (Void) null;
                 }).otherwise(t -> {
+                    // make sure that the modifications are written with the next attempt
+                    dirty = true;
                     log.warn("could not write credentials to file {}", getConfig().getFilename(), t);
                     return (Void) null;
                 });
@@ -232,7 +221,8 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
     /**
      * {@inheritDoc}
      * <p>
-     * The result object will include a <em>no-cache</em> directive.
+     * The result object will include the same cache directive as
+     * {@link #get(String, String, String, JsonObject, Handler)}.
      */
     @Override
     public void get(final String tenantId, final String type, final String authId, final Handler<AsyncResult<CredentialsResult<JsonObject>>> resultHandler) {
@@ -242,7 +232,9 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
     /**
      * {@inheritDoc}
      * <p>
-     * The result object will include a <em>no-cache</em> directive.
+     * The result object will include a <em>no-cache</em> directive unless a
+     * positive <em>cacheMaxAge</em> has been configured, in which case it will
+     * include a <em>max-age</em> directive with the configured number of seconds.
      */
     @Override
     public void get(
@@ -262,7 +254,16 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
             resultHandler.handle(Future.succeededFuture(CredentialsResult.from(HttpURLConnection.HTTP_NOT_FOUND)));
         } else {
             resultHandler.handle(Future.succeededFuture(
-                    CredentialsResult.from(HttpURLConnection.HTTP_OK, data.copy(), CacheDirective.noCacheDirective())));
+                    CredentialsResult.from(HttpURLConnection.HTTP_OK, data.copy(), getCacheDirective())));
+        }
+    }
+
+    private CacheDirective getCacheDirective() {
+
+        if (getConfig().getCacheMaxAge() > 0) {
+            return CacheDirective.maxAgeDirective(getConfig().getCacheMaxAge());
+        } else {
+            return CacheDirective.noCacheDirective();
         }
     }
 
@@ -278,37 +279,18 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
         Objects.requireNonNull(deviceId);
         Objects.requireNonNull(resultHandler);
 
-        final Map<String, JsonArray> credentialsForTenant = credentials.get(tenantId);
-        if (credentialsForTenant == null) {
+        final List<JsonObject> credentialsOfDevice = getCredentialsOfDevice(tenantId, deviceId);
+        if (credentialsOfDevice.isEmpty()) {
             resultHandler.handle(Future.succeededFuture(CredentialsResult.from(HttpURLConnection.HTTP_NOT_FOUND)));
         } else {
             final JsonArray matchingCredentials = new JsonArray();
-            // iterate over all credentials per auth-id in order to find credentials matching the given device
-            for (final JsonArray credentialsForAuthId : credentialsForTenant.values()) {
-                findCredentialsForDevice(credentialsForAuthId, deviceId, matchingCredentials);
-            }
-            if (matchingCredentials.isEmpty()) {
-                resultHandler.handle(Future.succeededFuture(CredentialsResult.from(HttpURLConnection.HTTP_NOT_FOUND)));
-            } else {
-                final JsonObject result = new JsonObject()
-                        .put(CredentialsConstants.FIELD_CREDENTIALS_TOTAL, matchingCredentials.size())
-                        .put(CredentialsConstants.CREDENTIALS_ENDPOINT, matchingCredentials);
-                resultHandler.handle(Future.succeededFuture(
-                        CredentialsResult.from(HttpURLConnection.HTTP_OK, result, CacheDirective.noCacheDirective())));
-            }
-        }
-    }
-
-    private void findCredentialsForDevice(final JsonArray credentials, final String deviceId, final JsonArray result) {
-
-        for (final Object obj : credentials) {
-            if (obj instanceof JsonObject) {
-                final JsonObject currentCredentials = (JsonObject) obj;
-                if (deviceId.equals(getTypesafeValueForField(currentCredentials, CredentialsConstants.FIELD_PAYLOAD_DEVICE_ID))) {
-                    // device ID matches, add a copy of credentials to result
-                    result.add(currentCredentials.copy());
-                }
-            }
+            // add copies of the credentials to the result
+            credentialsOfDevice.forEach(creds -> matchingCredentials.add(creds.copy()));
+            final JsonObject result = new JsonObject()
+                    .put(CredentialsConstants.FIELD_CREDENTIALS_TOTAL, matchingCredentials.size())
+                    .put(CredentialsConstants.CREDENTIALS_ENDPOINT, matchingCredentials);
+            resultHandler.handle(Future.succeededFuture(
+                    CredentialsResult.from(HttpURLConnection.HTTP_OK, result, CacheDirective.noCacheDirective())));
         }
     }
 
@@ -387,6 +369,7 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
         }
 
         authIdCredentials.add(credentialsToAdd);
+        addToDeviceIndex(tenantId, credentialsToAdd);
         dirty = true;
         return CredentialsResult.from(HttpURLConnection.HTTP_CREATED);
     }
@@ -418,12 +401,14 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
                         final JsonObject creds = (JsonObject) credentialsIterator.next();
                         if (creds.getString(CredentialsConstants.FIELD_TYPE).equals(type)) {
                             credentialsIterator.remove();
+                            removeFromDeviceIndex(tenantId, creds);
                             removed = true;
                             break;
                         }
                     }
                     if (removed) {
                         credentialsForAuthId.add(newCredentials);
+                        addToDeviceIndex(tenantId, newCredentials);
                         dirty = true;
                         resultHandler.handle(Future.succeededFuture(CredentialsResult.from(HttpURLConnection.HTTP_NO_CONTENT)));
                     } else {
@@ -452,7 +437,7 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
                 final JsonArray credentialsForAuthId = credentialsForTenant.get(authId);
                 if (credentialsForAuthId == null) {
                     resultHandler.handle(Future.succeededFuture(CredentialsResult.from(HttpURLConnection.HTTP_NOT_FOUND)));
-                } else if (removeCredentialsFromCredentialsArray(null, type, credentialsForAuthId)) {
+                } else if (removeCredentialsOfType(tenantId, type, credentialsForAuthId)) {
                     if (credentialsForAuthId.isEmpty()) {
                         credentialsForTenant.remove(authId); // do not leave empty array as value
                     }
@@ -475,80 +460,79 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
 
         if (getConfig().isModificationEnabled()) {
 
-            final Map<String, JsonArray> credentialsForTenant = credentials.get(tenantId);
-            if (credentialsForTenant == null) {
+            final Map<String, List<JsonObject>> devices = credentialsByDevice.get(tenantId);
+            final List<JsonObject> credentialsOfDevice = devices == null ? null : devices.remove(deviceId);
+            if (credentialsOfDevice == null) {
                 resultHandler.handle(Future.succeededFuture(CredentialsResult.from(HttpURLConnection.HTTP_NOT_FOUND)));
             } else {
-
-                boolean removedAnyElement = false;
-
-                // delete based on type (no authId provided) - this might consume more time on large data sets and is thus
-                // handled explicitly
-                for (final JsonArray credentialsForAuthId : credentialsForTenant.values()) {
-                    if (removeCredentialsFromCredentialsArray(deviceId, CredentialsConstants.SPECIFIER_WILDCARD, credentialsForAuthId)) {
-                        removedAnyElement = true;
+                final Map<String, JsonArray> credentialsForTenant = credentials.get(tenantId);
+                for (final JsonObject creds : credentialsOfDevice) {
+                    final String authId = creds.getString(CredentialsConstants.FIELD_AUTH_ID);
+                    final JsonArray credentialsForAuthId = credentialsForTenant.get(authId);
+                    credentialsForAuthId.remove(creds);
+                    if (credentialsForAuthId.isEmpty()) {
+                        credentialsForTenant.remove(authId); // do not leave empty array as value
                     }
                 }
-
-                // there might be empty credentials arrays left now, so remove them in a second run
-                cleanupEmptyCredentialsArrays(credentialsForTenant);
-
-                if (removedAnyElement) {
-                    dirty = true;
-                    resultHandler.handle(Future.succeededFuture(CredentialsResult.from(HttpURLConnection.HTTP_NO_CONTENT)));
-                } else {
-                    resultHandler.handle(Future.succeededFuture(CredentialsResult.from(HttpURLConnection.HTTP_NOT_FOUND)));
-                }
+                dirty = true;
+                resultHandler.handle(Future.succeededFuture(CredentialsResult.from(HttpURLConnection.HTTP_NO_CONTENT)));
             }
         } else {
             resultHandler.handle(Future.succeededFuture(CredentialsResult.from(HttpURLConnection.HTTP_FORBIDDEN)));
         }
     }
 
-    private void cleanupEmptyCredentialsArrays(final Map<String, JsonArray> mapToCleanup) {
+    private boolean removeCredentialsOfType(final String tenantId, final String type, final JsonArray credentialsForAuthId) {
 
+        // the credentials in the array always have the same authId, but possibly different types
         // use an iterator here to allow removal during looping (streams currently do not allow this)
-        final Iterator<Entry<String, JsonArray>> entries = mapToCleanup.entrySet().iterator();
-        while (entries.hasNext()) {
-            final Entry<String, JsonArray> entry = entries.next();
-            if (entry.getValue().isEmpty()) {
-                entries.remove();
+        final Iterator<Object> credentialsIterator = credentialsForAuthId.iterator();
+        while (credentialsIterator.hasNext()) {
+            final JsonObject element = (JsonObject) credentialsIterator.next();
+            if (element.getString(CredentialsConstants.FIELD_TYPE).equals(type)) {
+                credentialsIterator.remove();
+                removeFromDeviceIndex(tenantId, element);
+                // there can only be one matching instance due to uniqueness guarantees
+                return true;
             }
         }
+        return false;
+    }
+
+    private List<JsonObject> getCredentialsOfDevice(final String tenantId, final String deviceId) {
+
+        final Map<String, List<JsonObject>> devices = credentialsByDevice.get(tenantId);
+        if (devices == null) {
+            return Collections.emptyList();
+        } else {
+            return devices.getOrDefault(deviceId, Collections.emptyList());
+        }
     }
 
-    private boolean removeCredentialsFromCredentialsArray(final String deviceId, final String type, final JsonArray credentialsForAuthId) {
-
-        boolean removedElement = false;
-
-        if (credentialsForAuthId != null) {
-            // the credentials in the array always have the same authId, but possibly different types
-            // use an iterator here to allow removal during looping (streams currently do not allow this)
-            final Iterator<Object> credentialsIterator = credentialsForAuthId.iterator();
-            while (credentialsIterator.hasNext()) {
-
-                final JsonObject element = (JsonObject) credentialsIterator.next();
-                final String credType = element.getString(CredentialsConstants.FIELD_TYPE);
-                final String credDevice = element.getString(CredentialsConstants.FIELD_PAYLOAD_DEVICE_ID);
-
-                if (!CredentialsConstants.SPECIFIER_WILDCARD.equals(type) && credType.equals(type)) {
-                    // delete a single credentials instance
-                    credentialsIterator.remove();
-                    removedElement = true;
-                    break; // there can only be one matching instance due to uniqueness guarantees
-                } else if (CredentialsConstants.SPECIFIER_WILDCARD.equalsIgnoreCase(type) && credDevice.equals(deviceId)) {
-                    // delete all credentials for device
-                    credentialsIterator.remove();
-                    removedElement = true;
-                } else if (credDevice.equals(deviceId) && credType.equals(type)) {
-                    // delete all credentials for device of given type
-                    credentialsIterator.remove();
-                    removedElement = true;
+    private void addToDeviceIndex(final String tenantId, final JsonObject credentials) {
+
+        final String deviceId = getTypesafeValueForField(credentials, CredentialsConstants.FIELD_PAYLOAD_DEVICE_ID);
+        if (deviceId != null) {
+            credentialsByDevice
+                .computeIfAbsent(tenantId, id -> new HashMap<>())
+                .computeIfAbsent(deviceId, id -> new ArrayList<>())
+                .add(credentials);
+        }
+    }
+
+    private void removeFromDeviceIndex(final String tenantId, final JsonObject credentials) {
+
+        final String deviceId = getTypesafeValueForField(credentials, CredentialsConstants.FIELD_PAYLOAD_DEVICE_ID);
+        final Map<String, List<JsonObject>> devices = credentialsByDevice.get(tenantId);
+        if (deviceId != null && devices != null) {
+            final List<JsonObject> credentialsOfDevice = devices.get(deviceId);
+            if (credentialsOfDevice != null) {
+                credentialsOfDevice.remove(credentials);
+                if (credentialsOfDevice.isEmpty()) {
+                    devices.remove(deviceId);
                 }
             }
         }
-
-        return removedElement;
     }
 
     private Map<String, JsonArray> getCredentialsForTenant(final String tenantId) {
@@ -565,6 +549,7 @@ public final class FileBasedCredentialsService extends BaseCredentialsService<Fi
     public void clear() {
         dirty = true;
         credentials.clear();
+        credentialsByDevice.clear();
     }
 
     @Override
@@ -14,6 +14,7 @@
 package org.eclipse.hono.deviceregistry;
 
 import org.eclipse.hono.config.SignatureSupportingConfigProperties;
+import org.eclipse.hono.service.registration.BaseRegistrationService;
 
 
 /**
@@ -26,10 +27,17 @@ public final class FileBasedRegistrationConfigProperties extends AbstractFileBas
      * The default number of devices that can be registered for each tenant.
      */
     public static final int DEFAULT_MAX_DEVICES_PER_TENANT = 100;
+    /**
+     * The default number of journal records after which the journal gets compacted.
+     */
+    public static final int DEFAULT_JOURNAL_COMPACTION_THRESHOLD = 10000;
     private static final String DEFAULT_DEVICES_FILENAME = "/var/lib/hono/device-registry/device-identities.json";
     private final SignatureSupportingConfigProperties registrationAssertionProperties = new SignatureSupportingConfigProperties();
 
     private int maxDevicesPerTenant = DEFAULT_MAX_DEVICES_PER_TENANT;
+    private boolean journalEnabled = false;
+    private int journalCompactionThreshold = DEFAULT_JOURNAL_COMPACTION_THRESHOLD;
+    private long assertionCacheMaxSize = BaseRegistrationService.DEFAULT_ASSERTION_CACHE_MAX_SIZE;
 
     /**
      * Gets the maximum number of devices that can be registered for each tenant.
@@ -57,6 +65,96 @@ public final class FileBasedRegistrationConfigProperties extends AbstractFileBas
         this.maxDevicesPerTenant = maxDevices;
     }
 
+    /**
+     * Checks whether modifications of the registry are persisted to a journal.
+     * <p>
+     * If enabled, each modification is appended to a journal file instead of rewriting the
+     * whole file containing the registered devices. The journal file's name is the name of
+     * the devices file with a {@code .journal} suffix. The journal is replayed on startup
+     * and is compacted into the devices file once it contains
+     * {@linkplain #getJournalCompactionThreshold() a certain number of records}.
+     * <p>
+     * This property has no effect unless {@link #isSaveToFile()} returns {@code true}.
+     * <p>
+     * The default value of this property is {@code false}.
+     *
+     * @return {@code true} if modifications are persisted to a journal.
+     */
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    /**
+     * Sets whether modifications of the registry are persisted to a journal.
+     * <p>
+     * The default value of this property is {@code false}.
+     *
+     * @param enabled {@code true} if modifications should be persisted to a journal.
+     */
+    public void setJournalEnabled(final boolean enabled) {
+        this.journalEnabled = enabled;
+    }
+
+    /**
+     * Gets the number of journal records after which the journal is compacted
+     * into the devices file.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_JOURNAL_COMPACTION_THRESHOLD}.
+     *
+     * @return The number of records.
+     */
+    public int getJournalCompactionThreshold() {
+        return journalCompactionThreshold;
+    }
+
+    /**
+     * Sets the number of journal records after which the journal is compacted
+     * into the devices file.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_JOURNAL_COMPACTION_THRESHOLD}.
+     *
+     * @param threshold The number of records.
+     * @throws IllegalArgumentException if the threshold is &lt;= 0.
+     */
+    public void setJournalCompactionThreshold(final int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("compaction threshold must be > 0");
+        }
+        this.journalCompactionThreshold = threshold;
+    }
+
+    /**
+     * Gets the maximum number of registration assertion tokens that are cached
+     * for being included in responses to subsequent assertion requests.
+     * <p>
+     * The default value of this property is
+     * {@link BaseRegistrationService#DEFAULT_ASSERTION_CACHE_MAX_SIZE}.
+     *
+     * @return The maximum number of cached tokens.
+     */
+    public long getAssertionCacheMaxSize() {
+        return assertionCacheMaxSize;
+    }
+
+    /**
+     * Sets the maximum number of registration assertion tokens that are cached
+     * for being included in responses to subsequent assertion requests.
+     * <p>
+     * Setting this property to 0 disables caching.
+     * <p>
+     * The default value of this property is
+     * {@link BaseRegistrationService#DEFAULT_ASSERTION_CACHE_MAX_SIZE}.
+     *
+     * @param size The maximum number of cached tokens.
+     * @throws IllegalArgumentException if size is &lt; 0.
+     */
+    public void setAssertionCacheMaxSize(final long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("maximum cache size must not be negative");
+        }
+        this.assertionCacheMaxSize = size;
+    }
+
     /**
      * Gets the properties for determining key material for creating registration assertion tokens.
      *
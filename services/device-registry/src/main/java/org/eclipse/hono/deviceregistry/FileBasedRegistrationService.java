@@ -43,6 +43,10 @@ import io.vertx.core.json.JsonObject;
  * <p>
  * On startup this adapter loads all registered devices from a file. On shutdown all
  * devices kept in memory are written to the file.
+ * <p>
+ * If the journal is enabled, modifications are appended to a journal file instead
+ * of periodically rewriting the whole file. The journal is replayed on startup and is
+ * compacted into the file once it has reached a configurable number of records.
  */
 @Repository
 public final class FileBasedRegistrationService extends BaseRegistrationService<FileBasedRegistrationConfigProperties> {
@@ -56,15 +60,25 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
      */
     public static final String FIELD_TENANT = "tenant";
 
+    private static final String JOURNAL_FILE_SUFFIX = ".journal";
+    private static final String FIELD_OPERATION = "op";
+    private static final String OPERATION_ADD = "add";
+    private static final String OPERATION_UPDATE = "update";
+    private static final String OPERATION_REMOVE = "remove";
+    private static final String OPERATION_CLEAR = "clear";
+
     // <tenantId, <deviceId, registrationData>>
-    private final Map<String, Map<String, JsonObject>> identities = new HashMap<>();
+    private final Map<String, Map<String, DeviceRecord>> identities = new HashMap<>();
     private boolean running = false;
     private boolean dirty = false;
+    private Journal journal;
+    private boolean compacting = false;
 
     @Autowired
     @Override
     public void setConfig(final FileBasedRegistrationConfigProperties configuration) {
         setSpecificConfig(configuration);
+        setAssertionCacheMaxSize(configuration.getAssertionCacheMaxSize());
     }
 
     @Override
@@ -85,9 +99,20 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
             } else {
                 checkFileExists(getConfig().isSaveToFile()).compose(ok -> {
                     return loadRegistrationData();
+                }).compose(ok -> {
+                    if (getConfig().isSaveToFile() && getConfig().isJournalEnabled()) {
+                        journal = new Journal(vertx, getConfig().getFilename() + JOURNAL_FILE_SUFFIX);
+                        return replayJournal();
+                    } else {
+                        return Future.succeededFuture();
+                    }
                 }).compose(s -> {
                     if (getConfig().isSaveToFile()) {
-                        log.info("saving device identities to file every 3 seconds");
+                        if (journal != null) {
+                            log.info("saving modifications of device identities to journal every 3 seconds");
+                        } else {
+                            log.info("saving device identities to file every 3 seconds");
+                        }
                         vertx.setPeriodic(3000, tid -> {
                             saveToFile();
                         });
@@ -117,6 +142,42 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
         }
     }
 
+    private Future<Void> replayJournal() {
+
+        return journal.read().map(records -> {
+            for (final JsonObject record : records) {
+                replay(record);
+            }
+            log.info("successfully replayed {} modifications from journal", records.size());
+            return (Void) null;
+        });
+    }
+
+    private void replay(final JsonObject record) {
+
+        final String operation = record.getString(FIELD_OPERATION);
+        final String tenantId = record.getString(FIELD_TENANT);
+        final String deviceId = record.getString(FIELD_PAYLOAD_DEVICE_ID);
+
+        if (OPERATION_CLEAR.equals(operation)) {
+            identities.clear();
+        } else if (tenantId == null || deviceId == null) {
+            log.debug("ignoring malformed journal record: {}", record);
+        } else if (OPERATION_ADD.equals(operation) || OPERATION_UPDATE.equals(operation)) {
+            // replaying is idempotent, so that records which have already been
+            // compacted into the file can safely be replayed again
+            getDevicesForTenant(tenantId).put(deviceId, DeviceRecord.from(record.getJsonObject(FIELD_DATA,
+                    new JsonObject().put(FIELD_ENABLED, Boolean.TRUE))));
+        } else if (OPERATION_REMOVE.equals(operation)) {
+            final Map<String, DeviceRecord> devices = identities.get(tenantId);
+            if (devices != null) {
+                devices.remove(deviceId);
+            }
+        } else {
+            log.debug("ignoring journal record with unknown operation: {}", record);
+        }
+    }
+
     private Future<Void> checkFileExists(final boolean createIfMissing) {
 
         final Future<Void> result = Future.future();
@@ -137,14 +198,18 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
 
         final Future<Void> result = Future.future();
         try {
-            int deviceCount = 0;
-            final JsonArray allObjects = deviceIdentities.toJsonArray();
-            for (final Object obj : allObjects) {
-                if (JsonObject.class.isInstance(obj)) {
-                    deviceCount += addDevicesForTenant((JsonObject) obj);
+            final AtomicInteger deviceCount = new AtomicInteger();
+            RegistryFileParser.parse(deviceIdentities, ARRAY_DEVICES, (tenantId, device) -> {
+                final String deviceId = device.getString(FIELD_PAYLOAD_DEVICE_ID);
+                if (deviceId != null) {
+                    log.trace("loading device [tenant: {}, device-id: {}]", tenantId, deviceId);
+                    final JsonObject data = device.getJsonObject(FIELD_DATA,
+                            new JsonObject().put(FIELD_ENABLED, Boolean.TRUE));
+                    getDevicesForTenant(tenantId).put(deviceId, DeviceRecord.from(data));
+                    deviceCount.incrementAndGet();
                 }
-            }
-            log.info("successfully loaded {} device identities from file [{}]", deviceCount, getConfig().getFilename());
+            });
+            log.info("successfully loaded {} device identities from file [{}]", deviceCount.get(), getConfig().getFilename());
             result.complete();
         } catch (final DecodeException e) {
             log.warn("cannot read malformed JSON from device identity file [{}]", getConfig().getFilename());
@@ -153,31 +218,6 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
         return result;
     }
 
-    private int addDevicesForTenant(final JsonObject tenant) {
-        int count = 0;
-        final String tenantId = tenant.getString(FIELD_TENANT);
-        if (tenantId != null) {
-            log.debug("loading devices for tenant [{}]", tenantId);
-            final Map<String, JsonObject> deviceMap = new HashMap<>();
-            for (final Object deviceObj : tenant.getJsonArray(ARRAY_DEVICES)) {
-                if (JsonObject.class.isInstance(deviceObj)) {
-                    final JsonObject device = (JsonObject) deviceObj;
-                    final String deviceId = device.getString(FIELD_PAYLOAD_DEVICE_ID);
-                    if (deviceId != null) {
-                        log.trace("loading device [{}]", deviceId);
-                        final JsonObject data = device.getJsonObject(FIELD_DATA,
-                                new JsonObject().put(FIELD_ENABLED, Boolean.TRUE));
-                        deviceMap.put(deviceId, data);
-                        count++;
-                    }
-                }
-            }
-            identities.put(tenantId, deviceMap);
-        }
-        log.debug("Loaded {} devices for tenant {}", count, tenantId);
-        return count;
-    }
-
     @Override
     protected void doStop(final Future<Void> stopFuture) {
 
@@ -195,17 +235,65 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
 
         if (!getConfig().isSaveToFile()) {
             return Future.succeededFuture();
+        } else if (journal != null) {
+            return saveToJournal();
         } else if (dirty) {
-            return checkFileExists(true).compose(s -> {
-                final AtomicInteger idCount = new AtomicInteger();
+            return writeFile().otherwise(t -> {
+                log.warn("could not write device identities to file {}", getConfig().getFilename(), t);
+                return (Void) null;
+            });
+        } else {
+            log.trace("registry does not need to be persisted");
+            return Future.succeededFuture();
+        }
+    }
+
+    private Future<Void> saveToJournal() {
+
+        if (!compacting && journal.size() >= getConfig().getJournalCompactionThreshold()) {
+            // records flushed to the journal after the file has been written
+            // are retained when the compacted records are discarded
+            compacting = true;
+            final int records = journal.size();
+            return journal.flush()
+                    .compose(length -> writeFile().map(length))
+                    .compose(length -> journal.discard(length, records))
+                    .map(ok -> {
+                        compacting = false;
+                        log.debug("compacted {} journal records into file {}", records, getConfig().getFilename());
+                        return (Void) null;
+                    }).otherwise(t -> {
+                        compacting = false;
+                        log.warn("could not compact journal into file {}", getConfig().getFilename(), t);
+                        return (Void) null;
+                    });
+        } else {
+            return journal.flush().map(length -> (Void) null).otherwise(t -> {
+                log.warn("could not write modifications of device identities to journal", t);
+                return (Void) null;
+            });
+        }
+    }
+
+    private Future<Void> writeFile() {
+
+        return checkFileExists(true).compose(s -> {
+            // take a shallow copy on the event loop thread, the device records
+            // are immutable and can therefore be shared
+            final Map<String, Map<String, DeviceRecord>> snapshot = new HashMap<>(identities.size());
+            identities.forEach((tenantId, devices) -> snapshot.put(tenantId, new HashMap<>(devices)));
+            dirty = false;
+
+            final AtomicInteger idCount = new AtomicInteger();
+            return SnapshotWriter.write(vertx, getConfig().getFilename(), () -> {
                 final JsonArray tenants = new JsonArray();
-                for (final Entry<String, Map<String, JsonObject>> entry : identities.entrySet()) {
+                for (final Entry<String, Map<String, DeviceRecord>> entry : snapshot.entrySet()) {
                     final JsonArray devices = new JsonArray();
-                    for (final Entry<String, JsonObject> deviceEntry : entry.getValue().entrySet()) {
+                    for (final Entry<String, DeviceRecord> deviceEntry : entry.getValue().entrySet()) {
                         devices.add(
                                 new JsonObject()
                                         .put(FIELD_PAYLOAD_DEVICE_ID, deviceEntry.getKey())
-                                        .put(FIELD_DATA, deviceEntry.getValue()));
+                                        .put(FIELD_DATA, deviceEntry.getValue().getData()));
                         idCount.incrementAndGet();
                     }
                     tenants.add(
@@ -213,22 +301,16 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
                                     .put(FIELD_TENANT, entry.getKey())
                                     .put(ARRAY_DEVICES, devices));
                 }
-
-                final Future<Void> writeHandler = Future.future();
-                vertx.fileSystem().writeFile(getConfig().getFilename(), Buffer.factory.buffer(tenants.encodePrettily()), writeHandler.completer());
-                return writeHandler.map(ok -> {
-                    dirty = false;
-                    log.trace("successfully wrote {} device identities to file {}", idCount.get(), getConfig().getFilename());
-                    return (Void) null;
-                }).otherwise(t -> {
-                    log.warn("could not write device identities to file {}", getConfig().getFilename(), t);
-                    return (Void) null;
-                });
+                return tenants;
+            }).map(ok -> {
+                log.trace("successfully wrote {} device identities to file {}", idCount.get(), getConfig().getFilename());
+                return (Void) null;
+            }).recover(t -> {
+                // make sure that the modifications are written with the next attempt
+                dirty = true;
+                return Future.failedFuture(t);
             });
-        } else {
-            log.trace("registry does not need to be persisted");
-            return Future.succeededFuture();
-        }
+        });
     }
 
     @Override
@@ -240,17 +322,72 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
     }
 
     RegistrationResult getDevice(final String tenantId, final String deviceId) {
-        final JsonObject data = getRegistrationData(tenantId, deviceId);
-        if (data != null) {
-            return RegistrationResult.from(HTTP_OK, getResultPayload(deviceId, data));
+        final DeviceRecord device = getDeviceRecord(tenantId, deviceId);
+        if (device != null) {
+            return RegistrationResult.from(HTTP_OK, getResultPayload(deviceId, device.getData()));
         } else {
             return RegistrationResult.from(HTTP_NOT_FOUND);
         }
     }
 
-    private JsonObject getRegistrationData(final String tenantId, final String deviceId) {
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation uses the device's registration information that
+     * has been parsed when the device has been added or updated.
+     */
+    @Override
+    public void assertRegistration(
+            final String tenantId,
+            final String deviceId,
+            final Handler<AsyncResult<RegistrationResult>> resultHandler) {
+
+        Objects.requireNonNull(tenantId);
+        Objects.requireNonNull(deviceId);
+        Objects.requireNonNull(resultHandler);
+
+        final DeviceRecord device = getDeviceRecord(tenantId, deviceId);
+        if (device != null && device.isEnabled()) {
+            resultHandler.handle(Future.succeededFuture(getAssertionResult(tenantId, deviceId, device.getDefaults())));
+        } else {
+            resultHandler.handle(Future.succeededFuture(RegistrationResult.from(HTTP_NOT_FOUND)));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation uses the device's and gateway's registration information that
+     * has been parsed when they have been added or updated. A gateway is authorized to act
+     * on behalf of a device if the device's <em>via</em> property contains the gateway's
+     * identifier.
+     */
+    @Override
+    public void assertRegistration(
+            final String tenantId,
+            final String deviceId,
+            final String gatewayId,
+            final Handler<AsyncResult<RegistrationResult>> resultHandler) {
+
+        Objects.requireNonNull(tenantId);
+        Objects.requireNonNull(deviceId);
+        Objects.requireNonNull(gatewayId);
+        Objects.requireNonNull(resultHandler);
+
+        final DeviceRecord device = getDeviceRecord(tenantId, deviceId);
+        final DeviceRecord gateway = getDeviceRecord(tenantId, gatewayId);
+        if (device == null || !device.isEnabled()) {
+            resultHandler.handle(Future.succeededFuture(RegistrationResult.from(HTTP_NOT_FOUND)));
+        } else if (gateway == null || !gateway.isEnabled() || !gatewayId.equals(device.getVia())) {
+            resultHandler.handle(Future.succeededFuture(RegistrationResult.from(HTTP_FORBIDDEN)));
+        } else {
+            resultHandler.handle(Future.succeededFuture(getAssertionResult(tenantId, deviceId, device.getDefaults())));
+        }
+    }
+
+    private DeviceRecord getDeviceRecord(final String tenantId, final String deviceId) {
 
-        final Map<String, JsonObject> devices = identities.get(tenantId);
+        final Map<String, DeviceRecord> devices = identities.get(tenantId);
         if (devices != null) {
             return devices.get(deviceId);
         } else {
@@ -274,9 +411,10 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
         Objects.requireNonNull(deviceId);
 
         if (getConfig().isModificationEnabled()) {
-            final Map<String, JsonObject> devices = identities.get(tenantId);
+            final Map<String, DeviceRecord> devices = identities.get(tenantId);
             if (devices != null && devices.remove(deviceId) != null) {
-                dirty = true;
+                invalidateAssertion(tenantId, deviceId);
+                recordModification(OPERATION_REMOVE, tenantId, deviceId, null);
                 return RegistrationResult.from(HTTP_NO_CONTENT);
             } else {
                 return RegistrationResult.from(HTTP_NOT_FOUND);
@@ -310,10 +448,10 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
         Objects.requireNonNull(deviceId);
 
         final JsonObject obj = data != null ? data : new JsonObject().put(FIELD_ENABLED, Boolean.TRUE);
-        final Map<String, JsonObject> devices = getDevicesForTenant(tenantId);
+        final Map<String, DeviceRecord> devices = getDevicesForTenant(tenantId);
         if (devices.size() < getConfig().getMaxDevicesPerTenant()) {
-            if (devices.putIfAbsent(deviceId, obj) == null) {
-                dirty = true;
+            if (devices.putIfAbsent(deviceId, DeviceRecord.from(obj)) == null) {
+                recordModification(OPERATION_ADD, tenantId, deviceId, obj);
                 return RegistrationResult.from(HTTP_CREATED);
             } else {
                 return RegistrationResult.from(HTTP_CONFLICT);
@@ -340,10 +478,11 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
 
         if (getConfig().isModificationEnabled()) {
             final JsonObject obj = data != null ? data : new JsonObject().put(FIELD_ENABLED, Boolean.TRUE);
-            final Map<String, JsonObject> devices = identities.get(tenantId);
+            final Map<String, DeviceRecord> devices = identities.get(tenantId);
             if (devices != null && devices.containsKey(deviceId)) {
-                devices.put(deviceId, obj);
-                dirty = true;
+                devices.put(deviceId, DeviceRecord.from(obj));
+                invalidateAssertion(tenantId, deviceId);
+                recordModification(OPERATION_UPDATE, tenantId, deviceId, obj);
                 return RegistrationResult.from(HTTP_NO_CONTENT);
             } else {
                 return RegistrationResult.from(HTTP_NOT_FOUND);
@@ -353,7 +492,7 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
         }
     }
 
-    private Map<String, JsonObject> getDevicesForTenant(final String tenantId) {
+    private Map<String, DeviceRecord> getDevicesForTenant(final String tenantId) {
         return identities.computeIfAbsent(tenantId, id -> new ConcurrentHashMap<>());
     }
 
@@ -361,8 +500,25 @@ public final class FileBasedRegistrationService extends BaseRegistrationService<
      * Removes all devices from the registry.
      */
     public void clear() {
-        dirty = true;
+        recordModification(OPERATION_CLEAR, null, null, null);
         identities.clear();
+        invalidateAllAssertions();
+    }
+
+    private void recordModification(final String operation, final String tenantId, final String deviceId,
+            final JsonObject data) {
+
+        dirty = true;
+        if (journal != null) {
+            final JsonObject record = new JsonObject().put(FIELD_OPERATION, operation);
+            if (tenantId != null) {
+                record.put(FIELD_TENANT, tenantId).put(FIELD_PAYLOAD_DEVICE_ID, deviceId);
+            }
+            if (data != null) {
+                record.put(FIELD_DATA, data);
+            }
+            journal.append(record);
+        }
     }
 
     @Override
@@ -14,7 +14,9 @@
 package org.eclipse.hono.deviceregistry;
 
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -48,6 +50,8 @@ public final class FileBasedTenantService extends BaseTenantService<FileBasedTen
 
     // <ID, tenant>
     private final Map<String, TenantObject> tenants = new HashMap<>();
+    // <trusted CA subject DN, tenant ID>
+    private final Map<X500Principal, String> tenantsByCa = new HashMap<>();
     private boolean running = false;
     private boolean dirty = false;
 
@@ -151,7 +155,7 @@ public final class FileBasedTenantService extends BaseTenantService<FileBasedTen
         try {
             final TenantObject tenantObject = tenant.mapTo(TenantObject.class);
             log.debug("loading tenant [{}]", tenantObject.getTenantId());
-            tenants.put(tenantObject.getTenantId(), tenantObject);
+            putTenant(tenantObject.getTenantId(), tenantObject);
         } catch (IllegalArgumentException e) {
             log.warn("cannot deserialize tenant", e);
         }
@@ -177,20 +181,21 @@ public final class FileBasedTenantService extends BaseTenantService<FileBasedTen
         } else if (dirty) {
             return checkFileExists(true).compose(s -> {
 
-                final JsonArray tenantsJson = new JsonArray();
-                tenants.values().stream().forEach(tenant -> {
-                    tenantsJson.add(JsonObject.mapFrom(tenant));
-                });
+                // tenants are replaced rather than modified in place and can therefore be shared
+                final List<TenantObject> snapshot = new ArrayList<>(tenants.values());
+                dirty = false;
 
-                final Future<Void> writeHandler = Future.future();
-                vertx.fileSystem().writeFile(getConfig().getFilename(),
-                        Buffer.factory.buffer(tenantsJson.encodePrettily()), writeHandler.completer());
-                return writeHandler.map(ok -> {
-                    dirty = false;
-                    log.trace("successfully wrote {} tenants to file {}", tenantsJson.size(),
+                return SnapshotWriter.write(vertx, getConfig().getFilename(), () -> {
+                    final JsonArray tenantsJson = new JsonArray();
+                    snapshot.forEach(tenant -> tenantsJson.add(JsonObject.mapFrom(tenant)));
+                    return tenantsJson;
+                }).map(ok -> {
+                    log.trace("successfully wrote {} tenants to file {}", snapshot.size(),
                             getConfig().getFilename());
                     return (Void) null;
                 }).otherwise(t -> {
+                    // make sure that the modifications are written with the next attempt
+                    dirty = true;
                     log.warn("could not write tenants to file {}", getConfig().getFilename(), t);
                     return (Void) null;
                 });
@@ -262,7 +267,9 @@ public final class FileBasedTenantService extends BaseTenantService<FileBasedTen
         Objects.requireNonNull(tenantId);
 
         if (getConfig().isModificationEnabled()) {
-            if (tenants.remove(tenantId) != null) {
+            final TenantObject removedTenant = tenants.remove(tenantId);
+            if (removedTenant != null) {
+                removeFromCaIndex(removedTenant);
                 dirty = true;
                 return TenantResult.from(HttpURLConnection.HTTP_NO_CONTENT);
             } else {
@@ -307,7 +314,7 @@ public final class FileBasedTenantService extends BaseTenantService<FileBasedTen
                     // we are trying to use the same CA as an already existing tenant
                     return TenantResult.from(HttpURLConnection.HTTP_CONFLICT);
                 } else {
-                    tenants.put(tenantId, tenant);
+                    putTenant(tenantId, tenant);
                     dirty = true;
                     return TenantResult.from(HttpURLConnection.HTTP_CREATED);
                 }
@@ -358,7 +365,7 @@ public final class FileBasedTenantService extends BaseTenantService<FileBasedTen
                         // we are trying to use the same CA as another tenant
                         return TenantResult.from(HttpURLConnection.HTTP_CONFLICT);
                     } else {
-                        tenants.put(tenantId, tenant);
+                        putTenant(tenantId, tenant);
                         dirty = true;
                         return TenantResult.from(HttpURLConnection.HTTP_NO_CONTENT);
                     }
@@ -378,9 +385,30 @@ public final class FileBasedTenantService extends BaseTenantService<FileBasedTen
         if (subjectDn == null) {
             return null;
         } else {
-            return tenants.values().stream()
-                    .filter(t -> subjectDn.equals(t.getTrustedCaSubjectDn()))
-                    .findFirst().orElse(null);
+            final String tenantId = tenantsByCa.get(subjectDn);
+            return tenantId == null ? null : tenants.get(tenantId);
+        }
+    }
+
+    private void putTenant(final String tenantId, final TenantObject tenant) {
+
+        final TenantObject replacedTenant = tenants.put(tenantId, tenant);
+        if (replacedTenant != null) {
+            removeFromCaIndex(replacedTenant);
+        }
+        final X500Principal subjectDn = tenant.getTrustedCaSubjectDn();
+        if (subjectDn != null) {
+            // tenants loaded from file are not checked for conflicting CAs,
+            // so keep the tenant that has been registered for the CA first
+            tenantsByCa.putIfAbsent(subjectDn, tenantId);
+        }
+    }
+
+    private void removeFromCaIndex(final TenantObject tenant) {
+
+        final X500Principal subjectDn = tenant.getTrustedCaSubjectDn();
+        if (subjectDn != null) {
+            tenantsByCa.remove(subjectDn, tenant.getTenantId());
         }
     }
 
@@ -389,6 +417,7 @@ public final class FileBasedTenantService extends BaseTenantService<FileBasedTen
      */
     public void clear() {
         tenants.clear();
+        tenantsByCa.clear();
         dirty = true;
     }
 
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.deviceregistry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * An append-only journal of modifications, backed by a file.
+ * <p>
+ * Each record is a JSON object that is written to the file on a line of its own.
+ * Records are buffered in memory when they are appended and are written to the
+ * file when the journal is flushed.
+ * <p>
+ * All file operations are executed on vert.x worker threads in the order in
+ * which they have been invoked. All methods are expected to be invoked on the
+ * owning verticle's context.
+ */
+final class Journal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Journal.class);
+
+    private final Vertx vertx;
+    private final Path path;
+    private Buffer pendingRecords = Buffer.buffer();
+    private int size;
+
+    /**
+     * Creates a journal for a file.
+     *
+     * @param vertx The vert.x instance to run file operations on.
+     * @param filename The name of the journal file. The file is created
+     *                 when records are flushed for the first time.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    Journal(final Vertx vertx, final String filename) {
+        this.vertx = Objects.requireNonNull(vertx);
+        this.path = Paths.get(Objects.requireNonNull(filename));
+    }
+
+    /**
+     * Gets the number of records contained in this journal.
+     * <p>
+     * The number includes records that have not been flushed yet.
+     *
+     * @return The number of records.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends a record to this journal.
+     * <p>
+     * The record is encoded immediately, so later changes to the given
+     * object are not reflected in the journal.
+     *
+     * @param record The record.
+     * @throws NullPointerException if record is {@code null}.
+     */
+    void append(final JsonObject record) {
+        Objects.requireNonNull(record);
+        pendingRecords.appendString(record.encode()).appendByte((byte) '\n');
+        size++;
+    }
+
+    /**
+     * Writes all records that have been appended since the last flush to the file.
+     * <p>
+     * The returned future is completed only after the records have been forced
+     * to the storage device.
+     *
+     * @return A future indicating the outcome of the operation. The future will be
+     *         succeeded with the length of the file after the records have been written.
+     */
+    Future<Long> flush() {
+
+        final Buffer records = pendingRecords;
+        pendingRecords = Buffer.buffer();
+        final Future<Long> result = Future.future();
+        vertx.<Long> executeBlocking(writing -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                final ByteBuffer bytes = records.getByteBuf().nioBuffer();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+                writing.complete(channel.size());
+            } catch (final IOException e) {
+                writing.fail(e);
+            }
+        }, true, attempt -> {
+            if (attempt.failed()) {
+                // keep the records so that they are written with the next flush
+                pendingRecords = records.appendBuffer(pendingRecords);
+            }
+            result.handle(attempt);
+        });
+        return result;
+    }
+
+    /**
+     * Removes records from the beginning of the file, e.g. because they have been
+     * included in a snapshot of the journaled data.
+     * <p>
+     * Records that have been written to the file after the given position are retained.
+     * They are copied to a temporary file which then replaces the journal file by means
+     * of an atomic move, so the journal file always contains either all or only the
+     * retained records, even if the process crashes while discarding.
+     *
+     * @param length The position in the file up to which records should be removed,
+     *               as returned by {@link #flush()}.
+     * @param records The number of records being removed.
+     * @return A future indicating the outcome of the operation.
+     */
+    Future<Void> discard(final long length, final int records) {
+
+        final Future<Void> result = Future.future();
+        vertx.<Void> executeBlocking(discarding -> {
+            final Path tmpFile = Paths.get(path.toString() + SnapshotWriter.TMP_FILE_SUFFIX);
+            try {
+                try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+                        FileChannel target = FileChannel.open(tmpFile, StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long position = Math.min(length, source.size());
+                    while (position < source.size()) {
+                        position += source.transferTo(position, source.size() - position, target);
+                    }
+                    target.force(false);
+                }
+                Files.move(tmpFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                SnapshotWriter.syncDirectory(path.toAbsolutePath().getParent());
+                discarding.complete();
+            } catch (final IOException e) {
+                discarding.fail(e);
+            }
+        }, true, attempt -> {
+            if (attempt.succeeded()) {
+                size = Math.max(0, size - records);
+            }
+            result.handle(attempt);
+        });
+        return result;
+    }
+
+    /**
+     * Reads all records from the file.
+     * <p>
+     * A malformed record at the end of the file, e.g. resulting from a crash
+     * while the record was being written, is ignored.
+     *
+     * @return A future indicating the outcome of the operation. The future will be
+     *         succeeded with the records in the order in which they have been appended.
+     *         The list will be empty if the file does not exist.
+     */
+    Future<List<JsonObject>> read() {
+
+        final Future<List<JsonObject>> result = Future.future();
+        vertx.<List<JsonObject>> executeBlocking(reading -> {
+            final List<JsonObject> records = new ArrayList<>();
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        try {
+                            records.add(new JsonObject(line));
+                        } catch (final DecodeException e) {
+                            LOG.warn("ignoring malformed record in journal [{}]", path);
+                        }
+                    }
+                }
+                reading.complete(records);
+            } catch (final NoSuchFileException e) {
+                reading.complete(records);
+            } catch (final IOException e) {
+                reading.fail(e);
+            }
+        }, true, attempt -> {
+            if (attempt.succeeded()) {
+                size = attempt.result().size();
+            }
+            result.handle(attempt);
+        });
+        return result;
+    }
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.deviceregistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A parser for the files that the registry's services persist their data to.
+ * <p>
+ * The files contain a JSON array of objects, each of which contains a tenant's ID
+ * and an array of records belonging to the tenant:
+ * <pre>
+ * [
+ *   {
+ *     "tenant": "DEFAULT_TENANT",
+ *     "devices": [ { ... }, { ... } ]
+ *   }
+ * ]
+ * </pre>
+ * <p>
+ * The file's content is parsed incrementally, i.e. the records are decoded and handed
+ * to a consumer one at a time instead of building a tree of the whole file's content first.
+ */
+final class RegistryFileParser {
+
+    /**
+     * The name of the JSON property containing a tenant's ID.
+     */
+    static final String FIELD_TENANT = "tenant";
+
+    private static final TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private RegistryFileParser() {
+        // prevent instantiation
+    }
+
+    /**
+     * Parses the content of a file.
+     * <p>
+     * Records which are not JSON objects and records of objects that do not contain
+     * a tenant ID are ignored.
+     *
+     * @param content The file's content.
+     * @param arrayName The name of the JSON array containing a tenant's records.
+     * @param recordConsumer The consumer to invoke with the tenant ID and content of each record.
+     * @return The number of records that have been passed to the consumer.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     * @throws DecodeException if the content is not a JSON array or is malformed.
+     *                         Records that precede the malformed content may have been
+     *                         passed to the consumer already.
+     */
+    static int parse(final Buffer content, final String arrayName, final BiConsumer<String, JsonObject> recordConsumer) {
+
+        Objects.requireNonNull(content);
+        Objects.requireNonNull(arrayName);
+        Objects.requireNonNull(recordConsumer);
+
+        try (JsonParser parser = Json.mapper.getFactory().createParser((InputStream) new ByteBufInputStream(content.getByteBuf()))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new DecodeException("content is not a JSON array");
+            }
+            int count = 0;
+            JsonToken token;
+            while ((token = nextToken(parser)) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.START_OBJECT) {
+                    count += parseTenant(parser, arrayName, recordConsumer);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return count;
+        } catch (final IOException e) {
+            throw new DecodeException("failed to decode content: " + e.getMessage());
+        }
+    }
+
+    private static int parseTenant(
+            final JsonParser parser,
+            final String arrayName,
+            final BiConsumer<String, JsonObject> recordConsumer) throws IOException {
+
+        String tenantId = null;
+        // records preceding the tenant ID, usually there are none
+        final List<JsonObject> pendingRecords = new ArrayList<>();
+        int count = 0;
+
+        JsonToken token;
+        while ((token = nextToken(parser)) != JsonToken.END_OBJECT) {
+            final String field = parser.getCurrentName();
+            token = nextToken(parser);
+            if (FIELD_TENANT.equals(field) && token == JsonToken.VALUE_STRING) {
+                tenantId = parser.getText();
+                for (final JsonObject record : pendingRecords) {
+                    recordConsumer.accept(tenantId, record);
+                    count++;
+                }
+                pendingRecords.clear();
+            } else if (arrayName.equals(field) && token == JsonToken.START_ARRAY) {
+                while ((token = nextToken(parser)) != JsonToken.END_ARRAY) {
+                    if (token == JsonToken.START_OBJECT) {
+                        final JsonObject record = new JsonObject(parser.<Map<String, Object>> readValueAs(RECORD_TYPE));
+                        if (tenantId == null) {
+                            pendingRecords.add(record);
+                        } else {
+                            recordConsumer.accept(tenantId, record);
+                            count++;
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return count;
+    }
+
+    private static JsonToken nextToken(final JsonParser parser) throws IOException {
+
+        final JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new DecodeException("unexpected end of content");
+        }
+        return token;
+    }
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.deviceregistry;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+
+/**
+ * A helper for writing snapshots of a registry's content to a file.
+ * <p>
+ * The snapshot is encoded on a vert.x worker thread and is streamed to a temporary
+ * file which is forced to disk and then replaces the target file by means of an atomic
+ * move. The target file therefore always contains either the previous or the new
+ * snapshot, even if the process or the operating system crashes while writing.
+ */
+final class SnapshotWriter {
+
+    /**
+     * The suffix appended to the name of the target file to get the name of the temporary file.
+     */
+    static final String TMP_FILE_SUFFIX = ".tmp";
+
+    private SnapshotWriter() {
+        // prevent instantiation
+    }
+
+    /**
+     * Writes a snapshot to a file.
+     * <p>
+     * The given supplier is invoked on a worker thread. It must therefore only access
+     * data that is not modified concurrently, e.g. a copy of the registry's content that
+     * has been taken on the event loop thread.
+     * <p>
+     * Snapshots written from the same context are written in the order in which this
+     * method has been invoked.
+     *
+     * @param vertx The vert.x instance to use for encoding and writing the snapshot.
+     * @param filename The name of the file to write the snapshot to.
+     * @param snapshot The supplier of the snapshot's JSON representation.
+     * @return A future indicating the outcome of the operation.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    static Future<Void> write(final Vertx vertx, final String filename, final Supplier<JsonArray> snapshot) {
+
+        Objects.requireNonNull(vertx);
+        Objects.requireNonNull(filename);
+        Objects.requireNonNull(snapshot);
+
+        final Future<Void> result = Future.future();
+        vertx.<Void> executeBlocking(writing -> {
+            final Path target = Paths.get(filename);
+            final Path tmpFile = Paths.get(filename + TMP_FILE_SUFFIX);
+            try {
+                try (FileOutputStream out = new FileOutputStream(tmpFile.toFile())) {
+                    // keep the file open so that it can be synced
+                    Json.prettyMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .writeValue(out, snapshot.get());
+                    // make sure the snapshot is on disk before it replaces the target file
+                    out.getFD().sync();
+                }
+                Files.move(tmpFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                syncDirectory(target.toAbsolutePath().getParent());
+                writing.complete();
+            } catch (final IOException e) {
+                writing.fail(e);
+            }
+        }, true, result.completer());
+        return result;
+    }
+
+    /**
+     * Forces the entries of a directory to disk, so that a file that has been moved
+     * into the directory survives a crash of the operating system.
+     * <p>
+     * Not all platforms support opening a directory for reading, in which case
+     * this method does nothing.
+     *
+     * @param dir The directory.
+     * @throws IOException if the directory entries cannot be written to disk.
+     */
+    static void syncDirectory(final Path dir) throws IOException {
+
+        if (dir == null) {
+            return;
+        }
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (final IOException e) {
+            // directories cannot be opened on this platform
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+}
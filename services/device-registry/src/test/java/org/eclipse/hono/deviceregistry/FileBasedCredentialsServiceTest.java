@@ -19,18 +19,22 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
+import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import org.eclipse.hono.service.credentials.CredentialsService;
 import org.eclipse.hono.util.Constants;
 import org.eclipse.hono.util.CredentialsConstants;
 import org.eclipse.hono.util.CredentialsObject;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.rules.Timeout;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
 
 import io.vertx.core.Context;
 import io.vertx.core.Future;
@@ -58,6 +62,12 @@ public class FileBasedCredentialsServiceTest {
      */
     public Timeout timeout = Timeout.seconds(5);
 
+    /**
+     * A folder for files created by tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private static final String FILE_NAME = "/credentials.json";
 
     private Vertx vertx;
@@ -69,6 +79,7 @@ public class FileBasedCredentialsServiceTest {
     /**
      * Sets up fixture.
      */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     @Before
     public void setUp() {
         fileSystem = mock(FileSystem.class);
@@ -77,6 +88,14 @@ public class FileBasedCredentialsServiceTest {
         vertx = mock(Vertx.class);
         when(vertx.eventBus()).thenReturn(eventBus);
         when(vertx.fileSystem()).thenReturn(fileSystem);
+        doAnswer(invocation -> {
+            final Handler blockingCode = invocation.getArgument(0);
+            final Handler resultHandler = invocation.getArgument(2);
+            final Future result = Future.future();
+            blockingCode.handle(result);
+            resultHandler.handle(result);
+            return null;
+        }).when(vertx).executeBlocking(any(Handler.class), anyBoolean(), any(Handler.class));
 
         props = new FileBasedCredentialsConfigProperties();
         svc = new FileBasedCredentialsService();
@@ -169,8 +188,7 @@ public class FileBasedCredentialsServiceTest {
         props.setFilename(FILE_NAME);
         when(fileSystem.existsBlocking(FILE_NAME)).thenReturn(Boolean.TRUE);
         doAnswer(invocation -> {
-            final Buffer data = mock(Buffer.class);
-            when(data.getBytes()).thenReturn("NO JSON".getBytes(StandardCharsets.UTF_8));
+            final Buffer data = Buffer.buffer("NO JSON");
             final Handler handler = invocation.getArgument(1);
             handler.handle(Future.succeededFuture(data));
             return null;
@@ -225,16 +243,18 @@ public class FileBasedCredentialsServiceTest {
      * be loaded in again.
      * 
      * @param ctx The vert.x test context.
+     * @throws IOException if the file cannot be read.
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Test
-    public void testLoadCredentialsCanReadOutputOfSaveToFile(final TestContext ctx) {
+    public void testLoadCredentialsCanReadOutputOfSaveToFile(final TestContext ctx) throws IOException {
 
         // GIVEN a service configured to persist credentials to file
         // that contains some credentials
-        props.setFilename(FILE_NAME);
+        final String filename = folder.newFile("credentials.json").getPath();
+        props.setFilename(filename);
         props.setSaveToFile(true);
-        when(fileSystem.existsBlocking(FILE_NAME)).thenReturn(Boolean.TRUE);
+        when(fileSystem.existsBlocking(filename)).thenReturn(Boolean.TRUE);
         final Async add = ctx.async(2);
         final CredentialsObject hashedPassword = CredentialsObject.fromHashedPassword(
                 "4700", "bumlux", "secret", "sha-512", null, null, null);
@@ -258,17 +278,9 @@ public class FileBasedCredentialsServiceTest {
 
         // WHEN saving the registry content to the file and clearing the registry
         final Async write = ctx.async();
-        doAnswer(invocation -> {
-            final Handler handler = invocation.getArgument(2);
-            handler.handle(Future.succeededFuture());
-            write.complete();
-            return null;
-        }).when(fileSystem).writeFile(eq(FILE_NAME), any(Buffer.class), any(Handler.class));
-
-        svc.saveToFile();
+        svc.saveToFile().setHandler(ctx.asyncAssertSuccess(ok -> write.complete()));
         write.await();
-        final ArgumentCaptor<Buffer> buffer = ArgumentCaptor.forClass(Buffer.class);
-        verify(fileSystem).writeFile(eq(FILE_NAME), buffer.capture(), any(Handler.class));
+        final Buffer buffer = Buffer.buffer(Files.readAllBytes(Paths.get(filename)));
         svc.clear();
         assertNotRegistered(svc, Constants.DEFAULT_PATH_SEPARATOR, "sensor1", CredentialsConstants.SECRETS_TYPE_PRESHARED_KEY, ctx);
 
@@ -276,10 +288,10 @@ public class FileBasedCredentialsServiceTest {
         final Async read = ctx.async();
         doAnswer(invocation -> {
             final Handler handler = invocation.getArgument(1);
-            handler.handle(Future.succeededFuture(buffer.getValue()));
+            handler.handle(Future.succeededFuture(buffer));
             read.complete();
             return null;
-        }).when(fileSystem).readFile(eq(FILE_NAME), any(Handler.class));
+        }).when(fileSystem).readFile(eq(filename), any(Handler.class));
         svc.loadCredentials();
         read.await();
         assertRegistered(svc, Constants.DEFAULT_TENANT, "sensor1", CredentialsConstants.SECRETS_TYPE_PRESHARED_KEY, ctx);
@@ -346,6 +358,38 @@ public class FileBasedCredentialsServiceTest {
         get.await();
     }
 
+    /**
+     * Verifies that the service does not allow clients to cache credentials
+     * unless a max age has been configured explicitly.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testGetCredentialsIncludesCacheDirective(final TestContext ctx) {
+
+        register(svc, "tenant", "device", "myId", "myType", ctx);
+
+        // WHEN retrieving credentials using the default configuration
+        final Async get = ctx.async();
+        svc.get("tenant", "myType", "myId", ctx.asyncAssertSuccess(s -> {
+            // THEN the response must not be cached
+            assertThat(s.getCacheDirective().isCachingAllowed(), is(false));
+            get.complete();
+        }));
+        get.await();
+
+        // WHEN retrieving credentials after a max age has been configured
+        props.setCacheMaxAge(180);
+        final Async getWithMaxAge = ctx.async();
+        svc.get("tenant", "myType", "myId", ctx.asyncAssertSuccess(s -> {
+            // THEN the response may be cached for the configured amount of time
+            assertThat(s.getCacheDirective().isCachingAllowed(), is(true));
+            assertThat(s.getCacheDirective().getMaxAge(), is(180L));
+            getWithMaxAge.complete();
+        }));
+        getWithMaxAge.await();
+    }
+
     /**
      * Verifies that service returns existing credentials for proper client context.
      *
@@ -435,6 +479,46 @@ public class FileBasedCredentialsServiceTest {
         remove.await();
     }
 
+    /**
+     * Verifies that the credentials returned for a device reflect updates and removals
+     * of the device's credentials.
+     * 
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testGetAllReflectsModifications(final TestContext ctx) {
+
+        // GIVEN a registry containing credentials of two devices
+        register(svc, "tenant", "device", "myId", "myType", ctx);
+        register(svc, "tenant", "device", "myOtherId", "myOtherType", ctx);
+        register(svc, "tenant", "other-device", "thirdId", "myType", ctx);
+        assertCredentialsOfDevice(svc, "tenant", "device", 2, ctx);
+
+        // WHEN assigning one of the device's credentials to the other device
+        final Async update = ctx.async();
+        svc.update("tenant", new JsonObject()
+                .put(CredentialsConstants.FIELD_PAYLOAD_DEVICE_ID, "other-device")
+                .put(CredentialsConstants.FIELD_AUTH_ID, "myOtherId")
+                .put(CredentialsConstants.FIELD_TYPE, "myOtherType")
+                .put(CredentialsConstants.FIELD_SECRETS, new JsonArray()), ctx.asyncAssertSuccess(s -> {
+                    assertThat(s.getStatus(), is(HttpURLConnection.HTTP_NO_CONTENT));
+                    update.complete();
+                }));
+        update.await();
+        // and removing its remaining credentials
+        final Async remove = ctx.async();
+        svc.remove("tenant", "myType", "myId", ctx.asyncAssertSuccess(s -> {
+            assertThat(s.getStatus(), is(HttpURLConnection.HTTP_NO_CONTENT));
+            remove.complete();
+        }));
+        remove.await();
+
+        // THEN no credentials are found for the device
+        assertCredentialsOfDevice(svc, "tenant", "device", 0, ctx);
+        // and the other device has two sets of credentials
+        assertCredentialsOfDevice(svc, "tenant", "other-device", 2, ctx);
+    }
+
     /**
      * Verifies that the <em>modificationEnabled</em> property prevents updating an existing entry.
      * 
@@ -483,6 +567,26 @@ public class FileBasedCredentialsServiceTest {
         removeFailure.await();
     }
 
+    private static void assertCredentialsOfDevice(
+            final CredentialsService svc,
+            final String tenant,
+            final String deviceId,
+            final int expectedCount,
+            final TestContext ctx) {
+
+        final Async lookup = ctx.async();
+        svc.getAll(tenant, deviceId, ctx.asyncAssertSuccess(t -> {
+            if (expectedCount == 0) {
+                assertThat(t.getStatus(), is(HttpURLConnection.HTTP_NOT_FOUND));
+            } else {
+                assertThat(t.getStatus(), is(HttpURLConnection.HTTP_OK));
+                assertThat(t.getPayload().getInteger(CredentialsConstants.FIELD_CREDENTIALS_TOTAL), is(expectedCount));
+            }
+            lookup.complete();
+        }));
+        lookup.await();
+    }
+
     private static void assertRegistered(
             final CredentialsService svc,
             final String tenant,
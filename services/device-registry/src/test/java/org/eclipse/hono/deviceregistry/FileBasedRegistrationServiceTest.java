@@ -15,13 +15,19 @@ package org.eclipse.hono.deviceregistry;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import org.eclipse.hono.client.ServiceInvocationException;
+import org.eclipse.hono.service.registration.RegistrationAssertionHelper;
+import org.eclipse.hono.service.registration.RegistrationAssertionHelperImpl;
 import org.eclipse.hono.util.Constants;
 import org.eclipse.hono.util.EventBusMessage;
 import org.eclipse.hono.util.RegistrationConstants;
@@ -29,6 +35,7 @@ import org.eclipse.hono.util.RegistrationResult;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.rules.Timeout;
 import org.junit.runner.RunWith;
 
@@ -61,6 +68,12 @@ public class FileBasedRegistrationServiceTest {
     @Rule
     public Timeout timeout = Timeout.seconds(5);
 
+    /**
+     * A folder for files created by tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private FileBasedRegistrationConfigProperties props;
     private FileBasedRegistrationService registrationService;
     private Vertx vertx;
@@ -70,6 +83,7 @@ public class FileBasedRegistrationServiceTest {
     /**
      * Sets up the fixture.
      */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     @Before
     public void setUp() {
         fileSystem = mock(FileSystem.class);
@@ -78,6 +92,14 @@ public class FileBasedRegistrationServiceTest {
         vertx = mock(Vertx.class);
         when(vertx.eventBus()).thenReturn(eventBus);
         when(vertx.fileSystem()).thenReturn(fileSystem);
+        doAnswer(invocation -> {
+            final Handler blockingCode = invocation.getArgument(0);
+            final Handler resultHandler = invocation.getArgument(2);
+            final Future result = Future.future();
+            blockingCode.handle(result);
+            resultHandler.handle(result);
+            return null;
+        }).when(vertx).executeBlocking(any(Handler.class), anyBoolean(), any(Handler.class));
 
         props = new FileBasedRegistrationConfigProperties();
         props.setFilename(FILE_NAME);
@@ -91,18 +113,16 @@ public class FileBasedRegistrationServiceTest {
      * data if it does not exist yet.
      * 
      * @param ctx The vert.x context.
+     * @throws IOException if the temporary folder cannot be accessed.
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Test
-    public void testSaveToFileCreatesFile(final TestContext ctx) {
+    public void testSaveToFileCreatesFile(final TestContext ctx) throws IOException {
 
         // GIVEN a registration service configured with a non-existing file
+        final String filename = new File(folder.getRoot(), "device-identities.json").getPath();
+        props.setFilename(filename);
         props.setSaveToFile(true);
-        doAnswer(invocation -> {
-            final Handler handler = invocation.getArgument(2);
-            handler.handle(Future.succeededFuture());
-            return null;
-        }).when(fileSystem).writeFile(eq(props.getFilename()), any(Buffer.class), any(Handler.class));
         when(fileSystem.existsBlocking(props.getFilename())).thenReturn(Boolean.FALSE);
         doAnswer(invocation -> {
             final Handler handler = invocation.getArgument(1);
@@ -120,6 +140,9 @@ public class FileBasedRegistrationServiceTest {
         // THEN the file has been created
         saving.await();
         verify(fileSystem).createFile(eq(props.getFilename()), any(Handler.class));
+        // and the registry has been written to it by means of a temporary file
+        assertTrue(new File(filename).exists());
+        assertFalse(new File(filename + SnapshotWriter.TMP_FILE_SUFFIX).exists());
     }
 
     /**
@@ -204,8 +227,7 @@ public class FileBasedRegistrationServiceTest {
         // that contains malformed JSON
         when(fileSystem.existsBlocking(props.getFilename())).thenReturn(Boolean.TRUE);
         doAnswer(invocation -> {
-            final Buffer data = mock(Buffer.class);
-            when(data.getBytes()).thenReturn("NO JSON".getBytes(StandardCharsets.UTF_8));
+            final Buffer data = Buffer.buffer("NO JSON");
             final Handler handler = invocation.getArgument(1);
             handler.handle(Future.succeededFuture(data));
             return null;
@@ -278,6 +300,115 @@ public class FileBasedRegistrationServiceTest {
         assertThat(registrationService.getDevice(TENANT, "newDevice").getStatus(), is(HttpURLConnection.HTTP_NOT_FOUND));
     }
 
+    /**
+     * Verifies that the registry asserts the registration status of devices based on
+     * their current registration information.
+     *
+     * @param ctx The vert.x context.
+     */
+    @Test
+    public void testAssertRegistrationUsesCurrentRegistrationInformation(final TestContext ctx) {
+
+        // GIVEN a registry containing a gateway and a device that may be connected via the gateway
+        registrationService.setRegistrationAssertionFactory(RegistrationAssertionHelperImpl.forSharedSecret(
+                "suhfuighdfgiuzhfasdcvjkasdhfeuifhfaibfasdfkahsdu", 60));
+        final JsonObject defaults = new JsonObject().put("content-type", "text/plain");
+        registrationService.addDevice(TENANT, GW, null);
+        registrationService.addDevice(TENANT, DEVICE, new JsonObject()
+                .put(FileBasedRegistrationService.PROPERTY_VIA, GW)
+                .put(RegistrationConstants.FIELD_DEFAULTS, defaults));
+
+        // WHEN asserting the device's registration status
+        // THEN the assertion contains the device's default values
+        registrationService.assertRegistration(TENANT, DEVICE, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals(HttpURLConnection.HTTP_OK, result.getStatus());
+            ctx.assertNotNull(result.getPayload().getString(RegistrationConstants.FIELD_ASSERTION));
+            ctx.assertEquals(defaults, result.getPayload().getJsonObject(RegistrationConstants.FIELD_DEFAULTS));
+        }));
+        registrationService.assertRegistration(TENANT, DEVICE, GW, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals(HttpURLConnection.HTTP_OK, result.getStatus());
+        }));
+        registrationService.assertRegistration(TENANT, DEVICE, "other-gw", ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals(HttpURLConnection.HTTP_FORBIDDEN, result.getStatus());
+        }));
+
+        // and after the gateway has been disabled, it is not authorized anymore
+        registrationService.updateDevice(TENANT, GW, new JsonObject().put(RegistrationConstants.FIELD_ENABLED, false));
+        registrationService.assertRegistration(TENANT, DEVICE, GW, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals(HttpURLConnection.HTTP_FORBIDDEN, result.getStatus());
+        }));
+        // and after the device has been disabled, its registration status cannot be asserted anymore
+        registrationService.updateDevice(TENANT, DEVICE, new JsonObject().put(RegistrationConstants.FIELD_ENABLED, false));
+        registrationService.assertRegistration(TENANT, DEVICE, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals(HttpURLConnection.HTTP_NOT_FOUND, result.getStatus());
+        }));
+    }
+
+    /**
+     * Verifies that the registry reuses an assertion that has been created for a device
+     * until the device's registration information is updated.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testAssertRegistrationReusesAssertionUntilDeviceIsUpdated(final TestContext ctx) {
+
+        // GIVEN a registry containing a device
+        final RegistrationAssertionHelper assertionFactory = mock(RegistrationAssertionHelper.class);
+        when(assertionFactory.getAssertionLifetime()).thenReturn(60L);
+        when(assertionFactory.getAssertion(TENANT, DEVICE)).thenReturn("token-1", "token-2");
+        registrationService.setRegistrationAssertionFactory(assertionFactory);
+        registrationService.addDevice(TENANT, DEVICE, null);
+
+        // WHEN asserting the device's registration status repeatedly
+        // THEN the same assertion is returned without creating a new one
+        registrationService.assertRegistration(TENANT, DEVICE, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals("token-1", result.getPayload().getString(RegistrationConstants.FIELD_ASSERTION));
+        }));
+        registrationService.assertRegistration(TENANT, DEVICE, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals("token-1", result.getPayload().getString(RegistrationConstants.FIELD_ASSERTION));
+            // and the result may only be cached until the safety margin before the assertion's expiration
+            ctx.assertTrue(result.getCacheDirective().getMaxAge() <= 54);
+        }));
+        verify(assertionFactory, times(1)).getAssertion(TENANT, DEVICE);
+
+        // and after the device has been updated, a new assertion is created
+        registrationService.updateDevice(TENANT, DEVICE, new JsonObject().put(RegistrationConstants.FIELD_ENABLED, true));
+        registrationService.assertRegistration(TENANT, DEVICE, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals("token-2", result.getPayload().getString(RegistrationConstants.FIELD_ASSERTION));
+        }));
+        verify(assertionFactory, times(2)).getAssertion(TENANT, DEVICE);
+    }
+
+    /**
+     * Verifies that the registry creates a new assertion for each request if the
+     * <em>assertionCacheMaxSize</em> property is set to 0.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testAssertRegistrationDoesNotReuseAssertionIfCacheIsDisabled(final TestContext ctx) {
+
+        // GIVEN a registry containing a device with assertion caching disabled
+        props.setAssertionCacheMaxSize(0);
+        registrationService.setConfig(props);
+        final RegistrationAssertionHelper assertionFactory = mock(RegistrationAssertionHelper.class);
+        when(assertionFactory.getAssertionLifetime()).thenReturn(60L);
+        when(assertionFactory.getAssertion(TENANT, DEVICE)).thenReturn("token-1", "token-2");
+        registrationService.setRegistrationAssertionFactory(assertionFactory);
+        registrationService.addDevice(TENANT, DEVICE, null);
+
+        // WHEN asserting the device's registration status repeatedly
+        // THEN a new assertion is created for each request
+        registrationService.assertRegistration(TENANT, DEVICE, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals("token-1", result.getPayload().getString(RegistrationConstants.FIELD_ASSERTION));
+        }));
+        registrationService.assertRegistration(TENANT, DEVICE, ctx.asyncAssertSuccess(result -> {
+            ctx.assertEquals("token-2", result.getPayload().getString(RegistrationConstants.FIELD_ASSERTION));
+        }));
+        verify(assertionFactory, times(2)).getAssertion(TENANT, DEVICE);
+    }
+
     /**
      * Verifies that the <em>modificationEnabled</em> property prevents updating an existing entry.
      */
@@ -492,6 +623,112 @@ public class FileBasedRegistrationServiceTest {
         verify(fileSystem, never()).createFile(eq(props.getFilename()), any(Handler.class));
     }
 
+    /**
+     * Verifies that modifications which have been appended to the journal are
+     * replayed on startup.
+     *
+     * @param ctx The vert.x context.
+     * @throws IOException if the files could not be created.
+     */
+    @Test
+    public void testDoStartReplaysJournal(final TestContext ctx) throws IOException {
+
+        final Vertx realVertx = Vertx.vertx();
+        try {
+            // GIVEN a service that has journaled the addition, update and removal of devices
+            final File file = folder.newFile("device-identities.json");
+            Files.write(file.toPath(), "[]".getBytes(StandardCharsets.UTF_8));
+            final FileBasedRegistrationService service = newJournalingService(realVertx, file.getPath(), 100);
+            start(ctx, service);
+            service.addDevice(TENANT, DEVICE, null);
+            service.addDevice(TENANT, "4712", null);
+            service.updateDevice(TENANT, DEVICE, new JsonObject().put("updated", true));
+            service.removeDevice(TENANT, "4712");
+            stop(ctx, service);
+
+            // WHEN starting another service using the same file
+            final FileBasedRegistrationService newService = newJournalingService(realVertx, file.getPath(), 100);
+            start(ctx, newService);
+
+            // THEN the file has not been rewritten
+            assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), is("[]"));
+            // but the modifications have been restored from the journal
+            assertThat(newService.getDevice(TENANT, DEVICE).getPayload()
+                    .getJsonObject(RegistrationConstants.FIELD_DATA).getBoolean("updated"), is(Boolean.TRUE));
+            assertThat(newService.getDevice(TENANT, "4712").getStatus(), is(HttpURLConnection.HTTP_NOT_FOUND));
+        } finally {
+            realVertx.close();
+        }
+    }
+
+    /**
+     * Verifies that the journal is compacted into the file once it has reached
+     * the configured number of records.
+     *
+     * @param ctx The vert.x context.
+     * @throws IOException if the files could not be created.
+     */
+    @Test
+    public void testSaveToFileCompactsJournal(final TestContext ctx) throws IOException {
+
+        final Vertx realVertx = Vertx.vertx();
+        try {
+            // GIVEN a service whose journal has reached the compaction threshold
+            final File file = folder.newFile("device-identities.json");
+            Files.write(file.toPath(), "[]".getBytes(StandardCharsets.UTF_8));
+            final FileBasedRegistrationService service = newJournalingService(realVertx, file.getPath(), 2);
+            start(ctx, service);
+            service.addDevice(TENANT, DEVICE, null);
+            service.addDevice(TENANT, "4712", null);
+
+            // WHEN persisting the registry
+            final Async saving = ctx.async();
+            service.saveToFile().setHandler(ctx.asyncAssertSuccess(ok -> saving.complete()));
+            saving.await();
+
+            // THEN all devices have been written to the file and the journal has been truncated
+            assertThat(new File(file.getPath() + ".journal").length(), is(0L));
+            final FileBasedRegistrationService newService = newJournalingService(realVertx, file.getPath(), 2);
+            start(ctx, newService);
+            assertThat(newService.getDevice(TENANT, DEVICE).getStatus(), is(HttpURLConnection.HTTP_OK));
+            assertThat(newService.getDevice(TENANT, "4712").getStatus(), is(HttpURLConnection.HTTP_OK));
+        } finally {
+            realVertx.close();
+        }
+    }
+
+    private static FileBasedRegistrationService newJournalingService(final Vertx vertx, final String filename,
+            final int compactionThreshold) {
+
+        final FileBasedRegistrationConfigProperties config = new FileBasedRegistrationConfigProperties();
+        config.setFilename(filename);
+        config.setSaveToFile(true);
+        config.setJournalEnabled(true);
+        config.setJournalCompactionThreshold(compactionThreshold);
+        final FileBasedRegistrationService service = new FileBasedRegistrationService();
+        service.setConfig(config);
+        service.init(vertx, vertx.getOrCreateContext());
+        return service;
+    }
+
+    private static void start(final TestContext ctx, final FileBasedRegistrationService service) {
+
+        final Async startup = ctx.async();
+        final Future<Void> startFuture = Future.future();
+        startFuture.setHandler(ctx.asyncAssertSuccess(s -> startup.complete()));
+        service.doStart(startFuture);
+        startup.await();
+    }
+
+    private static void stop(final TestContext ctx, final FileBasedRegistrationService service) {
+
+        final Async shutdown = ctx.async();
+        final Future<Void> stopFuture = Future.future();
+        stopFuture.setHandler(ctx.asyncAssertSuccess(s -> shutdown.complete()));
+        service.doStop(stopFuture);
+        shutdown.await();
+    }
+
     private static EventBusMessage newRequest(final String operation, final String tenant) {
         return EventBusMessage.forOperation(operation).setTenant(tenant).setDeviceId(DEVICE);
     }
@@ -19,8 +19,11 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
+import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import javax.security.auth.x500.X500Principal;
 
@@ -33,9 +36,9 @@ import org.eclipse.hono.util.TenantResult;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.rules.Timeout;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
 
 import io.vertx.core.Context;
 import io.vertx.core.Future;
@@ -64,6 +67,12 @@ public class FileBasedTenantServiceTest {
     @Rule
     public final Timeout timeout = Timeout.seconds(5);
 
+    /**
+     * A folder for files created by tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private static final String FILE_NAME = "/tenants.json";
 
     private Vertx vertx;
@@ -75,6 +84,7 @@ public class FileBasedTenantServiceTest {
     /**
      * Sets up fixture.
      */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     @Before
     public void setUp() {
         fileSystem = mock(FileSystem.class);
@@ -83,6 +93,14 @@ public class FileBasedTenantServiceTest {
         vertx = mock(Vertx.class);
         when(vertx.eventBus()).thenReturn(eventBus);
         when(vertx.fileSystem()).thenReturn(fileSystem);
+        doAnswer(invocation -> {
+            final Handler blockingCode = invocation.getArgument(0);
+            final Handler resultHandler = invocation.getArgument(2);
+            final Future result = Future.future();
+            blockingCode.handle(result);
+            resultHandler.handle(result);
+            return null;
+        }).when(vertx).executeBlocking(any(Handler.class), anyBoolean(), any(Handler.class));
 
         props = new FileBasedTenantsConfigProperties();
         svc = new FileBasedTenantService();
@@ -221,16 +239,18 @@ public class FileBasedTenantServiceTest {
      * be loaded in again.
      *
      * @param ctx The vert.x test context.
+     * @throws IOException if the file cannot be read.
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Test
-    public void testLoadTenantsCanReadOutputOfSaveToFile(final TestContext ctx) {
+    public void testLoadTenantsCanReadOutputOfSaveToFile(final TestContext ctx) throws IOException {
 
         // GIVEN a service configured to persist tenants to file
         // that contains some tenants
-        props.setFilename(FILE_NAME);
+        final String filename = folder.newFile("tenants.json").getPath();
+        props.setFilename(filename);
         props.setSaveToFile(true);
-        when(fileSystem.existsBlocking(FILE_NAME)).thenReturn(Boolean.TRUE);
+        when(fileSystem.existsBlocking(filename)).thenReturn(Boolean.TRUE);
         final Async countDown = ctx.async();
         addTenant(Constants.DEFAULT_TENANT).compose(ok -> addTenant("OTHER_TENANT"))
             .setHandler(ctx.asyncAssertSuccess(ok -> countDown.complete()));
@@ -238,17 +258,9 @@ public class FileBasedTenantServiceTest {
 
         // WHEN saving the content to the file and clearing the tenant registry
         final Async write = ctx.async();
-        doAnswer(invocation -> {
-            final Handler handler = invocation.getArgument(2);
-            handler.handle(Future.succeededFuture());
-            write.complete();
-            return null;
-        }).when(fileSystem).writeFile(eq(FILE_NAME), any(Buffer.class), any(Handler.class));
-
-        svc.saveToFile();
+        svc.saveToFile().setHandler(ctx.asyncAssertSuccess(ok -> write.complete()));
         write.await();
-        final ArgumentCaptor<Buffer> buffer = ArgumentCaptor.forClass(Buffer.class);
-        verify(fileSystem).writeFile(eq(FILE_NAME), buffer.capture(), any(Handler.class));
+        final Buffer buffer = Buffer.buffer(Files.readAllBytes(Paths.get(filename)));
         svc.clear();
         assertTenantDoesNotExist(svc, Constants.DEFAULT_TENANT, ctx);
 
@@ -256,10 +268,10 @@ public class FileBasedTenantServiceTest {
         final Async read = ctx.async();
         doAnswer(invocation -> {
             final Handler handler = invocation.getArgument(1);
-            handler.handle(Future.succeededFuture(buffer.getValue()));
+            handler.handle(Future.succeededFuture(buffer));
             read.complete();
             return null;
-        }).when(fileSystem).readFile(eq(FILE_NAME), any(Handler.class));
+        }).when(fileSystem).readFile(eq(filename), any(Handler.class));
         svc.loadTenantData();
         read.await();
         assertTenantExists(svc, Constants.DEFAULT_TENANT, ctx);
@@ -417,6 +429,49 @@ public class FileBasedTenantServiceTest {
         });
     }
 
+    /**
+     * Verifies that the lookup of tenants by the subject DN of their trusted certificate
+     * authority reflects updates and removals of tenants.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testGetForCertificateAuthorityReflectsModifications(final TestContext ctx) {
+
+        // GIVEN a tenant with a trusted CA
+        final X500Principal subjectDn = new X500Principal("O=Eclipse, OU=Hono, CN=ca");
+        final X500Principal newSubjectDn = new X500Principal("O=Eclipse, OU=Hono, CN=new-ca");
+        assertThat(svc.add("tenant", buildTenantPayload("tenant")
+                .put(TenantConstants.FIELD_PAYLOAD_TRUSTED_CA, new JsonObject()
+                        .put(TenantConstants.FIELD_PAYLOAD_SUBJECT_DN, subjectDn.getName(X500Principal.RFC2253))))
+                .getStatus(), is(HttpURLConnection.HTTP_CREATED));
+
+        // WHEN updating the tenant with another trusted CA
+        assertThat(svc.update("tenant", buildTenantPayload("tenant")
+                .put(TenantConstants.FIELD_PAYLOAD_TRUSTED_CA, new JsonObject()
+                        .put(TenantConstants.FIELD_PAYLOAD_SUBJECT_DN, newSubjectDn.getName(X500Principal.RFC2253))))
+                .getStatus(), is(HttpURLConnection.HTTP_NO_CONTENT));
+
+        // THEN the tenant can only be found by the new CA's subject DN
+        svc.get(subjectDn, ctx.asyncAssertSuccess(s -> {
+            assertThat(s.getStatus(), is(HttpURLConnection.HTTP_NOT_FOUND));
+        }));
+        svc.get(newSubjectDn, ctx.asyncAssertSuccess(s -> {
+            assertThat(s.getStatus(), is(HttpURLConnection.HTTP_OK));
+        }));
+        // and another tenant can use the old CA
+        assertThat(svc.add("other-tenant", buildTenantPayload("other-tenant")
+                .put(TenantConstants.FIELD_PAYLOAD_TRUSTED_CA, new JsonObject()
+                        .put(TenantConstants.FIELD_PAYLOAD_SUBJECT_DN, subjectDn.getName(X500Principal.RFC2253))))
+                .getStatus(), is(HttpURLConnection.HTTP_CREATED));
+
+        // and after the tenant has been removed, it cannot be found by the new CA's subject DN anymore
+        assertThat(svc.removeTenant("tenant").getStatus(), is(HttpURLConnection.HTTP_NO_CONTENT));
+        svc.get(newSubjectDn, ctx.asyncAssertSuccess(s -> {
+            assertThat(s.getStatus(), is(HttpURLConnection.HTTP_NOT_FOUND));
+        }));
+    }
+
     /**
      * Verifies that the service removes tenants for a given tenantId.
      *
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.deviceregistry;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests verifying behavior of {@link RegistryFileParser}.
+ *
+ */
+public class RegistryFileParserTest {
+
+    /**
+     * Verifies that the parser passes all records to the consumer regardless
+     * of the position of the tenant ID within the tenant's object.
+     */
+    @Test
+    public void testParsePassesRecordsOfAllTenants() {
+
+        final JsonArray content = new JsonArray()
+                .add(new JsonObject()
+                        .put("tenant", "tenant-one")
+                        .put("devices", new JsonArray()
+                                .add(new JsonObject().put("device-id", "4711").put("data", new JsonObject().put("enabled", true)))
+                                .add("not an object")
+                                .add(new JsonObject().put("device-id", "4712"))))
+                .add(new JsonObject()
+                        .put("other", new JsonObject().put("ignored", new JsonArray().add(1)))
+                        .put("devices", new JsonArray().add(new JsonObject().put("device-id", "4713")))
+                        .put("tenant", "tenant-two"))
+                .add(new JsonObject()
+                        .put("devices", new JsonArray().add(new JsonObject().put("device-id", "no-tenant"))));
+
+        final List<String> records = new ArrayList<>();
+        final int count = RegistryFileParser.parse(Buffer.buffer(content.encodePrettily()), "devices",
+                (tenantId, record) -> records.add(tenantId + "/" + record.getString("device-id")));
+
+        assertEquals(3, count);
+        assertEquals(3, records.size());
+        assertTrue(records.contains("tenant-one/4711"));
+        assertTrue(records.contains("tenant-one/4712"));
+        assertTrue(records.contains("tenant-two/4713"));
+    }
+
+    /**
+     * Verifies that the parser decodes nested objects of records.
+     */
+    @Test
+    public void testParseDecodesNestedObjects() {
+
+        final JsonObject data = new JsonObject().put("enabled", true).put("via", "gw-1");
+        final JsonArray content = new JsonArray().add(new JsonObject()
+                .put("tenant", "tenant")
+                .put("devices", new JsonArray().add(new JsonObject().put("device-id", "4711").put("data", data))));
+
+        final List<JsonObject> records = new ArrayList<>();
+        RegistryFileParser.parse(Buffer.buffer(content.encode()), "devices", (tenantId, record) -> records.add(record));
+
+        assertEquals(data, records.get(0).getJsonObject("data"));
+    }
+
+    /**
+     * Verifies that the parser fails on truncated content.
+     */
+    @Test(expected = DecodeException.class)
+    public void testParseFailsForTruncatedContent() {
+
+        RegistryFileParser.parse(Buffer.buffer("[ { \"tenant\": \"tenant\", \"devices\": [ { \"device-id\": "), "devices",
+                (tenantId, record) -> {});
+    }
+
+    /**
+     * Verifies that the parser fails if the content is not a JSON array.
+     */
+    @Test(expected = DecodeException.class)
+    public void testParseFailsForNonArrayContent() {
+
+        RegistryFileParser.parse(Buffer.buffer("{}"), "devices", (tenantId, record) -> {});
+    }
+}
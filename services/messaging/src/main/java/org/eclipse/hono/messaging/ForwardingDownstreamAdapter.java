@@ -30,6 +30,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
@@ -42,7 +43,11 @@ import io.vertx.proton.ProtonSender;
 
 /**
  * A downstream adapter that provides support for sending messages to an AMQP 1.0 container.
- *
+ * <p>
+ * By default, a separate downstream sender is created for each upstream client. If
+ * {@link HonoMessagingConfigProperties#isSharedDownstreamSendersEnabled() shared downstream senders}
+ * are enabled, all upstream clients publishing to the same target address use the same
+ * downstream sender instead.
  */
 @Component
 public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
@@ -58,13 +63,14 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
 
     private final Map<UpstreamReceiver, ProtonSender> activeSenders          = new HashMap<>();
     private final Map<String, List<UpstreamReceiver>> receiversPerConnection = new HashMap<>();
-    private final List<Handler<AsyncResult<Void>>>    clientAttachHandlers   = new ArrayList<>();
+    private final List<DownstreamConnection>          downstreamConnections  = new ArrayList<>();
+    private final Map<String, SharedDownstreamSender> sharedSenders          = new HashMap<>();
+    private final Map<String, List<Handler<AsyncResult<ProtonSender>>>> pendingSharedSenders = new HashMap<>();
     private final Vertx                               vertx;
 
     private MessagingMetrics  metrics;
     private boolean           running                     = false;
     private boolean           retryOnFailedConnectAttempt = true;
-    private ProtonConnection  downstreamConnection;
     private final SenderFactory     senderFactory;
     private ConnectionFactory downstreamConnectionFactory;
 
@@ -125,6 +131,10 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
 
     /**
      * Connects to the downstream container.
+     * <p>
+     * The number of connections established is determined by the
+     * {@link HonoMessagingConfigProperties#getDownstreamConnections() downstreamConnections}
+     * configuration property.
      * 
      * @param startFuture The result of the connection attempt.
      * @throws IllegalStateException If the downstream container host is {@code null}
@@ -139,9 +149,20 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
             throw new IllegalStateException("downstream connection factory is not set");
         } else {
             running = true;
+            downstreamConnections.clear();
+            for (int i = 0; i < honoConfig.getDownstreamConnections(); i++) {
+                downstreamConnections.add(new DownstreamConnection(i));
+            }
             if (honoConfig.isWaitForDownstreamConnectionEnabled()) {
-                logger.info("waiting for connection to downstream container");
-                connectToDownstream(createClientOptions(), attempt -> {
+                logger.info("waiting for {} connection(s) to downstream container", downstreamConnections.size());
+                @SuppressWarnings("rawtypes")
+                final List<Future> connectAttempts = new ArrayList<>();
+                for (final DownstreamConnection downstream : downstreamConnections) {
+                    final Future<ProtonConnection> connectAttempt = Future.future();
+                    connectToDownstream(downstream, createClientOptions(), connectAttempt.completer());
+                    connectAttempts.add(connectAttempt);
+                }
+                CompositeFuture.all(connectAttempts).setHandler(attempt -> {
                     if (attempt.succeeded()) {
                         startFuture.complete();
                     } else {
@@ -149,14 +170,16 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
                     }
                 });
             } else {
-                connectToDownstream(createClientOptions());
+                for (final DownstreamConnection downstream : downstreamConnections) {
+                    connectToDownstream(downstream, createClientOptions());
+                }
                 startFuture.complete();
             }
         }
     }
 
     /**
-     * Closes the connection with the downstream container.
+     * Closes the connections with the downstream container.
      * 
      * @param stopFuture Always succeeds.
      */
@@ -164,13 +187,16 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
     public final void stop(final Future<Void> stopFuture) {
 
         if (running) {
-            if (downstreamConnection != null && !downstreamConnection.isDisconnected()) {
-                final String container = downstreamConnection.getRemoteContainer();
-                logger.info("closing connection to downstream container [{}]", container);
-                downstreamConnection.closeHandler(null).disconnectHandler(null).close();
-                metrics.decrementDownStreamConnections();
-            } else {
-                logger.debug("downstream connection already closed");
+            for (final DownstreamConnection downstream : downstreamConnections) {
+                final ProtonConnection connection = downstream.connection;
+                if (connection != null && !connection.isDisconnected()) {
+                    logger.info("closing connection [{}] to downstream container [{}]",
+                            downstream.index, connection.getRemoteContainer());
+                    connection.closeHandler(null).disconnectHandler(null).close();
+                    metrics.decrementDownStreamConnections();
+                } else {
+                    logger.debug("downstream connection [{}] already closed", downstream.index);
+                }
             }
             running = false;
         }
@@ -183,11 +209,12 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
      * @return The name or {@code null} if this adapter is currently not connected.
      */
     protected final String getDownstreamContainer() {
-        if (downstreamConnection != null) {
-            return downstreamConnection.getRemoteContainer();
-        } else {
-            return null;
+        for (final DownstreamConnection downstream : downstreamConnections) {
+            if (downstream.connection != null) {
+                return downstream.connection.getRemoteContainer();
+            }
         }
+        return null;
     }
 
     private ProtonClientOptions createClientOptions() {
@@ -197,27 +224,31 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
                 .setReconnectInterval(Constants.DEFAULT_RECONNECT_INTERVAL_MILLIS);
     }
 
-    private void connectToDownstream(final ProtonClientOptions options) {
-        connectToDownstream(options, null);
+    private void connectToDownstream(final DownstreamConnection downstream, final ProtonClientOptions options) {
+        connectToDownstream(downstream, options, null);
     }
 
-    private void connectToDownstream(final ProtonClientOptions options, final Handler<AsyncResult<ProtonConnection>> connectResultHandler) {
+    private void connectToDownstream(
+            final DownstreamConnection downstream,
+            final ProtonClientOptions options,
+            final Handler<AsyncResult<ProtonConnection>> connectResultHandler) {
 
         downstreamConnectionFactory.connect(
                 options,
-                this::onRemoteClose,
-                this::onDisconnectFromDownstreamContainer,
+                remoteClose -> onRemoteClose(downstream, remoteClose),
+                con -> onDisconnectFromDownstreamContainer(downstream, con),
                 connectAttempt -> {
                     if (connectAttempt.succeeded()) {
-                        this.downstreamConnection = connectAttempt.result();
+                        downstream.connection = connectAttempt.result();
                         metrics.incrementDownStreamConnections();
                         if (connectResultHandler != null) {
                             connectResultHandler.handle(Future.succeededFuture(connectAttempt.result()));
                         }
                     } else {
-                        logger.info("failed to connect to downstream container: {}", connectAttempt.cause().getMessage());
+                        logger.info("failed to connect to downstream container [connection: {}]: {}",
+                                downstream.index, connectAttempt.cause().getMessage());
                         if (retryOnFailedConnectAttempt) {
-                            reconnect(connectResultHandler);
+                            reconnect(downstream, connectResultHandler);
                         } else if (connectResultHandler != null) {
                             connectResultHandler.handle(Future.failedFuture(connectAttempt.cause()));
                         }
@@ -225,54 +256,73 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
                 });
     }
 
-    private void onRemoteClose(final AsyncResult<ProtonConnection> remoteClose) {
+    private void onRemoteClose(final DownstreamConnection downstream, final AsyncResult<ProtonConnection> remoteClose) {
 
+        final ProtonConnection connection = downstream.connection;
         if (remoteClose.succeeded()) {
-            if (remoteClose.result() != downstreamConnection) {
+            if (remoteClose.result() != connection) {
                 logger.warn("downstream container closed unknown connection");
                 return;
             } else {
-                logger.info("downstream container [{}] has closed connection", downstreamConnection.getRemoteContainer());
+                logger.info("downstream container [{}] has closed connection [{}]", connection.getRemoteContainer(), downstream.index);
             }
         } else {
-            logger.info("downstream container [{}] has closed connection: {}", downstreamConnection.getRemoteContainer(), remoteClose.cause().getMessage());
+            logger.info("downstream container [{}] has closed connection [{}]: {}", connection.getRemoteContainer(),
+                    downstream.index, remoteClose.cause().getMessage());
         }
-        downstreamConnection.close();
-        onDisconnectFromDownstreamContainer(downstreamConnection);
+        connection.close();
+        onDisconnectFromDownstreamContainer(downstream, connection);
     }
 
     /**
      * Handles unexpected disconnection from downstream container.
      * <p>
      * Clears all internal state kept for the connection, e.g. open links etc, and then tries to
-     * reconnect.
+     * reconnect. State kept for the other connections to the downstream container is not affected.
      * 
+     * @param downstream The connection slot that the failed connection belongs to.
      * @param con The failed connection.
      */
-    private void onDisconnectFromDownstreamContainer(final ProtonConnection con) {
+    private void onDisconnectFromDownstreamContainer(final DownstreamConnection downstream, final ProtonConnection con) {
 
-        if (con != downstreamConnection) {
+        if (con != downstream.connection) {
             logger.warn("unknown connection to downstream container has been disconnected");
         } else {
-            // all links to downstream host will now be stale and unusable
-            logger.warn("lost connection to downstream container [{}], closing upstream receivers ...", con.getRemoteContainer());
-
-            for (final UpstreamReceiver client : activeSenders.keySet()) {
-                closeReceiver(client);
+            // all links on the connection to downstream host will now be stale and unusable
+            logger.warn("lost connection [{}] to downstream container [{}], closing upstream receivers ...",
+                    downstream.index, con.getRemoteContainer());
+
+            for (final Iterator<UpstreamReceiver> iter = activeSenders.keySet().iterator(); iter.hasNext(); ) {
+                final UpstreamReceiver client = iter.next();
+                if (getDownstreamConnection(client.getTargetAddress()) == downstream) {
+                    closeReceiver(client);
+                    iter.remove();
+                    removeFromReceiversPerConnection(client);
+                }
+            }
+            sharedSenders.keySet().removeIf(address -> getDownstreamConnection(address) == downstream);
+            // fail pending requests for shared senders first so that the affected
+            // client attach handlers are completed (and unregistered) only once
+            final List<Handler<AsyncResult<ProtonSender>>> pendingRequests = new ArrayList<>();
+            for (final Iterator<Map.Entry<String, List<Handler<AsyncResult<ProtonSender>>>>> iter = pendingSharedSenders.entrySet().iterator(); iter.hasNext(); ) {
+                final Map.Entry<String, List<Handler<AsyncResult<ProtonSender>>>> entry = iter.next();
+                if (getDownstreamConnection(entry.getKey()) == downstream) {
+                    pendingRequests.addAll(entry.getValue());
+                    iter.remove();
+                }
             }
-            receiversPerConnection.clear();
-            activeSenders.clear();
-            downstreamConnection.attachments().clear();
-            downstreamConnection.disconnectHandler(null);
-            downstreamConnection.disconnect();
+            pendingRequests.forEach(request -> request.handle(Future.failedFuture("connection to downstream container failed")));
+            con.attachments().clear();
+            con.disconnectHandler(null);
+            con.disconnect();
             metrics.decrementDownStreamConnections();
 
-            for (final Iterator<Handler<AsyncResult<Void>>> iter = clientAttachHandlers.iterator(); iter.hasNext(); ) {
+            for (final Iterator<Handler<AsyncResult<Void>>> iter = downstream.clientAttachHandlers.iterator(); iter.hasNext(); ) {
                 iter.next().handle(Future.failedFuture("connection to downstream container failed"));
                 iter.remove();
             }
 
-            reconnect(null);
+            reconnect(downstream, null);
         }
     }
 
@@ -283,7 +333,7 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
         metrics.submitDownstreamLinkCredits(receiver.getTargetAddress(), 0);
     }
 
-    private void reconnect(final Handler<AsyncResult<ProtonConnection>> resultHandler) {
+    private void reconnect(final DownstreamConnection downstream, final Handler<AsyncResult<ProtonConnection>> resultHandler) {
 
         if (!running) {
             logger.info("adapter is stopped, will not re-connect to downstream container");
@@ -291,13 +341,25 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
             final ProtonClientOptions clientOptions = createClientOptions();
             if (clientOptions.getReconnectAttempts() != 0) {
                 vertx.setTimer(Constants.DEFAULT_RECONNECT_INTERVAL_MILLIS, reconnect -> {
-                    logger.info("attempting to re-connect to downstream container");
-                    connectToDownstream(clientOptions, resultHandler);
+                    logger.info("attempting to re-connect to downstream container [connection: {}]", downstream.index);
+                    connectToDownstream(downstream, clientOptions, resultHandler);
                 });
             }
         }
     }
 
+    /**
+     * Gets the connection to the downstream container to use for a target address.
+     * <p>
+     * Target addresses are distributed among the connections based on their hash code.
+     * 
+     * @param targetAddress The target address.
+     * @return The connection.
+     */
+    private DownstreamConnection getDownstreamConnection(final String targetAddress) {
+        return downstreamConnections.get(Math.floorMod(Objects.hashCode(targetAddress), downstreamConnections.size()));
+    }
+
     @Override
     public final void onClientAttach(final UpstreamReceiver client, final Handler<AsyncResult<Void>> resultHandler) {
 
@@ -316,6 +378,8 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
             removeSender(client);
             // register the result handler to be failed if the connection to the downstream container fails during
             // the attempt to create a downstream sender
+            final List<Handler<AsyncResult<Void>>> clientAttachHandlers =
+                    getDownstreamConnection(client.getTargetAddress()).clientAttachHandlers;
             clientAttachHandlers.add(resultHandler);
             final Future<Void> tracker = Future.future();
             tracker.setHandler(attempt -> {
@@ -328,14 +392,98 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
                 resultHandler.handle(attempt);
             });
 
-            final ResourceIdentifier targetAddress = ResourceIdentifier.fromString(client.getTargetAddress());
-            createSender(targetAddress, replenishedSender -> handleFlow(replenishedSender, client), closeHook -> {
+            if (honoConfig.isSharedDownstreamSendersEnabled()) {
+                getOrCreateSharedSender(client.getTargetAddress(), attempt -> {
+                    if (attempt.succeeded()) {
+                        addSharedSender(client, attempt.result());
+                        tracker.complete();
+                    } else {
+                        tracker.fail(attempt.cause());
+                    }
+                });
+            } else {
+                final ResourceIdentifier targetAddress = ResourceIdentifier.fromString(client.getTargetAddress());
+                createSender(targetAddress, replenishedSender -> handleFlow(replenishedSender, client), closeHook -> {
+                    removeSender(client);
+                    closeReceiver(client);
+                }).compose(createdSender -> {
+                    addSender(client, createdSender);
+                    tracker.complete();
+                }, tracker);
+            }
+        }
+    }
+
+    /**
+     * Gets the shared downstream sender for a target address.
+     * <p>
+     * A new sender is created if no sender exists for the address yet. Requests for
+     * an address for which a sender is currently being created are completed once the
+     * creation attempt has finished.
+     * 
+     * @param address The target address.
+     * @param resultHandler The handler to invoke with the sender.
+     */
+    private void getOrCreateSharedSender(final String address, final Handler<AsyncResult<ProtonSender>> resultHandler) {
+
+        final SharedDownstreamSender sharedSender = sharedSenders.get(address);
+        if (sharedSender != null && sharedSender.getSender().isOpen()) {
+            logger.debug("reusing shared downstream sender [address: {}]", address);
+            resultHandler.handle(Future.succeededFuture(sharedSender.getSender()));
+            return;
+        }
+
+        final List<Handler<AsyncResult<ProtonSender>>> pendingRequests = pendingSharedSenders.get(address);
+        if (pendingRequests != null) {
+            pendingRequests.add(resultHandler);
+            return;
+        }
+
+        final List<Handler<AsyncResult<ProtonSender>>> requests = new ArrayList<>();
+        requests.add(resultHandler);
+        pendingSharedSenders.put(address, requests);
+        createSender(
+                ResourceIdentifier.fromString(address),
+                replenishedSender -> handleSharedFlow(address, replenishedSender),
+                closeHook -> onSharedSenderClosed(address)).setHandler(attempt -> {
+                    if (pendingSharedSenders.get(address) != requests) {
+                        // connection to downstream container has been lost in the meantime
+                        // and the pending requests have already been failed by the disconnect handler
+                        if (attempt.succeeded()) {
+                            attempt.result().close();
+                        }
+                        return;
+                    }
+                    pendingSharedSenders.remove(address);
+                    if (attempt.succeeded()) {
+                        logger.info("created shared downstream sender [address: {}]", address);
+                        sharedSenders.put(address, new SharedDownstreamSender(attempt.result()));
+                    }
+                    for (final Handler<AsyncResult<ProtonSender>> request : requests) {
+                        request.handle(attempt);
+                    }
+                });
+    }
+
+    private void handleSharedFlow(final String address, final ProtonSender replenishedSender) {
+
+        final SharedDownstreamSender sharedSender = sharedSenders.get(address);
+        if (sharedSender != null && sharedSender.getSender() == replenishedSender) {
+            sharedSender.handleFlow();
+            metrics.submitDownstreamLinkCredits(address, getAvailableDownstreamCredit(replenishedSender));
+        }
+    }
+
+    private void onSharedSenderClosed(final String address) {
+
+        final SharedDownstreamSender sharedSender = sharedSenders.remove(address);
+        if (sharedSender != null) {
+            logger.info("shared downstream sender [address: {}] has been closed, closing {} upstream receivers",
+                    address, sharedSender.getReceivers().size());
+            for (final UpstreamReceiver client : sharedSender.getReceivers()) {
                 removeSender(client);
                 closeReceiver(client);
-            }).compose(createdSender -> {
-                addSender(client, createdSender);
-                tracker.complete();
-            }, tracker);
+            }
         }
     }
 
@@ -377,10 +525,11 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
             final Handler<ProtonSender> sendQueueDrainHandler,
             final Handler<Void> closeHook) {
 
-        if (!isConnected()) {
+        final ProtonConnection connection = getDownstreamConnection(targetAddress.toString()).connection;
+        if (connection == null || connection.isDisconnected()) {
             return Future.failedFuture("downstream connection must be opened before creating sender");
         } else {
-            return senderFactory.createSender(downstreamConnection, targetAddress, getDownstreamQos(),
+            return senderFactory.createSender(connection, targetAddress, getDownstreamQos(),
                     sendQueueDrainHandler, closeHook);
         }
     }
@@ -394,6 +543,26 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
     public final void addSender(final UpstreamReceiver link, final ProtonSender sender) {
         sender.attachments().set(Constants.KEY_CONNECTION_ID, String.class, link.getConnectionId());
         sender.setAutoDrained(false); // we need to propagate drain requests upstream and wait for the result
+        registerSender(link, sender);
+    }
+
+    /**
+     * Associates a shared downstream sender with an upstream client.
+     * <p>
+     * The credit available on the sender is split among all clients sharing the sender.
+     * 
+     * @param link The upstream client.
+     * @param sender The shared downstream sender.
+     */
+    private void addSharedSender(final UpstreamReceiver link, final ProtonSender sender) {
+        registerSender(link, sender);
+        final SharedDownstreamSender sharedSender = sharedSenders.get(link.getTargetAddress());
+        if (sharedSender != null && sharedSender.getSender() == sender) {
+            sharedSender.addReceiver(link);
+        }
+    }
+
+    private void registerSender(final UpstreamReceiver link, final ProtonSender sender) {
         activeSenders.put(link, sender);
         List<UpstreamReceiver> senders = receiversPerConnection.get(link.getConnectionId());
         if (senders == null) {
@@ -412,11 +581,18 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
      * @param link The upstream client.
      */
     public final void removeSender(final UpstreamReceiver link) {
+        removeFromReceiversPerConnection(link);
+        closeSender(link);
+    }
+
+    private void removeFromReceiversPerConnection(final UpstreamReceiver link) {
         final List<UpstreamReceiver> senders = receiversPerConnection.get(link.getConnectionId());
         if (senders != null) {
             senders.remove(link);
+            if (senders.isEmpty()) {
+                receiversPerConnection.remove(link.getConnectionId());
+            }
         }
-        closeSender(link);
     }
 
     @Override
@@ -451,8 +627,18 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
     private void closeSender(final UpstreamReceiver link) {
         final ProtonSender sender = activeSenders.remove(link);
         if (sender != null && sender.isOpen()) {
-            logger.info("closing downstream sender [con: {}, link: {}]", link.getConnectionId(), link.getLinkId());
             metrics.decrementDownstreamSenders(link.getTargetAddress());
+            final SharedDownstreamSender sharedSender = sharedSenders.get(link.getTargetAddress());
+            if (sharedSender != null && sharedSender.getSender() == sender) {
+                sharedSender.removeReceiver(link);
+                if (sharedSender.hasReceivers()) {
+                    logger.debug("removed client from shared downstream sender [con: {}, link: {}]",
+                            link.getConnectionId(), link.getLinkId());
+                    return;
+                }
+                sharedSenders.remove(link.getTargetAddress());
+            }
+            logger.info("closing downstream sender [con: {}, link: {}]", link.getConnectionId(), link.getLinkId());
             metrics.submitDownstreamLinkCredits(link.getTargetAddress(), 0);
             sender.close();
         }
@@ -502,13 +688,23 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
     }
 
     /**
-     * Checks if this adapter has an open connection to the downstream container.
+     * Checks if this adapter has open connections to the downstream container.
+     * <p>
+     * The connections are re-established independently of each other and the
+     * addresses assigned to the open connections can still be served while a
+     * lost connection is being re-established. This adapter is therefore
+     * considered connected as long as any of its connections is open.
      *
-     * @return {@code true} if the connection is open (and thus usable).
+     * @return {@code true} if at least one of the connections is open (and thus usable).
      */
     @Override
     public final boolean isConnected() {
-        return downstreamConnection != null && !downstreamConnection.isDisconnected();
+        for (final DownstreamConnection downstream : downstreamConnections) {
+            if (downstream.connection != null && !downstream.connection.isDisconnected()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     final void disableRetryOnFailedConnectAttempt() {
@@ -533,6 +729,15 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
         return receiversPerConnection != null && receiversPerConnection.isEmpty();
     }
 
+    /**
+     * Checks if there are any shared downstream senders.
+     * 
+     * @return {@code true} if there are none.
+     */
+    protected final boolean isSharedSendersEmpty() {
+        return sharedSenders.isEmpty() && pendingSharedSenders.isEmpty();
+    }
+
     /**
      * Forwards the message to the downstream container.
      * <p>
@@ -551,4 +756,18 @@ public abstract class ForwardingDownstreamAdapter implements DownstreamAdapter {
      * @return The QoS.
      */
     protected abstract ProtonQoS getDownstreamQos();
+
+    /**
+     * One of the connections to the downstream container.
+     */
+    private static final class DownstreamConnection {
+
+        private final int index;
+        private final List<Handler<AsyncResult<Void>>> clientAttachHandlers = new ArrayList<>();
+        private ProtonConnection connection;
+
+        private DownstreamConnection(final int index) {
+            this.index = index;
+        }
+    }
 }
@@ -17,6 +17,7 @@ import org.eclipse.hono.config.ApplicationConfigProperties;
 import org.eclipse.hono.connection.ConnectionFactory;
 import org.eclipse.hono.connection.impl.ConnectionFactoryImpl;
 import org.eclipse.hono.service.metric.MetricConfig;
+import org.eclipse.hono.service.registration.CachingRegistrationAssertionValidator;
 import org.eclipse.hono.service.registration.RegistrationAssertionHelper;
 import org.eclipse.hono.service.registration.RegistrationAssertionHelperImpl;
 import org.eclipse.hono.util.Constants;
@@ -160,6 +161,11 @@ public class HonoMessagingApplicationConfig {
             // fall back to TLS configuration
             serviceProps.getValidation().setCertPath(serviceProps.getCertPath());
         }
-        return RegistrationAssertionHelperImpl.forValidating(vertx(), serviceProps.getValidation());
+        final RegistrationAssertionHelper validator = RegistrationAssertionHelperImpl.forValidating(vertx(), serviceProps.getValidation());
+        if (serviceProps.getAssertionCacheMaxSize() > 0) {
+            return new CachingRegistrationAssertionValidator(validator, serviceProps.getAssertionCacheMaxSize());
+        } else {
+            return validator;
+        }
     }
 }
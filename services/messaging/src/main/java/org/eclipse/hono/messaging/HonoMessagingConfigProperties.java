@@ -27,10 +27,21 @@ public class HonoMessagingConfigProperties extends ServiceConfigProperties {
      * The default number of bytes that can be buffered unsettled per session created by a client.
      */
     public static final int DEFAULT_MAX_SESSION_WINDOW = 300 * 32 * 1024; // 300 frames of 32kb each
+    /**
+     * The default maximum number of verified registration assertions to cache.
+     */
+    public static final long DEFAULT_ASSERTION_CACHE_MAX_SIZE = 10000L;
+    /**
+     * The default number of connections to establish with the downstream container.
+     */
+    public static final int DEFAULT_DOWNSTREAM_CONNECTIONS = 1;
 
     private final SignatureSupportingConfigProperties registrationAssertionProperties = new SignatureSupportingConfigProperties();
     private int maxSessionWindow = DEFAULT_MAX_SESSION_WINDOW;
     private boolean assertionValidationRequired = true;
+    private long assertionCacheMaxSize = DEFAULT_ASSERTION_CACHE_MAX_SIZE;
+    private boolean sharedDownstreamSendersEnabled = false;
+    private int downstreamConnections = DEFAULT_DOWNSTREAM_CONNECTIONS;
 
     /**
      * Gets the properties for determining key material for validating registration assertion tokens.
@@ -96,4 +107,108 @@ public class HonoMessagingConfigProperties extends ServiceConfigProperties {
     public final void setAssertionValidationRequired(final boolean assertionRequired) {
         this.assertionValidationRequired = assertionRequired;
     }
+
+    /**
+     * Gets the maximum number of registration assertions that have been verified
+     * successfully and are kept in a cache.
+     * <p>
+     * A cached assertion is considered valid for its tenant and device until it expires
+     * without verifying its signature again.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_ASSERTION_CACHE_MAX_SIZE}.
+     * 
+     * @return The maximum number of cached assertions.
+     */
+    public final long getAssertionCacheMaxSize() {
+        return assertionCacheMaxSize;
+    }
+
+    /**
+     * Sets the maximum number of registration assertions that have been verified
+     * successfully and are kept in a cache.
+     * <p>
+     * A cached assertion is considered valid for its tenant and device until it expires
+     * without verifying its signature again.
+     * <p>
+     * Setting this property to 0 disables caching.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_ASSERTION_CACHE_MAX_SIZE}.
+     * 
+     * @param size The maximum number of cached assertions.
+     * @throws IllegalArgumentException if size is &lt; 0.
+     */
+    public final void setAssertionCacheMaxSize(final long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("maximum cache size must not be negative");
+        }
+        this.assertionCacheMaxSize = size;
+    }
+
+    /**
+     * Checks whether upstream clients publishing to the same target address
+     * share a single link to the downstream container.
+     * <p>
+     * If enabled, the number of links to the downstream container grows with
+     * the number of target addresses instead of the number of upstream links.
+     * The credit granted by the downstream container is split evenly among the
+     * upstream links sharing a downstream link.
+     * <p>
+     * The default value of this property is {@code false}.
+     * 
+     * @return {@code true} if downstream links are shared.
+     */
+    public final boolean isSharedDownstreamSendersEnabled() {
+        return sharedDownstreamSendersEnabled;
+    }
+
+    /**
+     * Sets whether upstream clients publishing to the same target address
+     * share a single link to the downstream container.
+     * <p>
+     * If enabled, the number of links to the downstream container grows with
+     * the number of target addresses instead of the number of upstream links.
+     * The credit granted by the downstream container is split evenly among the
+     * upstream links sharing a downstream link.
+     * <p>
+     * The default value of this property is {@code false}.
+     * 
+     * @param enabled {@code true} if downstream links should be shared.
+     */
+    public final void setSharedDownstreamSendersEnabled(final boolean enabled) {
+        this.sharedDownstreamSendersEnabled = enabled;
+    }
+
+    /**
+     * Gets the number of connections that each downstream adapter establishes
+     * with the downstream container.
+     * <p>
+     * The target addresses of upstream clients are distributed among the connections
+     * based on their hash code. Each connection is re-established independently when lost.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_DOWNSTREAM_CONNECTIONS}.
+     * 
+     * @return The number of connections.
+     */
+    public final int getDownstreamConnections() {
+        return downstreamConnections;
+    }
+
+    /**
+     * Sets the number of connections that each downstream adapter establishes
+     * with the downstream container.
+     * <p>
+     * The target addresses of upstream clients are distributed among the connections
+     * based on their hash code. Each connection is re-established independently when lost.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_DOWNSTREAM_CONNECTIONS}.
+     * 
+     * @param connections The number of connections.
+     * @throws IllegalArgumentException if connections is &lt; 1.
+     */
+    public final void setDownstreamConnections(final int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("number of downstream connections must be > 0");
+        }
+        this.downstreamConnections = connections;
+    }
 }
@@ -13,6 +13,8 @@
 
 package org.eclipse.hono.messaging;
 
+import org.eclipse.hono.service.metric.CounterHandle;
+import org.eclipse.hono.service.metric.MetricHandles;
 import org.eclipse.hono.service.metric.Metrics;
 import org.springframework.stereotype.Component;
 
@@ -29,6 +31,17 @@ public class MessagingMetrics extends Metrics {
     private static final String SENDERS_DOWNSTREAM       = ".senders.downstream.";
     private static final String RECEIVERS_UPSTREAM_LINKS = ".receivers.upstream.links.";
 
+    private final MetricHandles<CounterHandle> downstreamSenders = newCounterHandles(
+            (scope, address) -> SERVICE_PREFIX + SENDERS_DOWNSTREAM + normalizeAddress(address));
+    private final MetricHandles<CounterHandle> upstreamLinks = newCounterHandles(
+            (scope, address) -> SERVICE_PREFIX + RECEIVERS_UPSTREAM_LINKS + normalizeAddress(address));
+    private final MetricHandles<CounterHandle> processedMessages = newCounterHandles(
+            (scope, address) -> METER_PREFIX + SERVICE_PREFIX + MESSAGES + normalizeAddress(address) + PROCESSED);
+    private final MetricHandles<CounterHandle> discardedMessages = newCounterHandles(
+            (scope, address) -> SERVICE_PREFIX + MESSAGES + normalizeAddress(address) + DISCARDED);
+    private final MetricHandles<CounterHandle> undeliverableMessages = newCounterHandles(
+            (scope, address) -> SERVICE_PREFIX + MESSAGES + normalizeAddress(address) + UNDELIVERABLE);
+
     @Override
     protected String getPrefix() {
         return SERVICE_PREFIX;
@@ -47,27 +60,27 @@ public class MessagingMetrics extends Metrics {
     }
 
     void incrementDownstreamSenders(final String address) {
-        counterService.increment(SERVICE_PREFIX + SENDERS_DOWNSTREAM + normalizeAddress(address));
+        downstreamSenders.get(address).increment();
     }
 
     void decrementDownstreamSenders(final String address) {
-        counterService.decrement(SERVICE_PREFIX + SENDERS_DOWNSTREAM + normalizeAddress(address));
+        downstreamSenders.get(address).decrement();
     }
 
     void incrementUpstreamLinks(final String address) {
-        counterService.increment(SERVICE_PREFIX + RECEIVERS_UPSTREAM_LINKS + normalizeAddress(address));
+        upstreamLinks.get(address).increment();
     }
     void decrementUpstreamLinks(final String address) {
-        counterService.decrement(SERVICE_PREFIX + RECEIVERS_UPSTREAM_LINKS + normalizeAddress(address));
+        upstreamLinks.get(address).decrement();
     }
 
     void incrementProcessedMessages(final String address) {
-        counterService.increment(METER_PREFIX + SERVICE_PREFIX + MESSAGES + normalizeAddress(address) + PROCESSED);
+        processedMessages.get(address).increment();
     }
     void incrementDiscardedMessages(final String address) {
-        counterService.increment(SERVICE_PREFIX + MESSAGES + normalizeAddress(address) + DISCARDED);
+        discardedMessages.get(address).increment();
     }
     void incrementUndeliverableMessages(final String address) {
-        counterService.increment(SERVICE_PREFIX + MESSAGES + normalizeAddress(address) + UNDELIVERABLE);
+        undeliverableMessages.get(address).increment();
     }
 }
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.proton.ProtonSender;
+
+/**
+ * A downstream sender that is used for forwarding the messages of multiple upstream clients
+ * which publish to the same target address.
+ * <p>
+ * The credit granted by the downstream container is split evenly among the upstream clients.
+ * Credit that is still held by the clients is taken into account, so that the clients never
+ * hold more credit in total than has been granted by the downstream container.
+ * Drain requests are forwarded to all upstream clients and the sender is marked as drained
+ * once all clients have been drained.
+ */
+final class SharedDownstreamSender {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedDownstreamSender.class);
+    private static final long DRAIN_TIMEOUT_MILLIS = 10000;
+
+    private final ProtonSender sender;
+    private final List<UpstreamReceiver> receivers = new ArrayList<>();
+    private int nextReceiverIndex;
+
+    /**
+     * Creates a shared sender for a downstream link.
+     *
+     * @param sender The link to the downstream container.
+     * @throws NullPointerException if sender is {@code null}.
+     */
+    SharedDownstreamSender(final ProtonSender sender) {
+        this.sender = Objects.requireNonNull(sender);
+        // we need to propagate drain requests upstream and wait for the result
+        this.sender.setAutoDrained(false);
+    }
+
+    /**
+     * Gets the link to the downstream container.
+     *
+     * @return The link.
+     */
+    ProtonSender getSender() {
+        return sender;
+    }
+
+    /**
+     * Adds an upstream client whose messages are forwarded by means of this sender.
+     * <p>
+     * The available credit is distributed among all clients including the added one.
+     * If the added client cannot be granted its share because the other clients still hold
+     * the credit, the clients holding more than their share are drained and the credit is
+     * distributed again once they have been drained.
+     *
+     * @param receiver The client.
+     * @throws NullPointerException if receiver is {@code null}.
+     */
+    void addReceiver(final UpstreamReceiver receiver) {
+        receivers.add(Objects.requireNonNull(receiver));
+        distributeCredit();
+        if (getHeldCredit(receiver) < Math.max(0, sender.getCredit()) / receivers.size()) {
+            reclaimCredit();
+        }
+    }
+
+    /**
+     * Removes an upstream client.
+     * <p>
+     * The available credit is distributed among the remaining clients.
+     *
+     * @param receiver The client.
+     * @return {@code true} if the client has been added to this sender before.
+     */
+    boolean removeReceiver(final UpstreamReceiver receiver) {
+        if (receivers.remove(receiver)) {
+            distributeCredit();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the upstream clients whose messages are forwarded by means of this sender.
+     *
+     * @return A copy of the list of clients.
+     */
+    List<UpstreamReceiver> getReceivers() {
+        return new ArrayList<>(receivers);
+    }
+
+    /**
+     * Checks if there are any upstream clients using this sender.
+     *
+     * @return {@code true} if there are.
+     */
+    boolean hasReceivers() {
+        return !receivers.isEmpty();
+    }
+
+    /**
+     * Invoked when the sender receives link credit and/or a drain request from the downstream container.
+     */
+    void handleFlow() {
+
+        LOG.trace("received FLOW from downstream container [address: {}, receivers: {}, credits: {}, queued: {}, drain: {}",
+                sender.getTarget().getAddress(), receivers.size(), sender.getCredit(), sender.getQueued(), sender.getDrain());
+        if (sender.getDrain()) {
+            @SuppressWarnings("rawtypes")
+            final List<Future> drainAttempts = new ArrayList<>();
+            for (final UpstreamReceiver receiver : receivers) {
+                final Future<Void> drainAttempt = Future.future();
+                receiver.drain(DRAIN_TIMEOUT_MILLIS, drainAttempt.completer());
+                drainAttempts.add(drainAttempt);
+            }
+            CompositeFuture.all(drainAttempts).setHandler(attempt -> {
+                if (attempt.succeeded()) {
+                    sender.drained();
+                }
+            });
+        } else {
+            distributeCredit();
+        }
+    }
+
+    /**
+     * Drains the upstream clients that hold more than their share of the credit
+     * available on the downstream link and distributes the credit again once they
+     * have been drained.
+     */
+    private void reclaimCredit() {
+
+        final int share = Math.max(0, sender.getCredit()) / receivers.size();
+        @SuppressWarnings("rawtypes")
+        final List<Future> drainAttempts = new ArrayList<>();
+        for (final UpstreamReceiver receiver : receivers) {
+            if (getHeldCredit(receiver) > share + 1) {
+                LOG.debug("reclaiming credit from client [link: {}, credits: {}]", receiver.getLinkId(), receiver.getCredit());
+                final Future<Void> drainAttempt = Future.future();
+                receiver.drain(DRAIN_TIMEOUT_MILLIS, drainAttempt.completer());
+                drainAttempts.add(drainAttempt);
+            }
+        }
+        if (!drainAttempts.isEmpty()) {
+            CompositeFuture.join(drainAttempts).setHandler(attempt -> distributeCredit());
+        }
+    }
+
+    /**
+     * Splits the credit available on the downstream link evenly among the upstream clients.
+     * <p>
+     * Only credit that is not held by any of the clients yet is granted, i.e. a client
+     * holding less than its share is replenished with at most the credit that has not
+     * been allocated to the other clients. A client holding more than its share keeps
+     * the surplus until it has used it up or has been drained.
+     * <p>
+     * The remainder of the split is granted to a different subset of clients each time,
+     * starting with the client following the one that has been served first the last time.
+     */
+    private void distributeCredit() {
+
+        final int count = receivers.size();
+        if (count == 0) {
+            return;
+        }
+        final int credit = Math.max(0, sender.getCredit());
+        int unallocatedCredit = credit;
+        for (final UpstreamReceiver receiver : receivers) {
+            unallocatedCredit -= getHeldCredit(receiver);
+        }
+        final int share = credit / count;
+        final int remainder = credit % count;
+        final int firstReceiverIndex = nextReceiverIndex % count;
+        for (int i = 0; i < count && unallocatedCredit > 0; i++) {
+            final UpstreamReceiver receiver = receivers.get((firstReceiverIndex + i) % count);
+            final int heldCredit = getHeldCredit(receiver);
+            final int missingCredit = (i < remainder ? share + 1 : share) - heldCredit;
+            if (missingCredit > 0) {
+                final int grantedCredit = Math.min(missingCredit, unallocatedCredit);
+                receiver.replenish(heldCredit + grantedCredit);
+                unallocatedCredit -= grantedCredit;
+            }
+        }
+        nextReceiverIndex = firstReceiverIndex + 1;
+    }
+
+    private static int getHeldCredit(final UpstreamReceiver receiver) {
+        return Math.max(0, receiver.getCredit());
+    }
+}
@@ -49,6 +49,16 @@ public interface UpstreamReceiver {
      */
     void replenish(int replenishedCredits);
 
+    /**
+     * Gets the number of credits the client currently holds.
+     * <p>
+     * This is the number of messages the client may still send without
+     * being replenished.
+     * 
+     * @return The number of credits.
+     */
+    int getCredit();
+
     /**
      * Sends an AMQP 1.0 <em>flow</em> frame to the client with the <em>drain</em> flag set.
      * 
@@ -59,6 +59,11 @@ public class UpstreamReceiverImpl implements UpstreamReceiver {
         }
     }
 
+    @Override
+    public int getCredit() {
+        return link.getCredit() - link.getQueued();
+    }
+
     @Override
     public void drain(final long timeoutMillis, final Handler<AsyncResult<Void>> drainCompletionHandler) {
         if (drainFlag.compareAndSet(false, true)) {
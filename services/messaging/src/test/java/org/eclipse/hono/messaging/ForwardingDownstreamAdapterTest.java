@@ -14,12 +14,19 @@
 package org.eclipse.hono.messaging;
 
 import static org.eclipse.hono.TestSupport.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 
 import org.apache.qpid.proton.amqp.transport.ErrorCondition;
@@ -356,13 +363,55 @@ public class ForwardingDownstreamAdapterTest {
         assertTrue(adapter.isSendersPerConnectionEmpty());
     }
 
+    /**
+     * Verifies that a request from an upstream client to attach is failed exactly once when the
+     * connection to the downstream container is lost while the shared downstream sender is
+     * still being created.
+     * 
+     * @param ctx The Vert.x test context.
+     */
+    @Test
+    public void testDownstreamDisconnectFailsPendingSharedSenderRequests(final TestContext ctx) {
+
+        when(con.isDisconnected()).thenReturn(Boolean.FALSE);
+        final UpstreamReceiver client = newClient();
+        when(client.getTargetAddress()).thenReturn(targetAddress.toString());
+        final HandlerCapturingConnectionFactory factory = new HandlerCapturingConnectionFactory(con);
+        final Future<ProtonSender> senderCreation = Future.future();
+        final SenderFactory senderFactory = (con, address, qos, drainHandler, closeHook) -> senderCreation;
+        final AtomicInteger attachResults = new AtomicInteger();
+
+        // GIVEN an adapter using shared senders with a client trying to attach
+        givenADownstreamAdapter(senderFactory);
+        adapter.setHonoConfiguration(newConfigWithSharedSenders());
+        adapter.setDownstreamConnectionFactory(factory);
+        adapter.start(Future.future());
+        adapter.onClientAttach(client, attachAttempt -> {
+            attachResults.incrementAndGet();
+            ctx.assertTrue(attachAttempt.failed());
+        });
+
+        // WHEN the downstream connection fails before the shared sender has been created
+        factory.getDisconnectHandler().handle(con);
+
+        // THEN the client's attach request has been failed exactly once
+        assertEquals(1, attachResults.get());
+
+        // and a late completion of the sender creation is ignored
+        final ProtonSender sender = newMockSender(false);
+        senderCreation.complete(sender);
+        assertEquals(1, attachResults.get());
+        verify(sender).close();
+        assertTrue(adapter.isSharedSendersEmpty());
+    }
+
     /**
      * Verifies the adapter repreatedly tries to connect to downstream container until it succeeds.
      */
     @Test
     public void testConnectToDownstreamRetriesToConnectOnFailedAttempt() {
 
-        final HandlerCapturingConnectionFactory factory = new HandlerCapturingConnectionFactory(null, 3);
+        final HandlerCapturingConnectionFactory factory = new HandlerCapturingConnectionFactory((ProtonConnection) null, 3);
 
         // GIVEN an adapter
         givenADownstreamAdapter();
@@ -375,6 +424,198 @@ public class ForwardingDownstreamAdapterTest {
         assertTrue(factory.await(4 * Constants.DEFAULT_RECONNECT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
     }
 
+    /**
+     * Verifies that upstream clients publishing to the same target address share a
+     * downstream sender and that the sender's credit is split among them
+     * if shared downstream senders are enabled.
+     */
+    @Test
+    public void testClientAttachUsesSharedSenderForSameTargetAddress() {
+
+        final UpstreamReceiver firstClient = newClient("first-link");
+        when(firstClient.getTargetAddress()).thenReturn(targetAddress.toString());
+        final UpstreamReceiver secondClient = newClient("second-link");
+        when(secondClient.getTargetAddress()).thenReturn(targetAddress.toString());
+        final AtomicInteger createdSenders = new AtomicInteger();
+        final SenderFactory mockSenderFactory = newMockSenderFactory(newMockSender(false));
+        final SenderFactory senderFactory = (con, address, qos, drainHandler, closeHook) -> {
+            createdSenders.incrementAndGet();
+            return mockSenderFactory.createSender(con, address, qos, drainHandler, closeHook);
+        };
+
+        // GIVEN an adapter with a connection to the downstream container that shares downstream senders
+        givenADownstreamAdapter(senderFactory);
+        adapter.setHonoConfiguration(newConfigWithSharedSenders());
+        adapter.setDownstreamConnectionFactory(connectionFactory);
+        adapter.start(Future.future());
+
+        // WHEN two clients attach to Hono for uploading telemetry data of the same tenant
+        adapter.onClientAttach(firstClient, s -> {});
+        adapter.onClientAttach(secondClient, s -> {});
+
+        // THEN only one downstream sender has been created
+        assertEquals(1, createdSenders.get());
+        // and the sender's credit has been split among the clients
+        verify(firstClient).replenish(DEFAULT_CREDITS);
+        verify(firstClient).replenish(DEFAULT_CREDITS / 2);
+        verify(secondClient).replenish(DEFAULT_CREDITS / 2);
+    }
+
+    /**
+     * Verifies that the upstream clients sharing a downstream sender never hold more
+     * credit in total than the downstream container has granted, even if a client
+     * attaches after the first client has already been granted all of the credit.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSharedSenderDoesNotGrantMoreCreditThanAvailableDownstream() {
+
+        final AtomicInteger firstClientCredit = new AtomicInteger();
+        final UpstreamReceiver firstClient = newClientHoldingCredit("first-link", firstClientCredit);
+        final AtomicInteger secondClientCredit = new AtomicInteger();
+        final UpstreamReceiver secondClient = newClientHoldingCredit("second-link", secondClientCredit);
+
+        // GIVEN an adapter with a connection to the downstream container that shares downstream senders
+        givenADownstreamAdapter();
+        adapter.setHonoConfiguration(newConfigWithSharedSenders());
+        adapter.setDownstreamConnectionFactory(connectionFactory);
+        adapter.start(Future.future());
+
+        // WHEN a client attaches and is granted all of the downstream sender's credit
+        adapter.onClientAttach(firstClient, s -> {});
+        assertEquals(DEFAULT_CREDITS, firstClientCredit.get());
+
+        // and another client attaches for the same target address afterwards
+        adapter.onClientAttach(secondClient, s -> {});
+
+        // THEN the clients do not hold more credit than the downstream sender has
+        assertTrue(firstClientCredit.get() + secondClientCredit.get() <= DEFAULT_CREDITS);
+        // and the credit has been reclaimed from the first client and split among both clients
+        verify(firstClient).drain(anyLong(), any(Handler.class));
+        assertEquals(DEFAULT_CREDITS / 2, firstClientCredit.get());
+        assertEquals(DEFAULT_CREDITS / 2, secondClientCredit.get());
+    }
+
+    /**
+     * Verifies that a shared downstream sender is closed only after the last upstream client
+     * using the sender has detached.
+     */
+    @Test
+    public void testOnClientDetachClosesSharedSenderAfterLastClientHasDetached() {
+
+        final UpstreamReceiver firstClient = newClient("first-link");
+        when(firstClient.getTargetAddress()).thenReturn(targetAddress.toString());
+        final UpstreamReceiver secondClient = newClient("second-link");
+        when(secondClient.getTargetAddress()).thenReturn(targetAddress.toString());
+        final ProtonSender downstreamSender = newMockSender(false);
+
+        // GIVEN an adapter with two clients sharing a downstream sender
+        givenADownstreamAdapter(downstreamSender);
+        adapter.setHonoConfiguration(newConfigWithSharedSenders());
+        adapter.setDownstreamConnectionFactory(connectionFactory);
+        adapter.start(Future.future());
+        adapter.onClientAttach(firstClient, s -> {});
+        adapter.onClientAttach(secondClient, s -> {});
+
+        // WHEN the first client detaches
+        adapter.onClientDetach(firstClient);
+
+        // THEN the downstream sender is kept open
+        verify(downstreamSender, never()).close();
+        // and the remaining client is granted all of the sender's credit
+        verify(secondClient).replenish(DEFAULT_CREDITS);
+
+        // and WHEN the second client detaches as well
+        adapter.onClientDetach(secondClient);
+
+        // THEN the downstream sender is closed
+        verify(downstreamSender).close();
+        assertTrue(adapter.isActiveSendersEmpty());
+        assertTrue(adapter.isSharedSendersEmpty());
+    }
+
+    /**
+     * Verifies that the adapter establishes the configured number of connections
+     * to the downstream container and that losing one of them only closes the upstream
+     * receivers whose target address is assigned to the lost connection, while the
+     * adapter is still considered connected.
+     */
+    @Test
+    public void testDownstreamDisconnectClosesUpstreamReceiversOfAffectedConnectionOnly() {
+
+        final ProtonConnection otherCon = mock(ProtonConnection.class);
+        when(otherCon.attachments()).thenReturn(mock(Record.class));
+        // expect the connection factory to be invoked three times
+        // first and second on initial connection
+        // third on re-connect attempt
+        final HandlerCapturingConnectionFactory factory = new HandlerCapturingConnectionFactory(Arrays.asList(con, otherCon), 3);
+        final HonoMessagingConfigProperties config = new HonoMessagingConfigProperties();
+        config.setDownstreamConnections(2);
+
+        // GIVEN an adapter connected to a downstream container by means of two connections
+        givenADownstreamAdapter();
+        adapter.setHonoConfiguration(config);
+        adapter.setDownstreamConnectionFactory(factory);
+        adapter.start(Future.future());
+
+        // with clients attached for two target addresses that are assigned to different connections
+        final String firstAddress = getTargetAddressForConnection(0, 2);
+        final String secondAddress = getTargetAddressForConnection(1, 2);
+        final UpstreamReceiver firstClient = newClient("first-link");
+        when(firstClient.getTargetAddress()).thenReturn(firstAddress);
+        final UpstreamReceiver secondClient = newClient("second-link");
+        when(secondClient.getTargetAddress()).thenReturn(secondAddress);
+        adapter.addSender(firstClient, newMockSender(false));
+        adapter.addSender(secondClient, newMockSender(false));
+
+        // WHEN the first connection fails
+        when(con.isDisconnected()).thenReturn(Boolean.TRUE);
+        factory.getDisconnectHandler(0).handle(con);
+
+        // THEN the adapter tries to re-establish the connection
+        assertTrue(factory.await(2, TimeUnit.SECONDS));
+        // and has closed the client using the failed connection only
+        verify(firstClient).close(any(ErrorCondition.class));
+        verify(secondClient, never()).close(any(ErrorCondition.class));
+        assertFalse(adapter.isActiveSendersEmpty());
+        // and is still considered connected because of the remaining connection
+        assertTrue(adapter.isConnected());
+    }
+
+    private static String getTargetAddressForConnection(final int connectionIndex, final int connections) {
+        int i = 0;
+        String address;
+        do {
+            address = String.format("%s/tenant-%d", TelemetryConstants.TELEMETRY_ENDPOINT, i++);
+        } while (Math.floorMod(address.hashCode(), connections) != connectionIndex);
+        return address;
+    }
+
+    @SuppressWarnings("unchecked")
+    private UpstreamReceiver newClientHoldingCredit(final String linkId, final AtomicInteger credit) {
+
+        final UpstreamReceiver client = newClient(linkId);
+        when(client.getTargetAddress()).thenReturn(targetAddress.toString());
+        when(client.getCredit()).then(invocation -> credit.get());
+        doAnswer(invocation -> {
+            credit.set(Math.max(credit.get(), invocation.getArgument(0)));
+            return null;
+        }).when(client).replenish(anyInt());
+        doAnswer(invocation -> {
+            credit.set(0);
+            final Handler<AsyncResult<Void>> drainCompletionHandler = invocation.getArgument(1);
+            drainCompletionHandler.handle(Future.succeededFuture());
+            return null;
+        }).when(client).drain(anyLong(), any(Handler.class));
+        return client;
+    }
+
+    private static HonoMessagingConfigProperties newConfigWithSharedSenders() {
+        final HonoMessagingConfigProperties config = new HonoMessagingConfigProperties();
+        config.setSharedDownstreamSendersEnabled(true);
+        return config;
+    }
+
     private void givenADownstreamAdapter() {
         givenADownstreamAdapter(newMockSender(false));
     }
@@ -407,17 +648,27 @@ public class ForwardingDownstreamAdapterTest {
      */
     private class HandlerCapturingConnectionFactory implements ConnectionFactory {
 
+        private final List<Handler<ProtonConnection>> disconnectHandlers = new ArrayList<>();
         private Handler<ProtonConnection> disconnectHandler;
         private Handler<AsyncResult<ProtonConnection>> closeHandler;
         private final CountDownLatch expectedConnectionAttempts;
-        private final ProtonConnection connectionToCreate;
+        private final List<ProtonConnection> connectionsToCreate;
+        private int connectionAttempts;
 
         HandlerCapturingConnectionFactory(final ProtonConnection conToCreate) {
             this(conToCreate, 1);
         }
 
         HandlerCapturingConnectionFactory(final ProtonConnection conToCreate, final int expectedConnectionAttempts) {
-            this.connectionToCreate = conToCreate;
+            this(Collections.singletonList(conToCreate), expectedConnectionAttempts);
+        }
+
+        /**
+         * Creates a factory that returns the given connections in the order of the connection attempts.
+         * The last connection is returned for all further attempts.
+         */
+        HandlerCapturingConnectionFactory(final List<ProtonConnection> consToCreate, final int expectedConnectionAttempts) {
+            this.connectionsToCreate = consToCreate;
             this.expectedConnectionAttempts = new CountDownLatch(expectedConnectionAttempts);
         }
 
@@ -442,7 +693,10 @@ public class ForwardingDownstreamAdapterTest {
             if (expectedConnectionAttempts.getCount() > 0) {
                 expectedConnectionAttempts.countDown();
                 this.disconnectHandler = disconnectHandler;
+                this.disconnectHandlers.add(disconnectHandler);
                 this.closeHandler = closeHandler;
+                final ProtonConnection connectionToCreate = connectionsToCreate.get(
+                        Math.min(connectionAttempts++, connectionsToCreate.size() - 1));
                 if (connectionToCreate == null) {
                     connectionResultHandler.handle(Future.failedFuture("cannot connect"));
                 } else {
@@ -475,6 +729,10 @@ public class ForwardingDownstreamAdapterTest {
             return disconnectHandler;
         }
 
+        public Handler<ProtonConnection> getDisconnectHandler(final int connectionAttempt) {
+            return disconnectHandlers.get(connectionAttempt);
+        }
+
         public Handler<AsyncResult<ProtonConnection>> getCloseHandler() {
             return closeHandler;
         }